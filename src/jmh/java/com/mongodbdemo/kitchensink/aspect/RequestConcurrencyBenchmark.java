@@ -0,0 +1,164 @@
+package com.mongodbdemo.kitchensink.aspect;
+
+import com.mongodbdemo.kitchensink.configuration.HttpClientConfiguration;
+import com.mongodbdemo.kitchensink.helper.UserContext;
+import com.mongodbdemo.kitchensink.helper.UserContextTaskDecorator;
+import com.mongodbdemo.kitchensink.resilience.DependencyGuard;
+import com.mongodbdemo.kitchensink.resilience.FailurePolicy;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long a burst of concurrent requests takes to pass authorization and rate limiting when the
+ * auth and rate limit services each answer after {@code serviceLatencyMillis}.
+ * <p>
+ * {@code platform} runs the requests on a pool of 200 threads, the Tomcat default, and {@code virtual} on one
+ * virtual thread per request, as with {@code spring.threads.virtual.enabled=true}. {@code jdk} sends the calls
+ * with {@code HttpURLConnection}, {@code pooled} with the Apache client from {@link HttpClientConfiguration},
+ * sized so the pool does not limit the burst. One operation is the whole burst, so the burst size divided by
+ * the score is the throughput.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.maxIdleConnections=4096")
+@State(Scope.Benchmark)
+public class RequestConcurrencyBenchmark {
+
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final String[] ROLES = {"MEMBERS:READ"};
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"200", "1000"})
+    public int concurrentRequests;
+
+    @Param({"jdk", "pooled"})
+    public String httpClient;
+
+    @Param({"20"})
+    public long serviceLatencyMillis;
+
+    private HttpServer stubServices;
+    private ExecutorService stubExecutor;
+    private ExecutorService requestExecutor;
+    private CloseableHttpClient pooledClient;
+    private AuthorizationAspect authorizationAspect;
+    private RateLimitingAspect rateLimitingAspect;
+    private final UserContextTaskDecorator taskDecorator = new UserContextTaskDecorator();
+
+    @Setup
+    public void setUp() throws IOException {
+        stubExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        stubServices = HttpServer.create(new InetSocketAddress("localhost", 0), 4096);
+        stubServices.setExecutor(stubExecutor);
+        stubServices.createContext("/auth/validate", exchange -> {
+            sleep(serviceLatencyMillis);
+            byte[] body = "{\"userId\":\"user-1\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        stubServices.createContext("/api/rate-limit", exchange -> {
+            sleep(serviceLatencyMillis);
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        stubServices.start();
+        String baseUrl = "http://localhost:" + stubServices.getAddress().getPort();
+
+        RestTemplate restTemplate = new RestTemplate();
+        if ("pooled".equals(httpClient)) {
+            HttpClientConfiguration configuration = new HttpClientConfiguration();
+            pooledClient = configuration.httpClient(
+                    configuration.httpClientConnectionManager(2 * concurrentRequests, concurrentRequests,
+                            1000, 5000, 2000),
+                    5000, 5000, 30);
+            restTemplate = new RestTemplate(configuration.clientHttpRequestFactory(pooledClient));
+        }
+        authorizationAspect = new AuthorizationAspect();
+        authorizationAspect.authServiceUrl = baseUrl + "/auth/validate";
+        ReflectionTestUtils.setField(authorizationAspect, "restTemplate", restTemplate);
+        rateLimitingAspect = new RateLimitingAspect(restTemplate, baseUrl + "/api/rate-limit", null,
+                new DependencyGuard("ratelimit", FailurePolicy.OPEN, CircuitBreakerConfig.ofDefaults(),
+                        BulkheadConfig.custom().maxConcurrentCalls(concurrentRequests).build()),
+                new SimpleMeterRegistry());
+
+        requestExecutor = "virtual".equals(threads)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        requestExecutor.shutdown();
+        if (pooledClient != null) {
+            pooledClient.close();
+        }
+        stubServices.stop(0);
+        stubExecutor.shutdown();
+    }
+
+    @Benchmark
+    public int burst() throws Exception {
+        List<Future<String>> responses = new ArrayList<>(concurrentRequests);
+        for (int i = 0; i < concurrentRequests; i++) {
+            responses.add(requestExecutor.submit(this::handleRequest));
+        }
+        int served = 0;
+        for (Future<String> response : responses) {
+            if (response.get() != null) {
+                served++;
+            }
+        }
+        return served;
+    }
+
+    /**
+     * Does what the aspects do for an {@code @Authorize @RateLimit} endpoint, without the token cache, and
+     * checks the user ID is still visible to work handed off to another thread.
+     */
+    private String handleRequest() throws Exception {
+        try {
+            UserContext.setUserId(authorizationAspect.callAuthService("token", ROLES));
+            String[] seen = new String[1];
+            Thread handOff = Thread.ofVirtual().start(taskDecorator.decorate(() -> seen[0] = UserContext.getUserId()));
+            handOff.join();
+            String userId = UserContext.getUserId();
+            rateLimitingAspect.callRateLimitService(rateLimitingAspect.buildRateLimitUrl(userId),
+                    rateLimitingAspect.createHttpEntity(), userId);
+            return seen[0];
+        } finally {
+            UserContext.clear();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.mongodbdemo.kitchensink.configuration;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodbdemo.kitchensink.model.Member;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Member} conversion by the {@link MappingMongoConverter} built by {@link MemberConfiguration}.
+ * The Mongo client is never connected; it only backs the DBRef resolver.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MemberMappingBenchmark {
+
+    private MongoClient mongoClient;
+    private MappingMongoConverter converter;
+    private Member member;
+    private Document document;
+
+    @Setup
+    public void setUp() {
+        mongoClient = MongoClients.create("mongodb://localhost:27017");
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.afterPropertiesSet();
+
+        MemberConfiguration configuration = new MemberConfiguration();
+        ReflectionTestUtils.setField(configuration, "mongoDbFactory",
+                new SimpleMongoClientDatabaseFactory(mongoClient, "benchmark"));
+        ReflectionTestUtils.setField(configuration, "mongoMappingContext", mappingContext);
+        converter = configuration.mappingMongoConverter();
+        converter.afterPropertiesSet();
+
+        member = new Member();
+        member.setId(42L);
+        member.setName("Jane Doe");
+        member.setEmail("jane.doe@example.com");
+        member.setPhoneNumber("1234567890");
+        document = new Document();
+        converter.write(member, document);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mongoClient.close();
+    }
+
+    @Benchmark
+    public Document write() {
+        Document target = new Document();
+        converter.write(member, target);
+        return target;
+    }
+
+    @Benchmark
+    public Member read() {
+        return converter.read(Member.class, document);
+    }
+}
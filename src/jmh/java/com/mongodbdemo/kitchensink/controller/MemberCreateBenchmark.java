@@ -0,0 +1,108 @@
+package com.mongodbdemo.kitchensink.controller;
+
+import com.mongodbdemo.kitchensink.model.DatabaseSequence;
+import com.mongodbdemo.kitchensink.model.Member;
+import com.mongodbdemo.kitchensink.repository.MemberRepository;
+import com.mongodbdemo.kitchensink.service.MemberCache;
+import com.mongodbdemo.kitchensink.service.MemberService;
+import com.mongodbdemo.kitchensink.service.SequenceGeneratorService;
+import jakarta.validation.Validation;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures {@link MemberController#createMember} against a repository where every call costs
+ * {@code roundTripMicros}. {@code insertFirst} is the current path, one insert per member;
+ * {@code readThenInsert} adds the {@code findByEmail} pre-read the create path used to make.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class MemberCreateBenchmark {
+
+    // Keeps the per-member INFO line of MemberService out of the measurement
+    private static final Logger SERVICE_LOGGER = Logger.getLogger(MemberService.class.getName());
+
+    @Param({"200"})
+    public long roundTripMicros;
+
+    private final AtomicLong emails = new AtomicLong();
+    private MemberRepository repository;
+    private MemberController memberController;
+
+    @Setup
+    public void setUp() {
+        SERVICE_LOGGER.setLevel(Level.WARNING);
+        long roundTripNanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+        repository = (MemberRepository) Proxy.newProxyInstance(
+                MemberRepository.class.getClassLoader(), new Class<?>[]{MemberRepository.class},
+                (proxy, method, args) -> {
+                    LockSupport.parkNanos(roundTripNanos);
+                    return switch (method.getName()) {
+                        case "insert" -> args[0];
+                        case "findByEmail" -> Optional.empty();
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    };
+                });
+
+        MemberService memberService = new MemberService();
+        ReflectionTestUtils.setField(memberService, "memberRepository", repository);
+        ReflectionTestUtils.setField(memberService, "memberCache", new MemberCache(64 << 20, 300));
+        ReflectionTestUtils.setField(memberService, "sequenceGeneratorService",
+                new SequenceGeneratorService(sequences(roundTripNanos), 50, 10, Runnable::run));
+
+        memberController = new MemberController();
+        ReflectionTestUtils.setField(memberController, "validator",
+                Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(memberController, "repository", repository);
+        ReflectionTestUtils.setField(memberController, "memberService", memberService);
+    }
+
+    @Benchmark
+    public ResponseEntity<Map<String, String>> insertFirst() {
+        return memberController.createMember(newMember());
+    }
+
+    @Benchmark
+    public ResponseEntity<Map<String, String>> readThenInsert() {
+        Member member = newMember();
+        if (repository.findByEmail(member.getEmail()).isPresent()) {
+            throw new IllegalStateException("Unexpected duplicate");
+        }
+        return memberController.createMember(member);
+    }
+
+    private Member newMember() {
+        Member member = new Member();
+        member.setName("Jane Doe");
+        member.setEmail("jane.doe+" + emails.incrementAndGet() + "@example.com");
+        member.setPhoneNumber("1234567890");
+        return member;
+    }
+
+    private static MongoOperations sequences(long roundTripNanos) {
+        AtomicLong counter = new AtomicLong();
+        return (MongoOperations) Proxy.newProxyInstance(MongoOperations.class.getClassLoader(),
+                new Class<?>[]{MongoOperations.class}, (proxy, method, args) -> {
+                    LockSupport.parkNanos(roundTripNanos);
+                    DatabaseSequence sequence = new DatabaseSequence();
+                    sequence.setSeq(counter.addAndGet(50));
+                    return sequence;
+                });
+    }
+}
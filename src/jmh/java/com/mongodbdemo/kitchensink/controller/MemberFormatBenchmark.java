@@ -0,0 +1,83 @@
+package com.mongodbdemo.kitchensink.controller;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodbdemo.kitchensink.configuration.BinaryFormatConfiguration;
+import com.mongodbdemo.kitchensink.model.Member;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the JSON, CBOR and Smile representations of a single member, as returned by
+ * {@code lookupMemberById}, and of member lists, as returned by {@code listAllMembers}: the time to write and to
+ * read them, with the mappers of the message converters. The payload size of each combination is printed once
+ * per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MemberFormatBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    @Param({"1", "1000", "10000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private JavaType type;
+    private Object value;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws Exception {
+        BinaryFormatConfiguration configuration = new BinaryFormatConfiguration();
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        objectMapper = switch (format) {
+            case "json" -> builder.build();
+            case "cbor" -> configuration.cborHttpMessageConverter(builder).getObjectMapper();
+            case "smile" -> configuration.smileHttpMessageConverter(builder).getObjectMapper();
+            default -> throw new IllegalArgumentException(format);
+        };
+
+        List<Member> members = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Member member = new Member();
+            member.setId((long) i);
+            member.setName("Member " + (char) ('a' + i % 26));
+            member.setEmail("member" + i + "@example.com");
+            member.setPhoneNumber("12345678" + (10 + i % 90));
+            member.setVersion(i % 7);
+            member.setLastModified(Instant.ofEpochSecond(1_700_000_000L + i));
+            members.add(member);
+        }
+        // A single member is written as an object, like lookupMemberById does, not as a list of one
+        if (size == 1) {
+            value = members.get(0);
+            type = objectMapper.constructType(Member.class);
+        } else {
+            value = members;
+            type = objectMapper.getTypeFactory().constructCollectionType(List.class, Member.class);
+        }
+        payload = objectMapper.writeValueAsBytes(value);
+        System.out.println("Payload of " + size + " member(s) as " + format + ": " + payload.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] write() throws Exception {
+        return objectMapper.writeValueAsBytes(value);
+    }
+
+    @Benchmark
+    public Object read() throws Exception {
+        return objectMapper.readValue(payload, type);
+    }
+}
@@ -0,0 +1,48 @@
+package com.mongodbdemo.kitchensink.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodbdemo.kitchensink.model.Member;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Jackson serialization of member lists as returned by the list endpoints, using an
+ * {@link ObjectMapper} configured the way Spring MVC configures its own.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MemberJsonBenchmark {
+
+    @Param({"1", "50", "1000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private List<Member> members;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        members = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Member member = new Member();
+            member.setId((long) i);
+            member.setName("Member " + (char) ('a' + i % 26));
+            member.setEmail("member" + i + "@example.com");
+            member.setPhoneNumber("12345678" + (10 + i % 90));
+            members.add(member);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws Exception {
+        return objectMapper.writeValueAsBytes(members);
+    }
+}
@@ -0,0 +1,76 @@
+package com.mongodbdemo.kitchensink.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mongodbdemo.kitchensink.dto.MemberPage;
+import com.mongodbdemo.kitchensink.helper.MemberFields;
+import com.mongodbdemo.kitchensink.model.Member;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing a page of {@code pageSize} members as JSON: {@code fullMembers} maps the documents to
+ * {@link Member} and writes every field, {@code projectedFields} writes only {@code id} and {@code name} straight
+ * from the projected documents, as {@code GET /members?fields=id,name} does. Run with {@code -prof gc} to compare
+ * the allocation per page; the bytes written are returned from each benchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MemberProjectionBenchmark {
+
+    @Param({"500"})
+    public int pageSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final MemberFields idAndName = MemberFields.parse("id,name");
+    private List<Document> fullDocuments;
+    private List<Document> projectedDocuments;
+
+    @Setup
+    public void setUp() {
+        fullDocuments = new ArrayList<>(pageSize);
+        projectedDocuments = new ArrayList<>(pageSize);
+        Date lastModified = Date.from(Instant.parse("2024-09-01T10:15:30Z"));
+        for (long id = 1; id <= pageSize; id++) {
+            fullDocuments.add(new Document("_id", id)
+                    .append("name", "Jane Doe")
+                    .append("email", "jane.doe+" + id + "@example.com")
+                    .append("phoneNumber", "1234567890")
+                    .append("version", 3L)
+                    .append("lastModified", lastModified));
+            projectedDocuments.add(new Document("_id", id).append("name", "Jane Doe"));
+        }
+    }
+
+    @Benchmark
+    public int fullMembers() throws Exception {
+        List<Member> members = new ArrayList<>(pageSize);
+        for (Document document : fullDocuments) {
+            Member member = new Member();
+            member.setId(document.getLong("_id"));
+            member.setName(document.getString("name"));
+            member.setEmail(document.getString("email"));
+            member.setPhoneNumber(document.getString("phoneNumber"));
+            member.setVersion(document.getLong("version"));
+            member.setLastModified(document.getDate("lastModified").toInstant());
+            members.add(member);
+        }
+        return objectMapper.writeValueAsBytes(new MemberPage<>(members, null)).length;
+    }
+
+    @Benchmark
+    public int projectedFields() throws Exception {
+        return objectMapper.writeValueAsBytes(
+                new MemberPage<>(projectedDocuments.stream().map(idAndName::toJson).toList(), null)).length;
+    }
+}
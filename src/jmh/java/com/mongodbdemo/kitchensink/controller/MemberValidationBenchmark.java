@@ -0,0 +1,48 @@
+package com.mongodbdemo.kitchensink.controller;
+
+import com.mongodbdemo.kitchensink.model.Member;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link MemberController#validateMember} against calling the bean {@link Validator} directly.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MemberValidationBenchmark {
+
+    private MemberController memberController;
+    private Validator validator;
+    private Member member;
+
+    @Setup
+    public void setUp() {
+        validator = Validation.buildDefaultValidatorFactory().getValidator();
+        memberController = new MemberController();
+        ReflectionTestUtils.setField(memberController, "validator", validator);
+
+        member = new Member();
+        member.setName("Jane Doe");
+        member.setEmail("jane.doe@example.com");
+        member.setPhoneNumber("1234567890");
+    }
+
+    @Benchmark
+    public Object validateWithValidator() {
+        return validator.validate(member);
+    }
+
+    @Benchmark
+    public Member validateMember() {
+        memberController.validateMember(member);
+        return member;
+    }
+}
@@ -0,0 +1,69 @@
+package com.mongodbdemo.kitchensink.service;
+
+import com.mongodbdemo.kitchensink.model.Member;
+import com.mongodbdemo.kitchensink.repository.MemberRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures {@link MemberService#findMember} for a hot set of members that fits in the {@link MemberCache},
+ * against reading every lookup from a repository with a {@code roundTripMicros} round trip.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class MemberLookupBenchmark {
+
+    private static final int HOT_MEMBERS = 10_000;
+
+    @Param({"200"})
+    public long roundTripMicros;
+
+    private MemberRepository repository;
+    private MemberService memberService;
+
+    @Setup
+    public void setUp() {
+        long roundTripNanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+        repository = (MemberRepository) Proxy.newProxyInstance(
+                MemberRepository.class.getClassLoader(), new Class<?>[]{MemberRepository.class},
+                (proxy, method, args) -> {
+                    if (!"findById".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    LockSupport.parkNanos(roundTripNanos);
+                    Member member = new Member();
+                    member.setId((Long) args[0]);
+                    member.setName("Jane Doe");
+                    member.setEmail("jane.doe+" + args[0] + "@example.com");
+                    member.setPhoneNumber("1234567890");
+                    return Optional.of(member);
+                });
+        memberService = new MemberService();
+        ReflectionTestUtils.setField(memberService, "memberRepository", repository);
+        ReflectionTestUtils.setField(memberService, "memberCache", new MemberCache(64 << 20, 300));
+        for (long id = 0; id < HOT_MEMBERS; id++) {
+            memberService.findMember(id);
+        }
+    }
+
+    @Benchmark
+    public Optional<Member> cached() {
+        return memberService.findMember(ThreadLocalRandom.current().nextLong(HOT_MEMBERS));
+    }
+
+    @Benchmark
+    public Optional<Member> uncached() {
+        return repository.findById(ThreadLocalRandom.current().nextLong(HOT_MEMBERS));
+    }
+}
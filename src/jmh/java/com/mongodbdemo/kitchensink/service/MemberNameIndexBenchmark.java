@@ -0,0 +1,77 @@
+package com.mongodbdemo.kitchensink.service;
+
+import com.mongodbdemo.kitchensink.dto.MemberNameMatch;
+import com.mongodbdemo.kitchensink.model.Member;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link MemberNameIndex#search} for the top 10 matches of a 1 to 3 letter prefix among
+ * {@code members} random names, and {@link MemberNameIndex#put} of a renamed member concurrently with searches.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Threads(4)
+@State(Scope.Benchmark)
+public class MemberNameIndexBenchmark {
+
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    @Param({"1000000"})
+    public int members;
+
+    private MemberNameIndex index;
+
+    @Setup
+    public void setUp() {
+        index = new MemberNameIndex(null, Runnable::run, 1000, 30000);
+        Random random = new Random(42);
+        for (long id = 0; id < members; id++) {
+            index.put(member(id, randomName(random)));
+        }
+    }
+
+    @Benchmark
+    public List<MemberNameMatch> search() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return index.search(randomName(random).substring(0, 1 + random.nextInt(3)), 10);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public List<MemberNameMatch> searchWhileRenaming() {
+        return search();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void rename() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        index.put(member(random.nextLong(members), randomName(random)));
+    }
+
+    private static Member member(long id, String name) {
+        Member member = new Member();
+        member.setId(id);
+        member.setName(name);
+        return member;
+    }
+
+    private static String randomName(Random random) {
+        char[] name = new char[5 + random.nextInt(10)];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = LETTERS.charAt(random.nextInt(LETTERS.length()));
+        }
+        name[0] = Character.toUpperCase(name[0]);
+        return new String(name);
+    }
+}
@@ -0,0 +1,81 @@
+package com.mongodbdemo.kitchensink.service;
+
+import com.mongodbdemo.kitchensink.model.DatabaseSequence;
+import com.mongodbdemo.kitchensink.model.Member;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures {@link SequenceGeneratorService#generateSequence} against an in-memory stand-in for Mongo that
+ * serializes {@code findAndModify} calls on one counter and adds a configurable round trip time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class SequenceGeneratorServiceBenchmark {
+
+    @Param({"1", "50"})
+    public int blockSize;
+
+    @Param({"0", "200"})
+    public long roundTripMicros;
+
+    private ExecutorService prefetchExecutor;
+    private SequenceGeneratorService sequenceGeneratorService;
+
+    @Setup
+    public void setUp() {
+        prefetchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        sequenceGeneratorService = new SequenceGeneratorService(
+                inMemorySequences(TimeUnit.MICROSECONDS.toNanos(roundTripMicros)), blockSize,
+                blockSize / 5, prefetchExecutor);
+    }
+
+    @TearDown
+    public void tearDown() {
+        prefetchExecutor.shutdown();
+    }
+
+    @Benchmark
+    public long generateSequence() {
+        return sequenceGeneratorService.generateSequence(Member.SEQUENCE_NAME);
+    }
+
+    /**
+     * Creates a {@link MongoOperations} whose {@code findAndModify} applies the {@code $inc} of the update to
+     * one in-memory counter under a lock, like a single hot sequence document.
+     */
+    static MongoOperations inMemorySequences(long roundTripNanos) {
+        AtomicLong counter = new AtomicLong();
+        Object documentLock = new Object();
+        return (MongoOperations) Proxy.newProxyInstance(MongoOperations.class.getClassLoader(),
+                new Class<?>[]{MongoOperations.class}, (proxy, method, args) -> {
+                    if (!"findAndModify".equals(method.getName()) || args.length != 4) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    Document inc = (Document) ((Update) args[1]).getUpdateObject().get("$inc");
+                    long amount = ((Number) inc.get("seq")).longValue();
+                    DatabaseSequence sequence = new DatabaseSequence();
+                    synchronized (documentLock) {
+                        if (roundTripNanos > 0) {
+                            LockSupport.parkNanos(roundTripNanos);
+                        }
+                        sequence.setSeq(counter.addAndGet(amount));
+                    }
+                    return sequence;
+                });
+    }
+}
@@ -10,6 +10,14 @@ public final class MemberConstants {
     public static final String ROLE_MEMBERS_READ = "MEMBERS:READ";
     public static final String ROLE_MEMBERS_WRITE = "MEMBERS:WRITE";
     public static final String ROLE_MEMBERS_DELETE= "MEMBERS:DELETE";
+    public static final String DEFAULT_PAGE_LIMIT = "50";
+    public static final int MAX_PAGE_LIMIT = 500;
+    public static final String DEFAULT_SEARCH_LIMIT = "10";
+    public static final int MAX_SEARCH_LIMIT = 50;
+    public static final String DEFAULT_TEXT_SEARCH_SIZE = "20";
+    public static final int MAX_TEXT_SEARCH_SIZE = 100;
+    public static final int MAX_BULK_DELETE = 10000;
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
 
 
 
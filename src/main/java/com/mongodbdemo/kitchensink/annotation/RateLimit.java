@@ -8,4 +8,13 @@ import java.lang.annotation.Target;
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface RateLimit {
+    /**
+     * Sustained number of requests per second a user may make when rate limits are enforced locally.
+     */
+    double permitsPerSecond() default 10;
+
+    /**
+     * Number of requests a user may make at once when rate limits are enforced locally.
+     */
+    int burst() default 20;
 }
@@ -1,16 +1,24 @@
 package com.mongodbdemo.kitchensink.aspect;
 
 import com.mongodbdemo.kitchensink.annotation.Authorize;
+import com.mongodbdemo.kitchensink.auth.JwtVerifier;
+import com.mongodbdemo.kitchensink.auth.TokenValidationCache;
 import com.mongodbdemo.kitchensink.dto.AuthResponse;
 import com.mongodbdemo.kitchensink.dto.AuthValidationRequestDto;
+import com.mongodbdemo.kitchensink.helper.MetricTags;
 import com.mongodbdemo.kitchensink.helper.UserContext;
+import com.mongodbdemo.kitchensink.resilience.DependencyGuard;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.http.HttpServletRequest;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.*;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
@@ -21,12 +29,23 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Aspect for handling authorization based on the {@link Authorize} annotation.
+ * <p>
+ * With {@code auth.mode=jwt}, signed JWTs are verified in process by the {@link JwtVerifier}, and only the tokens
+ * it leaves undecided are validated by the auth service.
+ * <p>
+ * Every validation is timed as {@code auth.validation}, tagged with {@code cache} ({@code hit} or {@code miss}, or
+ * {@code local} for JWTs verified in process) and the {@code outcome} of the decision.
+ * <p>
+ * Calls to the auth service go through its {@link DependencyGuard}. While the service is unavailable, requests fail
+ * with 503, or go on without a user if {@code auth.failure-policy=open}.
  */
 @Aspect
 @Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class AuthorizationAspect {
 
     private static final String BEARER_PREFIX = "Bearer ";
@@ -34,6 +53,15 @@ public class AuthorizationAspect {
     String authServiceUrl;
     @Autowired
     private RestTemplate restTemplate;
+    @Autowired
+    private TokenValidationCache tokenValidationCache;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    @Qualifier("authServiceGuard")
+    private DependencyGuard authServiceGuard;
+    @Autowired(required = false)
+    private JwtVerifier jwtVerifier;
 
     /**
      * Advice for methods annotated with {@link Authorize}.
@@ -78,12 +106,46 @@ public class AuthorizationAspect {
     }
 
     /**
-     * Validates the token by calling the external auth service.
+     * Validates the token, in process if it is a JWT the {@link JwtVerifier} can verify, otherwise calling the
+     * external auth service only when no decision is cached. If the auth service is unavailable, applies its
+     * failure policy.
      *
      * @param token the access token
      * @param roles the roles to check against
      */
     private void validateToken(String token, String[] roles) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        AtomicBoolean cacheMiss = new AtomicBoolean();
+        String cache = "local";
+        String outcome = MetricTags.SUCCESS;
+        try {
+            String userId = jwtVerifier != null ? jwtVerifier.verify(token, roles) : null;
+            if (userId == null) {
+                cache = "hit";
+                userId = tokenValidationCache.validate(token, roles, () -> {
+                    cacheMiss.set(true);
+                    return authServiceGuard.call(() -> callAuthService(token, roles));
+                });
+            }
+            UserContext.setUserId(userId);
+        } catch (RuntimeException exception) {
+            outcome = MetricTags.outcome(exception);
+            authServiceGuard.recover(exception);
+        } finally {
+            sample.stop(meterRegistry.timer("auth.validation",
+                    "cache", cacheMiss.get() ? "miss" : cache,
+                    MetricTags.OUTCOME, outcome));
+        }
+    }
+
+    /**
+     * Validates the token by calling the external auth service.
+     *
+     * @param token the access token
+     * @param roles the roles to check against
+     * @return the ID of the user the token belongs to
+     */
+    String callAuthService(String token, String[] roles) {
         AuthValidationRequestDto authValidationRequest = new AuthValidationRequestDto(token,
                 List.of(roles));
         HttpEntity<AuthValidationRequestDto> entity = new HttpEntity<>(authValidationRequest,
@@ -96,7 +158,7 @@ public class AuthorizationAspect {
                 entity,
                 AuthResponse.class
         );
-        UserContext.setUserId(authResponse.getBody().getUserId());
+        return authResponse.getBody().getUserId();
     }
 
     /**
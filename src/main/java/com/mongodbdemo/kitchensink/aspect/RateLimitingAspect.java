@@ -1,31 +1,49 @@
 package com.mongodbdemo.kitchensink.aspect;
 
+import com.mongodbdemo.kitchensink.annotation.RateLimit;
+import com.mongodbdemo.kitchensink.helper.MetricTags;
 import com.mongodbdemo.kitchensink.helper.UserContext;
+import com.mongodbdemo.kitchensink.ratelimit.RateLimiter;
+import com.mongodbdemo.kitchensink.resilience.DependencyGuard;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Nullable;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.*;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
-import java.util.logging.Logger;
+import java.time.Duration;
 
 /**
  * Aspect for handling rate limiting via a dedicated rate limit service.
  * This aspect intercepts method calls annotated with {@code @RateLimit} to enforce rate limiting
- * by calling an external rate limit service.
+ * by calling an external rate limit service, or with a {@link RateLimiter} when
+ * {@code ratelimit.mode} is {@code local} or {@code batched}.
+ * <p>
+ * Every check is timed as {@code ratelimit.check}, tagged with the {@code mode} and its {@code outcome}.
+ * <p>
+ * Calls to the rate limit service go through its {@link DependencyGuard}. While the service is unavailable,
+ * requests go on without a rate limit decision, or fail with 503 if {@code ratelimit.failure-policy=closed}.
  */
 @Aspect
 @Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class RateLimitingAspect {
 
     @Value("${ratelimit.service.url}")
     private final String rateLimitServiceUrl;
 
     private final RestTemplate restTemplate;
-    private final Logger log = Logger.getLogger(getClass().getName());
+    private final RateLimiter rateLimiter;
+    private final DependencyGuard rateLimitServiceGuard;
+    private final MeterRegistry meterRegistry;
 
 
     /**
@@ -33,11 +51,20 @@ public class RateLimitingAspect {
      *
      * @param restTemplate the {@code RestTemplate} used to make HTTP requests
      * @param rateLimitServiceUrl the URL of the rate limit service
+     * @param rateLimiter the in-process limiter, or {@code null} to call the rate limit service
+     * @param rateLimitServiceGuard the circuit breaker and bulkhead around the rate limit service calls
+     * @param meterRegistry the registry the check timers are recorded in
      */
     @Autowired
-    public RateLimitingAspect(RestTemplate restTemplate, @Value("${ratelimit.service.url}") String rateLimitServiceUrl) {
+    public RateLimitingAspect(RestTemplate restTemplate, @Value("${ratelimit.service.url}") String rateLimitServiceUrl,
+                              @Nullable RateLimiter rateLimiter,
+                              @Qualifier("rateLimitServiceGuard") DependencyGuard rateLimitServiceGuard,
+                              MeterRegistry meterRegistry) {
         this.restTemplate = restTemplate;
         this.rateLimitServiceUrl = rateLimitServiceUrl;
+        this.rateLimiter = rateLimiter;
+        this.rateLimitServiceGuard = rateLimitServiceGuard;
+        this.meterRegistry = meterRegistry;
     }
 
     /**
@@ -45,18 +72,55 @@ public class RateLimitingAspect {
      * Retrieves the user ID from {@code UserContext}, constructs the URL for the rate limit service,
      * and calls the rate limit service to enforce rate limiting.
      *
+     * @param rateLimit the annotation of the intercepted method
      */
-    @Before("@annotation(com.mongodbdemo.kitchensink.annotation.RateLimit)")
-    public void rateLimit() {
+    @Before("@annotation(rateLimit)")
+    public void rateLimit(RateLimit rateLimit) {
         String userId = UserContext.getUserId();
         if (userId != null) {
-            String url = buildRateLimitUrl(userId);
-            HttpEntity<Void> entity = createHttpEntity();
-            callRateLimitService(url, entity, userId);
+            if (rateLimiter != null) {
+                enforceLocally(userId, rateLimit);
+            } else {
+                String url = buildRateLimitUrl(userId);
+                HttpEntity<Void> entity = createHttpEntity();
+                callRateLimitService(url, entity, userId);
+            }
         }
         UserContext.clear();
     }
 
+    /**
+     * Takes a request from the user's limit in process, without calling the rate limit service.
+     *
+     * @param userId    the ID of the user
+     * @param rateLimit the limit declared on the intercepted method
+     * @throws HttpClientErrorException with status 429 and a {@code retry-after} header if the limit is reached
+     */
+    void enforceLocally(String userId, RateLimit rateLimit) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long waitNanos = rateLimiter.tryAcquire(userId, rateLimit);
+        if (waitNanos > 0) {
+            sample.stop(checkTimer(rateLimiter.mode(), "429"));
+            throw tooManyRequests(waitNanos);
+        }
+        sample.stop(checkTimer(rateLimiter.mode(), MetricTags.SUCCESS));
+    }
+
+    /**
+     * Creates the 429 exception the rate limit service would have answered with.
+     *
+     * @param waitNanos the nanoseconds until the next request is allowed
+     * @return the exception carrying a {@code retry-after} header in whole seconds
+     */
+    static HttpClientErrorException tooManyRequests(long waitNanos) {
+        long retryAfterSeconds = Math.max(1, (waitNanos + Duration.ofSeconds(1).toNanos() - 1)
+                / Duration.ofSeconds(1).toNanos());
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("retry-after", String.valueOf(retryAfterSeconds));
+        return HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS,
+                HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase(), headers, null, null);
+    }
+
     /**
      * Constructs the URL for the rate limit service using the provided user ID.
      *
@@ -78,23 +142,28 @@ public class RateLimitingAspect {
     }
 
     /**
-     * Calls the rate limit service with the given URL and {@code HttpEntity}.
+     * Calls the rate limit service with the given URL and {@code HttpEntity}. If the service is unavailable,
+     * applies its failure policy.
      *
      * @param url    the URL of the rate limit service
      * @param entity the {@code HttpEntity} to be sent with the request
      * @param userId the userId
      */
     void callRateLimitService(String url, HttpEntity<Void> entity, String userId) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = MetricTags.SUCCESS;
         try {
-            restTemplate.exchange(url, HttpMethod.PUT, entity, Void.class);
-        } catch (HttpClientErrorException exception) {
-            if (exception.getStatusCode().equals(HttpStatus.INTERNAL_SERVER_ERROR)) {
-                log.severe("Cannot check rate limit for the user" + userId +
-                        " thereby allowing current request");
-            } else {
-                throw exception;
-            }
+            rateLimitServiceGuard.call(() -> restTemplate.exchange(url, HttpMethod.PUT, entity, Void.class));
+        } catch (RuntimeException exception) {
+            outcome = MetricTags.outcome(exception);
+            rateLimitServiceGuard.recover(exception);
+        } finally {
+            sample.stop(checkTimer("remote", outcome));
         }
 
     }
+
+    private Timer checkTimer(String mode, String outcome) {
+        return meterRegistry.timer("ratelimit.check", "mode", mode, MetricTags.OUTCOME, outcome);
+    }
 }
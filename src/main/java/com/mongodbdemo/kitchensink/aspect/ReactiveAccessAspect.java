@@ -0,0 +1,273 @@
+package com.mongodbdemo.kitchensink.aspect;
+
+import com.mongodbdemo.kitchensink.annotation.Authorize;
+import com.mongodbdemo.kitchensink.annotation.RateLimit;
+import com.mongodbdemo.kitchensink.auth.JwtVerifier;
+import com.mongodbdemo.kitchensink.auth.TokenValidationCache;
+import com.mongodbdemo.kitchensink.dto.AuthResponse;
+import com.mongodbdemo.kitchensink.dto.AuthValidationRequestDto;
+import com.mongodbdemo.kitchensink.helper.MetricTags;
+import com.mongodbdemo.kitchensink.ratelimit.RateLimiter;
+import com.mongodbdemo.kitchensink.resilience.DependencyGuard;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Nullable;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.filter.reactive.ServerWebExchangeContextFilter;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Aspect enforcing {@link Authorize} and {@link RateLimit} on the {@code Mono} and {@code Flux} handlers of the
+ * reactive controllers, active when the application runs on WebFlux.
+ * <p>
+ * The handler is only subscribed to once the token was validated and, if the handler is annotated with
+ * {@code @RateLimit}, a request was allowed for the user. Both checks call the auth and rate limit services with
+ * a non-blocking {@link WebClient}, share the {@link TokenValidationCache} and the {@link RateLimiter} with the
+ * servlet aspects, fail with the same exceptions and record the same {@code auth.validation} and
+ * {@code ratelimit.check} timers. The request is read from the Reactor context, where the
+ * {@link ServerWebExchangeContextFilter} puts it. The calls go through the same {@link DependencyGuard}s and
+ * failure policies as the servlet aspects; a request let through without a user is not rate limited. With
+ * {@code auth.mode=jwt}, JWTs are verified in process by the same {@link JwtVerifier}.
+ */
+@Aspect
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveAccessAspect {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final WebClient webClient;
+    private final String authServiceUrl;
+    private final String rateLimitServiceUrl;
+    private final RateLimiter rateLimiter;
+    private final TokenValidationCache tokenValidationCache;
+    private final JwtVerifier jwtVerifier;
+    private final DependencyGuard authServiceGuard;
+    private final DependencyGuard rateLimitServiceGuard;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Constructs a {@code ReactiveAccessAspect}.
+     *
+     * @param webClient             the client used to call the auth and rate limit services
+     * @param authServiceUrl        the URL of the auth service
+     * @param rateLimitServiceUrl   the URL of the rate limit service
+     * @param rateLimiter           the in-process limiter, or {@code null} to call the rate limit service
+     * @param tokenValidationCache  the cache of auth service decisions
+     * @param jwtVerifier           the in-process JWT verifier, or {@code null} to validate every token with the
+     *                              auth service
+     * @param authServiceGuard      the circuit breaker and bulkhead around the auth service calls
+     * @param rateLimitServiceGuard the circuit breaker and bulkhead around the rate limit service calls
+     * @param meterRegistry         the registry the check timers are recorded in
+     */
+    @Autowired
+    public ReactiveAccessAspect(WebClient webClient,
+                                @Value("${auth.service.url}") String authServiceUrl,
+                                @Value("${ratelimit.service.url}") String rateLimitServiceUrl,
+                                @Nullable RateLimiter rateLimiter,
+                                TokenValidationCache tokenValidationCache,
+                                @Nullable JwtVerifier jwtVerifier,
+                                @Qualifier("authServiceGuard") DependencyGuard authServiceGuard,
+                                @Qualifier("rateLimitServiceGuard") DependencyGuard rateLimitServiceGuard,
+                                MeterRegistry meterRegistry) {
+        this.webClient = webClient;
+        this.authServiceUrl = authServiceUrl;
+        this.rateLimitServiceUrl = rateLimitServiceUrl;
+        this.rateLimiter = rateLimiter;
+        this.tokenValidationCache = tokenValidationCache;
+        this.jwtVerifier = jwtVerifier;
+        this.authServiceGuard = authServiceGuard;
+        this.rateLimitServiceGuard = rateLimitServiceGuard;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Advice around reactive handlers annotated with {@link Authorize}.
+     *
+     * @param joinPoint the join point representing the handler call
+     * @param authorize the annotation of the intercepted handler
+     * @return the handler result, subscribed to once the request is authorized and allowed
+     */
+    @Around("@annotation(authorize)")
+    public Object authorize(ProceedingJoinPoint joinPoint, Authorize authorize) {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        RateLimit rateLimit = signature.getMethod().getAnnotation(RateLimit.class);
+        Mono<Void> access = Mono.deferContextual(context -> extractToken(context)
+                        .map(token -> validateToken(token, authorize.roles()))
+                        .orElseGet(() -> Mono.error(new HttpClientErrorException(HttpStatus.UNAUTHORIZED))))
+                .flatMap(userId -> rateLimit != null ? rateLimit(userId, rateLimit) : Mono.empty());
+
+        if (Flux.class.isAssignableFrom(signature.getReturnType())) {
+            return access.thenMany(Flux.defer(() -> (Flux<?>) proceed(joinPoint)));
+        }
+        return access.then(Mono.defer(() -> (Mono<?>) proceed(joinPoint)));
+    }
+
+    /**
+     * Extracts the token from the Authorization header of the request in the Reactor context.
+     *
+     * @param context the subscriber context of the handler result
+     * @return an Optional containing the token if present
+     */
+    Optional<String> extractToken(ContextView context) {
+        return ServerWebExchangeContextFilter.getExchange(context)
+                .map(ServerWebExchange::getRequest)
+                .map(request -> request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION))
+                .filter(header -> header.startsWith(BEARER_PREFIX))
+                .map(header -> header.substring(BEARER_PREFIX.length()));
+    }
+
+    /**
+     * Validates the token, in process if it is a JWT the {@link JwtVerifier} can verify, otherwise calling the
+     * auth service only when no decision is cached. If the auth service is unavailable, applies its failure policy.
+     *
+     * @param token the access token
+     * @param roles the roles to check against
+     * @return the ID of the user the token belongs to, or empty if the auth service is unavailable and the
+     *         request goes on without a user
+     */
+    Mono<String> validateToken(String token, String[] roles) {
+        AtomicBoolean cacheMiss = new AtomicBoolean();
+        Mono<String> validation = Mono.defer(() -> tokenValidationCache.validate(token, roles,
+                Mono.defer(() -> {
+                    cacheMiss.set(true);
+                    return authServiceGuard.call(callAuthService(token, roles));
+                })));
+        Mono<String> remote = authServiceGuard.recover(timed(validation,
+                outcome -> validationTimer(cacheMiss.get() ? "miss" : "hit", outcome)));
+        return jwtVerifier != null ? verifyLocally(token, roles).switchIfEmpty(remote) : remote;
+    }
+
+    /**
+     * Verifies the token in process with the {@link JwtVerifier}.
+     *
+     * @param token the access token
+     * @param roles the roles to check against
+     * @return the ID of the user the token belongs to, or empty if the token is left to the auth service
+     */
+    private Mono<String> verifyLocally(String token, String[] roles) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                String userId = jwtVerifier.verify(token, roles);
+                if (userId != null) {
+                    sample.stop(validationTimer("local", MetricTags.SUCCESS));
+                }
+                return Mono.justOrEmpty(userId);
+            } catch (HttpClientErrorException exception) {
+                sample.stop(validationTimer("local", MetricTags.outcome(exception)));
+                return Mono.error(exception);
+            }
+        });
+    }
+
+    /**
+     * Validates the token by calling the auth service.
+     *
+     * @param token the access token
+     * @param roles the roles to check against
+     * @return the ID of the user the token belongs to
+     */
+    Mono<String> callAuthService(String token, String[] roles) {
+        return webClient.post()
+                .uri(authServiceUrl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new AuthValidationRequestDto(token, List.of(roles)))
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, ReactiveAccessAspect::toRestClientException)
+                .bodyToMono(AuthResponse.class)
+                .map(AuthResponse::getUserId);
+    }
+
+    /**
+     * Takes a request from the user's limit, in process if {@code ratelimit.mode} is {@code local} or
+     * {@code batched} and otherwise from the rate limit service.
+     *
+     * @param userId    the ID of the user
+     * @param rateLimit the limit declared on the intercepted handler
+     * @return completes if the request is allowed, or fails with a 429 carrying a {@code retry-after} header
+     */
+    Mono<Void> rateLimit(String userId, RateLimit rateLimit) {
+        if (rateLimiter != null) {
+            return timed(Mono.defer(() -> {
+                long waitNanos = rateLimiter.tryAcquire(userId, rateLimit);
+                return waitNanos > 0 ? Mono.error(RateLimitingAspect.tooManyRequests(waitNanos)) : Mono.empty();
+            }), outcome -> checkTimer(rateLimiter.mode(), outcome));
+        }
+        return rateLimitServiceGuard.recover(timed(rateLimitServiceGuard.call(webClient.put()
+                .uri(rateLimitServiceUrl + "/" + userId)
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, ReactiveAccessAspect::toRestClientException)
+                .toBodilessEntity()
+                .then()), outcome -> checkTimer("remote", outcome)));
+    }
+
+    /**
+     * Converts an error response of the auth or rate limit service into the exception {@code RestTemplate} throws
+     * for it, so the servlet and reactive stacks answer with the same error responses.
+     *
+     * @param response the error response
+     * @return the {@link HttpClientErrorException} or {@link HttpServerErrorException} for the response
+     */
+    static Mono<RestClientResponseException> toRestClientException(ClientResponse response) {
+        HttpStatusCode status = response.statusCode();
+        HttpHeaders headers = response.headers().asHttpHeaders();
+        String statusText = Optional.ofNullable(HttpStatus.resolve(status.value()))
+                .map(HttpStatus::getReasonPhrase)
+                .orElse("");
+        return response.releaseBody().then(Mono.fromSupplier(() -> status.is4xxClientError()
+                ? HttpClientErrorException.create(status, statusText, headers, null, null)
+                : HttpServerErrorException.create(status, statusText, headers, null, null)));
+    }
+
+    private <T> Mono<T> timed(Mono<T> check, Function<String, Timer> timer) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return check
+                    .doOnSuccess(result -> sample.stop(timer.apply(MetricTags.SUCCESS)))
+                    .doOnError(failure -> sample.stop(timer.apply(MetricTags.outcome(failure))));
+        });
+    }
+
+    private Timer validationTimer(String cache, String outcome) {
+        return meterRegistry.timer("auth.validation", "cache", cache, MetricTags.OUTCOME, outcome);
+    }
+
+    private Timer checkTimer(String mode, String outcome) {
+        return meterRegistry.timer("ratelimit.check", "mode", mode, MetricTags.OUTCOME, outcome);
+    }
+
+    private static Object proceed(ProceedingJoinPoint joinPoint) {
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable throwable) {
+            throw Exceptions.propagate(throwable);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.mongodbdemo.kitchensink.auth;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
+import com.nimbusds.jose.proc.BadJOSEException;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.DefaultResourceRetriever;
+import com.nimbusds.jose.util.ResourceRetriever;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.DefaultJWTClaimsVerifier;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.logging.Logger;
+
+/**
+ * Verifies signed JWTs in process, without calling the auth service, active when {@code auth.mode=jwt}.
+ * <p>
+ * The signature is checked against the public keys of the key set at {@code auth.jwt.key-set-uri}, a JWK set read
+ * from a {@code file:}, {@code classpath:} or {@code http:} location once the application is ready and re-read
+ * every {@code auth.jwt.refresh-interval-ms}, in the background. An {@code http:} key set is fetched within the
+ * {@code http.client.connect-timeout-ms} and {@code http.client.read-timeout-ms} timeouts. Only RSA and EC
+ * signatures are verified here. The token must not be expired or
+ * used before its {@code nbf}, allowing {@code auth.jwt.clock-skew-seconds}, and must carry the user ID in the
+ * {@code auth.jwt.user-id-claim} claim and all required roles in the {@code auth.jwt.roles-claim} list claim.
+ * <p>
+ * Tokens that cannot be verified here are left to the auth service: opaque tokens, JWTs signed with another
+ * algorithm or with a key that is not in the key set yet, and every token while no key set could be loaded.
+ */
+@Component
+@ConditionalOnProperty(name = "auth.mode", havingValue = "jwt")
+public class JwtVerifier {
+
+    private static final Set<JWSAlgorithm> ALGORITHMS = algorithms();
+
+    private final Logger log = Logger.getLogger(getClass().getName());
+
+    private final Resource keySetResource;
+    private final String userIdClaim;
+    private final String rolesClaim;
+    private final Duration clockSkew;
+    private final ResourceRetriever retriever;
+    private final Executor executor;
+    private volatile Keys keys;
+
+    /**
+     * Constructs a {@code JwtVerifier}. The key set is loaded once the application is ready.
+     *
+     * @param keySetLocation       the location of the JWK set
+     * @param userIdClaim          the claim holding the user ID
+     * @param rolesClaim           the claim holding the granted roles
+     * @param clockSkewSeconds     the tolerated difference between the clocks of the issuer and this application
+     * @param connectTimeoutMillis how long to wait for a connection to an {@code http:} key set
+     * @param readTimeoutMillis    how long to wait for data while fetching an {@code http:} key set
+     * @param executor             the executor on which the key set is loaded
+     */
+    @Autowired
+    public JwtVerifier(@Value("${auth.jwt.key-set-uri}") String keySetLocation,
+                       @Value("${auth.jwt.user-id-claim:userId}") String userIdClaim,
+                       @Value("${auth.jwt.roles-claim:roles}") String rolesClaim,
+                       @Value("${auth.jwt.clock-skew-seconds:60}") long clockSkewSeconds,
+                       @Value("${http.client.connect-timeout-ms:1000}") int connectTimeoutMillis,
+                       @Value("${http.client.read-timeout-ms:2000}") int readTimeoutMillis,
+                       @Qualifier("applicationTaskExecutor") Executor executor) {
+        this(new DefaultResourceLoader().getResource(keySetLocation), userIdClaim, rolesClaim,
+                Duration.ofSeconds(clockSkewSeconds), new DefaultResourceRetriever(connectTimeoutMillis,
+                        readTimeoutMillis, JWKSourceBuilder.DEFAULT_HTTP_SIZE_LIMIT), executor);
+    }
+
+    JwtVerifier(Resource keySetResource, String userIdClaim, String rolesClaim, Duration clockSkew,
+                ResourceRetriever retriever, Executor executor) {
+        this.keySetResource = keySetResource;
+        this.userIdClaim = userIdClaim;
+        this.rolesClaim = rolesClaim;
+        this.clockSkew = clockSkew;
+        this.retriever = retriever;
+        this.executor = executor;
+    }
+
+    /**
+     * Loads the key set in the background.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        executor.execute(this::load);
+    }
+
+    /**
+     * Re-reads the key set in the background.
+     */
+    @Scheduled(fixedDelayString = "${auth.jwt.refresh-interval-ms:300000}",
+            initialDelayString = "${auth.jwt.refresh-interval-ms:300000}")
+    public void refresh() {
+        executor.execute(this::load);
+    }
+
+    /**
+     * Reads the key set. If it cannot be read, the previous one stays in use.
+     */
+    void load() {
+        try {
+            JWKSet keySet = JWKSet.parse(read()).toPublicJWKSet();
+            keys = new Keys(keySet, processor(keySet));
+        } catch (IOException | ParseException exception) {
+            log.warning("Cannot load the JWT key set from " + keySetResource.getDescription() + ": "
+                    + exception.getMessage());
+        }
+    }
+
+    /**
+     * Verifies the token and checks that it grants the roles.
+     *
+     * @param token the access token
+     * @param roles the roles the token must grant
+     * @return the user ID the token belongs to, or {@code null} if the token cannot be verified here and is left
+     *         to the auth service
+     * @throws HttpClientErrorException with 401 if the token is invalid or expired, or with 403 if it lacks a role
+     */
+    public String verify(String token, String[] roles) {
+        Keys current = keys;
+        if (current == null) {
+            return null;
+        }
+        SignedJWT jwt;
+        try {
+            jwt = SignedJWT.parse(token);
+        } catch (ParseException exception) {
+            return null;
+        }
+        if (!ALGORITHMS.contains(jwt.getHeader().getAlgorithm())) {
+            // signed with a shared secret, which the key set does not hold
+            return null;
+        }
+        if (new JWKSelector(JWKMatcher.forJWSHeader(jwt.getHeader())).select(current.keySet()).isEmpty()) {
+            // signed with a key this instance does not know yet
+            return null;
+        }
+
+        JWTClaimsSet claims;
+        String userId;
+        List<String> granted;
+        try {
+            claims = current.processor().process(jwt, null);
+            userId = claims.getStringClaim(userIdClaim);
+            granted = claims.getStringListClaim(rolesClaim);
+        } catch (BadJOSEException | JOSEException | ParseException exception) {
+            throw new HttpClientErrorException(HttpStatus.UNAUTHORIZED);
+        }
+        List<String> required = List.of(roles);
+        if (!required.isEmpty() && (granted == null || !granted.containsAll(required))) {
+            throw new HttpClientErrorException(HttpStatus.FORBIDDEN);
+        }
+        return userId;
+    }
+
+    private String read() throws IOException {
+        if (keySetResource instanceof UrlResource && keySetResource.getURL().getProtocol().startsWith("http")) {
+            return retriever.retrieveResource(keySetResource.getURL()).getContent();
+        }
+        try (InputStream in = keySetResource.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private DefaultJWTProcessor<SecurityContext> processor(JWKSet keySet) {
+        DefaultJWTClaimsVerifier<SecurityContext> claimsVerifier =
+                new DefaultJWTClaimsVerifier<>(null, Set.of("exp", userIdClaim));
+        claimsVerifier.setMaxClockSkew((int) clockSkew.toSeconds());
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(ALGORITHMS, new ImmutableJWKSet<>(keySet)));
+        processor.setJWTClaimsSetVerifier(claimsVerifier);
+        return processor;
+    }
+
+    private static Set<JWSAlgorithm> algorithms() {
+        Set<JWSAlgorithm> algorithms = new HashSet<>(JWSAlgorithm.Family.RSA);
+        algorithms.addAll(JWSAlgorithm.Family.EC);
+        return Set.copyOf(algorithms);
+    }
+
+    /**
+     * A loaded key set and the processor verifying tokens against it.
+     */
+    private record Keys(JWKSet keySet, DefaultJWTProcessor<SecurityContext> processor) {
+    }
+}
@@ -0,0 +1,315 @@
+package com.mongodbdemo.kitchensink.auth;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of auth service decisions keyed by the hash of the access token and the required roles.
+ * <p>
+ * Successful validations are kept for {@code auth.cache.ttl-seconds}. Rejections (401 and 403) are kept for
+ * the shorter {@code auth.cache.negative-ttl-seconds}, so repeated bad tokens do not reach the auth service.
+ * Hit, miss and eviction counts are published under the cache name {@code auth.tokens}.
+ * <p>
+ * Misses are single-flight: while a validation for a key is in flight, concurrent callers with the same key wait
+ * for it, up to {@code auth.single-flight.wait-timeout-ms}, and share its user ID, its rejection or its failure
+ * instead of calling the auth service again. The table of validations in flight holds at most
+ * {@code auth.single-flight.maximum-in-flight} keys; beyond that callers validate on their own. Coalesced calls
+ * are counted as {@code auth.validation.coalesced}.
+ */
+@Component
+public class TokenValidationCache implements MeterBinder {
+
+    private final Cache<Key, CachedValidation> cache;
+    private final ConcurrentHashMap<Key, CompletableFuture<CachedValidation>> inFlight = new ConcurrentHashMap<>();
+    private final int maximumInFlight;
+    private final Duration waitTimeout;
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Constructs a {@code TokenValidationCache}.
+     *
+     * @param maximumSize        the maximum number of cached validations
+     * @param ttlSeconds         how long a successful validation is cached
+     * @param negativeTtlSeconds how long a rejected token is cached
+     * @param maximumInFlight    the maximum number of keys whose validation is shared while in flight
+     * @param waitTimeoutMillis  how long a caller waits for a validation started by another caller
+     */
+    @Autowired
+    public TokenValidationCache(@Value("${auth.cache.maximum-size:10000}") long maximumSize,
+                                @Value("${auth.cache.ttl-seconds:60}") long ttlSeconds,
+                                @Value("${auth.cache.negative-ttl-seconds:5}") long negativeTtlSeconds,
+                                @Value("${auth.single-flight.maximum-in-flight:10000}") int maximumInFlight,
+                                @Value("${auth.single-flight.wait-timeout-ms:3000}") long waitTimeoutMillis) {
+        this(maximumSize, Duration.ofSeconds(ttlSeconds), Duration.ofSeconds(negativeTtlSeconds), maximumInFlight,
+                Duration.ofMillis(waitTimeoutMillis), Ticker.systemTicker());
+    }
+
+    TokenValidationCache(long maximumSize, Duration ttl, Duration negativeTtl, int maximumInFlight,
+                         Duration waitTimeout, Ticker ticker) {
+        this.maximumInFlight = maximumInFlight;
+        this.waitTimeout = waitTimeout;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new ValidationExpiry(ttl.toNanos(), negativeTtl.toNanos()))
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the user ID for the token, calling the validator only when no decision is cached and no other
+     * caller is validating the same token for the same roles.
+     *
+     * @param token     the access token
+     * @param roles     the roles the token must grant
+     * @param validator performs the remote validation and returns the user ID
+     * @return the user ID the token belongs to
+     * @throws HttpClientErrorException if the token is, or was recently, rejected
+     * @throws ResponseStatusException  with 503 if the validation of another caller did not finish in time
+     */
+    public String validate(String token, String[] roles, Supplier<String> validator) {
+        Key key = new Key(hash(token), List.of(roles));
+        CachedValidation validation = cache.getIfPresent(key);
+        if (validation == null) {
+            CompletableFuture<CachedValidation> flight = new CompletableFuture<>();
+            CompletableFuture<CachedValidation> leader = join(key, flight);
+            validation = leader != null ? await(leader) : loadShared(key, flight, validator);
+        }
+        return validation.userIdOrThrow();
+    }
+
+    /**
+     * Non-blocking variant of {@link #validate(String, String[], Supplier)}: emits the user ID for the token,
+     * subscribing to the validator only when no decision is cached and no other caller is validating the same
+     * token for the same roles.
+     * <p>
+     * A validation shared with other callers runs to its end even if the caller that started it cancels.
+     *
+     * @param token     the access token
+     * @param roles     the roles the token must grant
+     * @param validator performs the remote validation and emits the user ID
+     * @return the user ID the token belongs to, or an {@link HttpClientErrorException} if the token is, or was
+     *         recently, rejected, or a {@link ResponseStatusException} with 503 if the validation of another
+     *         caller did not finish in time
+     */
+    public Mono<String> validate(String token, String[] roles, Mono<String> validator) {
+        Key key = new Key(hash(token), List.of(roles));
+        return Mono.justOrEmpty(cache.getIfPresent(key))
+                .switchIfEmpty(Mono.deferContextual(context -> {
+                    CompletableFuture<CachedValidation> flight = new CompletableFuture<>();
+                    CompletableFuture<CachedValidation> leader = join(key, flight);
+                    if (leader != null) {
+                        return Mono.fromFuture(leader, true)
+                                .timeout(waitTimeout, Mono.error(TokenValidationCache::waitTimedOut));
+                    }
+                    validator
+                            .map(userId -> new CachedValidation(userId, null))
+                            .onErrorResume(HttpClientErrorException.class, exception -> isRejection(exception.getStatusCode())
+                                    ? Mono.just(new CachedValidation(null, exception.getStatusCode()))
+                                    : Mono.error(exception))
+                            .doOnNext(validation -> cache.put(key, validation))
+                            .contextWrite(context)
+                            .subscribe(flight::complete, flight::completeExceptionally, () -> flight.complete(null));
+                    return Mono.fromFuture(flight, true);
+                }))
+                .map(CachedValidation::userIdOrThrow);
+    }
+
+    /**
+     * Returns the number of callers that shared a validation started by another caller.
+     *
+     * @return the number of coalesced validations
+     */
+    public long coalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Returns the hit, miss and eviction counters of the cache.
+     *
+     * @return the cache statistics
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Registers the cache statistics with the given registry.
+     *
+     * @param registry the registry to bind to
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "auth.tokens");
+        FunctionCounter.builder("auth.validation.coalesced", coalesced, LongAdder::sum)
+                .description("Validations answered by a concurrent call to the auth service for the same token")
+                .register(registry);
+        Gauge.builder("auth.validation.in-flight", inFlight, Map::size)
+                .description("Validations waiting for the auth service")
+                .register(registry);
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+
+    Cache<Key, CachedValidation> getCache() {
+        return cache;
+    }
+
+    /**
+     * Registers the flight of the caller for the key, unless another caller's validation is in flight.
+     *
+     * @param key    the key to validate
+     * @param flight the future the caller completes with its validation
+     * @return the validation in flight to wait for, the caller's flight already completed with the decision
+     *         cached meanwhile, or {@code null} if the caller has to validate, either as the registered flight or
+     *         on its own because the table is full
+     */
+    private CompletableFuture<CachedValidation> join(Key key, CompletableFuture<CachedValidation> flight) {
+        if (inFlight.size() >= maximumInFlight) {
+            CompletableFuture<CachedValidation> leader = inFlight.get(key);
+            if (leader != null) {
+                coalesced.increment();
+            }
+            return leader;
+        }
+        CompletableFuture<CachedValidation> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            coalesced.increment();
+        } else {
+            // the decision is cached before the flight completes, so later callers find one or the other
+            flight.whenComplete((validation, failure) -> inFlight.remove(key, flight));
+            // unless the previous flight cached its decision and completed since the caller missed the cache
+            CachedValidation validation = cache.policy().getIfPresentQuietly(key);
+            if (validation != null) {
+                flight.complete(validation);
+                return flight;
+            }
+        }
+        return leader;
+    }
+
+    private CachedValidation loadShared(Key key, CompletableFuture<CachedValidation> flight,
+                                        Supplier<String> validator) {
+        try {
+            CachedValidation validation = load(validator);
+            cache.put(key, validation);
+            flight.complete(validation);
+            return validation;
+        } catch (RuntimeException exception) {
+            flight.completeExceptionally(exception);
+            throw exception;
+        } finally {
+            // releases the waiters and the table entry should the validator fail with an error
+            flight.cancel(false);
+        }
+    }
+
+    private CachedValidation await(CompletableFuture<CachedValidation> leader) {
+        try {
+            return leader.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException exception) {
+            throw waitTimedOut();
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(exception.getCause());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the token validation", exception);
+        }
+    }
+
+    private static ResponseStatusException waitTimedOut() {
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Token validation timed out");
+    }
+
+    private CachedValidation load(Supplier<String> validator) {
+        try {
+            return new CachedValidation(validator.get(), null);
+        } catch (HttpClientErrorException exception) {
+            if (isRejection(exception.getStatusCode())) {
+                return new CachedValidation(null, exception.getStatusCode());
+            }
+            throw exception;
+        }
+    }
+
+    private static boolean isRejection(HttpStatusCode statusCode) {
+        return statusCode.isSameCodeAs(HttpStatus.UNAUTHORIZED) || statusCode.isSameCodeAs(HttpStatus.FORBIDDEN);
+    }
+
+    static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    record Key(String tokenHash, List<String> roles) {
+    }
+
+    /**
+     * Either the user ID of a valid token or the status the auth service rejected it with.
+     */
+    record CachedValidation(String userId, HttpStatusCode rejection) {
+        String userIdOrThrow() {
+            if (rejection != null) {
+                throw new HttpClientErrorException(rejection);
+            }
+            return userId;
+        }
+    }
+
+    private record ValidationExpiry(long ttlNanos, long negativeTtlNanos) implements Expiry<Key, CachedValidation> {
+        @Override
+        public long expireAfterCreate(Key key, CachedValidation value, long currentTime) {
+            return value.rejection() == null ? ttlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Key key, CachedValidation value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Key key, CachedValidation value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.mongodbdemo.kitchensink.configuration;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * CBOR ({@code application/cbor}) and Smile ({@code application/x-jackson-smile}) representations of the member
+ * endpoints, for service-to-service callers that would rather not encode and parse JSON text.
+ * <p>
+ * Both are binary encodings of the same Jackson model as the JSON representation, configured by the same
+ * {@code spring.jackson.*} settings. The converters are used in place of the Spring MVC defaults for the same
+ * formats, after the JSON converter, so JSON stays the representation of clients that accept any type.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class BinaryFormatConfiguration {
+
+    /**
+     * Creates the CBOR converter.
+     *
+     * @param builder the builder configured like the one of the JSON converter
+     * @return the converter
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    /**
+     * Creates the Smile converter.
+     *
+     * @param builder the builder configured like the one of the JSON converter
+     * @return the converter
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
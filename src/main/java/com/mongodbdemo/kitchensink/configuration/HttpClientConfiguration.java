@@ -0,0 +1,99 @@
+package com.mongodbdemo.kitchensink.configuration;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+/**
+ * Pooled Apache HttpClient used by the {@code RestTemplate} that calls the auth and rate limit services.
+ * <p>
+ * Connections are kept alive and reused per route, so calls do not pay for connection setup. Every call is
+ * bounded by the connect, read and pool lease timeouts, and the pool is published as
+ * {@code httpcomponents.httpclient.pool.*} with {@code httpclient=outbound}.
+ */
+@Configuration
+public class HttpClientConfiguration {
+
+    /**
+     * Creates the connection pool shared by all outbound calls.
+     *
+     * @param maxConnections          the maximum number of open connections
+     * @param maxConnectionsPerRoute  the maximum number of open connections to one host
+     * @param connectTimeoutMillis    how long to wait for a connection to be established
+     * @param readTimeoutMillis       how long to wait for data on an open connection
+     * @param validateAfterIdleMillis how long a connection may be idle before it is checked on lease
+     * @return the connection pool
+     */
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager httpClientConnectionManager(
+            @Value("${http.client.max-connections:200}") int maxConnections,
+            @Value("${http.client.max-connections-per-route:50}") int maxConnectionsPerRoute,
+            @Value("${http.client.connect-timeout-ms:1000}") long connectTimeoutMillis,
+            @Value("${http.client.read-timeout-ms:2000}") long readTimeoutMillis,
+            @Value("${http.client.validate-after-idle-ms:2000}") long validateAfterIdleMillis) {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setDefaultSocketConfig(SocketConfig.custom()
+                        .setTcpNoDelay(true)
+                        .setSoTimeout(Timeout.ofMilliseconds(readTimeoutMillis))
+                        .build())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMillis))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMillis))
+                        .setValidateAfterInactivity(TimeValue.ofMilliseconds(validateAfterIdleMillis))
+                        .build())
+                .build();
+    }
+
+    /**
+     * Creates the HTTP client. Failed calls are not retried, because a retried rate limit call would be
+     * counted twice.
+     *
+     * @param connectionManager              the connection pool
+     * @param connectionRequestTimeoutMillis how long to wait for a free connection when the pool is exhausted
+     * @param readTimeoutMillis              how long to wait for the response
+     * @param idleEvictionSeconds            how long an unused connection is kept open
+     * @return the HTTP client
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient(
+            PoolingHttpClientConnectionManager connectionManager,
+            @Value("${http.client.connection-request-timeout-ms:500}") long connectionRequestTimeoutMillis,
+            @Value("${http.client.read-timeout-ms:2000}") long readTimeoutMillis,
+            @Value("${http.client.idle-eviction-seconds:30}") long idleEvictionSeconds) {
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectionRequestTimeoutMillis))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMillis))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(idleEvictionSeconds))
+                .disableAutomaticRetries()
+                .build();
+    }
+
+    @Bean
+    public ClientHttpRequestFactory clientHttpRequestFactory(CloseableHttpClient httpClient) {
+        return new HttpComponentsClientHttpRequestFactory(httpClient);
+    }
+
+    @Bean
+    public MeterBinder httpClientConnectionPoolMetrics(PoolingHttpClientConnectionManager connectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "outbound");
+    }
+}
@@ -0,0 +1,91 @@
+package com.mongodbdemo.kitchensink.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.mongodbdemo.kitchensink.MemberConstants;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CBOR and Smile representations of the member endpoints in reactive mode, as {@link BinaryFormatConfiguration}
+ * provides them on the servlet stack.
+ * <p>
+ * The Smile codecs replace the WebFlux defaults, which ignore the {@code spring.jackson.*} settings, and the CBOR
+ * codecs are added after the JSON ones, so JSON stays the representation of clients that accept any type. As
+ * WebFlux puts custom codecs ahead of its defaults, the JSON encoder is registered again in front of CBOR.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveBinaryFormatConfiguration {
+
+    private static final MediaType SMILE = MediaType.parseMediaType(MemberConstants.APPLICATION_SMILE_VALUE);
+
+    /**
+     * Registers the CBOR and Smile codecs.
+     *
+     * @param objectMapper the mapper of the JSON codecs
+     * @param builder      the builder configured like the one of the JSON codecs
+     * @return the configurer
+     */
+    @Bean
+    public WebFluxConfigurer binaryFormatCodecsConfigurer(ObjectMapper objectMapper,
+                                                          Jackson2ObjectMapperBuilder builder) {
+        ObjectMapper cborMapper = builder.factory(new CBORFactory()).build();
+        ObjectMapper smileMapper = builder.factory(new SmileFactory()).build();
+        return new WebFluxConfigurer() {
+            @Override
+            public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+                // Without explicit types the Jackson codecs would claim the JSON ones
+                configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smileMapper, SMILE));
+                configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(smileMapper, SMILE));
+                configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper, MediaType.APPLICATION_CBOR));
+                configurer.customCodecs().register(new Jackson2JsonEncoder(objectMapper));
+                configurer.customCodecs().register(new CborValueEncoder(cborMapper));
+            }
+        };
+    }
+
+    /**
+     * Writes CBOR as {@link Jackson2CborEncoder} does, which only encodes single values and rejects the
+     * publishers the WebFlux message writers hand it. A streamed body is collected and written as one array.
+     */
+    static class CborValueEncoder extends Jackson2CborEncoder {
+
+        CborValueEncoder(ObjectMapper mapper) {
+            super(mapper, MediaType.APPLICATION_CBOR);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                       ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+            if (inputStream instanceof Mono<?> value) {
+                return value.map(item -> encodeValue(item, bufferFactory, elementType, mimeType, hints)).flux();
+            }
+            ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, elementType);
+            return Flux.from(inputStream).collectList()
+                    .map(items -> encodeValue(items, bufferFactory, listType, mimeType, hints))
+                    .flux();
+        }
+    }
+}
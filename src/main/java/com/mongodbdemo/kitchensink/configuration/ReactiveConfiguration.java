@@ -0,0 +1,94 @@
+package com.mongodbdemo.kitchensink.configuration;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.filter.reactive.ServerWebExchangeContextFilter;
+import org.springframework.web.reactive.config.CorsRegistry;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * Beans of the reactive mode, enabled with {@code spring.profiles.active=reactive}.
+ * <p>
+ * Requests are served by Netty, whose event loops use one thread per core, and the auth and rate limit services
+ * are called with a {@link WebClient} on a connection pool bounded by the same {@code http.client.*} settings as
+ * the servlet {@code RestTemplate}.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveConfiguration {
+
+    /**
+     * Selects Netty, which would otherwise lose to Tomcat as both are on the classpath.
+     *
+     * @return the Netty server factory
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * Makes the current exchange available in the Reactor context, where the reactive access aspect reads the
+     * Authorization header from.
+     *
+     * @return the filter
+     */
+    @Bean
+    public ServerWebExchangeContextFilter serverWebExchangeContextFilter() {
+        return new ServerWebExchangeContextFilter();
+    }
+
+    /**
+     * Creates the non-blocking client for the auth and rate limit services.
+     *
+     * @param builder                        the builder configured with the application codecs
+     * @param maxConnections                 the maximum number of open connections
+     * @param connectTimeoutMillis           how long to wait for a connection to be established
+     * @param readTimeoutMillis              how long to wait for the response
+     * @param connectionRequestTimeoutMillis how long to wait for a free connection when the pool is exhausted
+     * @param idleEvictionSeconds            how long an unused connection is kept open
+     * @return the client
+     */
+    @Bean
+    public WebClient webClient(WebClient.Builder builder,
+                               @Value("${http.client.max-connections:200}") int maxConnections,
+                               @Value("${http.client.connect-timeout-ms:1000}") int connectTimeoutMillis,
+                               @Value("${http.client.read-timeout-ms:2000}") long readTimeoutMillis,
+                               @Value("${http.client.connection-request-timeout-ms:500}") long connectionRequestTimeoutMillis,
+                               @Value("${http.client.idle-eviction-seconds:30}") long idleEvictionSeconds) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("outbound")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(connectionRequestTimeoutMillis))
+                .maxIdleTime(Duration.ofSeconds(idleEvictionSeconds))
+                .metrics(true)
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMillis)
+                .responseTimeout(Duration.ofMillis(readTimeoutMillis));
+        return builder.clientConnector(new ReactorClientHttpConnector(httpClient)).build();
+    }
+
+    @Bean
+    public WebFluxConfigurer reactiveCorsConfigurer() {
+        return new WebFluxConfigurer() {
+            @Override
+            public void addCorsMappings(CorsRegistry registry) {
+                registry.addMapping("/**")
+                        .allowedOrigins("*")
+                        .allowedMethods("*")
+                        .allowedHeaders("*")
+                        .exposedHeaders("retry-after");
+            }
+        };
+    }
+}
@@ -0,0 +1,97 @@
+package com.mongodbdemo.kitchensink.configuration;
+
+import com.mongodbdemo.kitchensink.resilience.DependencyGuard;
+import com.mongodbdemo.kitchensink.resilience.FailurePolicy;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Circuit breakers and bulkheads around the calls to the auth and rate limit services.
+ * <p>
+ * Each service has its own breaker, bulkhead and failure policy, so a sick rate limit service does not stop
+ * token validation and the other way round. By default requests fail with 503 while the auth service is
+ * unavailable and go on without a rate limit decision while the rate limit service is.
+ */
+@Configuration
+public class ResilienceConfiguration {
+
+    private static final int PERMITTED_CALLS_IN_HALF_OPEN_STATE = 5;
+
+    /**
+     * Creates the guard of the calls to the auth service.
+     *
+     * @param failurePolicy           {@code closed} to fail requests with 503 while the service is unavailable,
+     *                                {@code open} to let them through without a user
+     * @param failureRateThreshold    the percentage of failed or slow calls that opens the breaker
+     * @param slowCallDurationMillis  how long a call may take before it counts as slow
+     * @param slidingWindowSize       the number of recent calls the rates are computed over
+     * @param waitInOpenStateMillis   how long the breaker stays open before trial calls are let through
+     * @param maxConcurrentCalls      the maximum number of calls in flight
+     * @return the guard
+     */
+    @Bean
+    public DependencyGuard authServiceGuard(
+            @Value("${auth.failure-policy:closed}") String failurePolicy,
+            @Value("${auth.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${auth.circuit-breaker.slow-call-duration-ms:1000}") long slowCallDurationMillis,
+            @Value("${auth.circuit-breaker.sliding-window-size:50}") int slidingWindowSize,
+            @Value("${auth.circuit-breaker.wait-in-open-state-ms:5000}") long waitInOpenStateMillis,
+            @Value("${auth.bulkhead.max-concurrent-calls:50}") int maxConcurrentCalls) {
+        return guard("auth", failurePolicy, failureRateThreshold, slowCallDurationMillis, slidingWindowSize,
+                waitInOpenStateMillis, maxConcurrentCalls);
+    }
+
+    /**
+     * Creates the guard of the calls to the rate limit service.
+     *
+     * @param failurePolicy           {@code open} to let requests through without a rate limit decision while the
+     *                                service is unavailable, {@code closed} to fail them with 503
+     * @param failureRateThreshold    the percentage of failed or slow calls that opens the breaker
+     * @param slowCallDurationMillis  how long a call may take before it counts as slow
+     * @param slidingWindowSize       the number of recent calls the rates are computed over
+     * @param waitInOpenStateMillis   how long the breaker stays open before trial calls are let through
+     * @param maxConcurrentCalls      the maximum number of calls in flight
+     * @return the guard
+     */
+    @Bean
+    public DependencyGuard rateLimitServiceGuard(
+            @Value("${ratelimit.failure-policy:open}") String failurePolicy,
+            @Value("${ratelimit.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${ratelimit.circuit-breaker.slow-call-duration-ms:1000}") long slowCallDurationMillis,
+            @Value("${ratelimit.circuit-breaker.sliding-window-size:50}") int slidingWindowSize,
+            @Value("${ratelimit.circuit-breaker.wait-in-open-state-ms:5000}") long waitInOpenStateMillis,
+            @Value("${ratelimit.bulkhead.max-concurrent-calls:50}") int maxConcurrentCalls) {
+        return guard("ratelimit", failurePolicy, failureRateThreshold, slowCallDurationMillis, slidingWindowSize,
+                waitInOpenStateMillis, maxConcurrentCalls);
+    }
+
+    /**
+     * Builds a guard. The breaker opens once the failure or slow call rate reaches the threshold over the
+     * sliding window, after at least half a window of calls. The bulkhead does not queue: a call beyond
+     * {@code maxConcurrentCalls} fails at once.
+     */
+    static DependencyGuard guard(String dependency, String failurePolicy, float failureRateThreshold,
+                                 long slowCallDurationMillis, int slidingWindowSize, long waitInOpenStateMillis,
+                                 int maxConcurrentCalls) {
+        CircuitBreakerConfig circuitBreaker = CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(Duration.ofMillis(slowCallDurationMillis))
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(Math.max(1, slidingWindowSize / 2))
+                .waitDurationInOpenState(Duration.ofMillis(waitInOpenStateMillis))
+                .permittedNumberOfCallsInHalfOpenState(PERMITTED_CALLS_IN_HALF_OPEN_STATE)
+                .build();
+        BulkheadConfig bulkhead = BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ZERO)
+                .build();
+        return new DependencyGuard(dependency, FailurePolicy.of(failurePolicy), circuitBreaker, bulkhead);
+    }
+}
@@ -2,33 +2,64 @@ package com.mongodbdemo.kitchensink.controller;
 
 import com.mongodbdemo.kitchensink.annotation.Authorize;
 import com.mongodbdemo.kitchensink.annotation.RateLimit;
+import com.mongodbdemo.kitchensink.dto.BulkDeleteRequest;
+import com.mongodbdemo.kitchensink.dto.BulkDeleteResult;
+import com.mongodbdemo.kitchensink.dto.BulkImportResult;
+import com.mongodbdemo.kitchensink.dto.MemberNameMatch;
+import com.mongodbdemo.kitchensink.dto.MemberPage;
+import com.mongodbdemo.kitchensink.dto.MemberSearchResult;
 import com.mongodbdemo.kitchensink.dto.MemberUpdateDto;
+import com.mongodbdemo.kitchensink.helper.MemberFields;
+import com.mongodbdemo.kitchensink.helper.PageCursor;
+import com.mongodbdemo.kitchensink.helper.SearchText;
 import com.mongodbdemo.kitchensink.model.Member;
+import com.mongodbdemo.kitchensink.repository.MemberIndexManager;
 import com.mongodbdemo.kitchensink.repository.MemberRepository;
 import com.mongodbdemo.kitchensink.service.MemberService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.*;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.logging.Logger;
 
 import static com.mongodbdemo.kitchensink.MemberConstants.*;
 
 /**
- * Controller for managing members.
+ * Controller for managing members, active when the application runs on the servlet stack.
  */
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping(BASE_PATH + MEMBERS_PATH)
 public class MemberController {
 
     private static final Logger LOG = Logger.getLogger(MemberController.class.getName());
+    private static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+    // The types the member and member page endpoints produce, in the order of the message converters
+    private static final List<MediaType> REPRESENTATION_TYPES =
+            List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, APPLICATION_SMILE);
 
     @Autowired
     private MemberRepository repository;
@@ -39,41 +70,218 @@ public class MemberController {
     @Autowired
     private Validator validator;
 
+    @Value("${members.export.timeout-ms:1800000}")
+    long exportTimeoutMillis;
+
+    /**
+     * Retrieves a page of members, ordered by name and then id in ascending order.
+     * <p>
+     * The ETag is the version of the members collection, suffixed with the format for CBOR and Smile like the
+     * ETag of a member, so a client whose {@code If-None-Match} still matches gets a 304 Not Modified without the
+     * members being read. Written as JSON unless the client prefers CBOR or Smile, hence {@code Vary: Accept}.
+     *
+     * @param limit   the maximum number of members to return, capped at {@code MAX_PAGE_LIMIT}
+     * @param next    the token of the page to return, as returned with the previous page
+     * @param request the request, used to evaluate {@code If-None-Match}
+     * @return the page of members and the token of the next page, if any, or {@code null} once a
+     *         304 Not Modified response has been prepared
+     */
+    @Authorize(roles = {ROLE_MEMBERS_READ})
+    @RateLimit
+    @GetMapping(
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public ResponseEntity<MemberPage<Member>> listMembers(@RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+                                                          @RequestParam(required = false) String next,
+                                                          WebRequest request) {
+        int pageSize = pageSize(limit);
+        PageCursor cursor = next != null ? PageCursor.decode(next) : PageCursor.FIRST;
+
+        // Read the version before the page, so a write in between changes the ETag of the next request
+        String etag = etag(memberService.collectionVersion(),
+                representationType(request.getHeaderValues(HttpHeaders.ACCEPT)));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        // Fetch one extra member to find out whether there is a next page
+        List<Member> members = repository.findPageAfter(cursor.name(), cursor.id(), pageSize + 1);
+        return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT)
+                .body(page(members, pageSize, PageCursor::after, Function.identity()));
+    }
+
+    /**
+     * Retrieves a page of members like {@link #listMembers}, with only the fields selected by {@code fields}.
+     * The fields are projected in the query and written without mapping the members, and a selection of only
+     * {@code id} and {@code name} is read from the (name, _id) index alone. Negotiated and tagged like
+     * {@link #listMembers}.
+     *
+     * @param limit   the maximum number of members to return, capped at {@code MAX_PAGE_LIMIT}
+     * @param next    the token of the page to return, as returned with the previous page
+     * @param fields  the comma separated member fields to return, for example {@code id,name}
+     * @param request the request, used to evaluate {@code If-None-Match}
+     * @return the page of projected members and the token of the next page, if any, or {@code null} once a
+     *         304 Not Modified response has been prepared
+     */
+    @Authorize(roles = {ROLE_MEMBERS_READ})
+    @RateLimit
+    @GetMapping(params = {"fields", "!unpaged"},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public ResponseEntity<MemberPage<Map<String, Object>>> listMemberFields(
+            @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+            @RequestParam(required = false) String next,
+            @RequestParam String fields,
+            WebRequest request) {
+        int pageSize = pageSize(limit);
+        PageCursor cursor = next != null ? PageCursor.decode(next) : PageCursor.FIRST;
+        MemberFields selected = MemberFields.parse(fields);
+
+        String etag = etag(memberService.collectionVersion(),
+                representationType(request.getHeaderValues(HttpHeaders.ACCEPT)));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        List<Document> members = repository.findPageAfter(cursor.name(), cursor.id(), pageSize + 1,
+                selected.projection());
+        return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT)
+                .body(page(members, pageSize, PageCursor::after, selected::toJson));
+    }
+
     /**
      * Retrieves a list of all members, ordered by name in ascending order.
+     * Kept for clients that cannot follow page tokens; requires {@code unpaged=true}. Written as JSON unless
+     * the client accepts only CBOR or Smile.
      *
      * @return a list of all members
      */
     @Authorize(roles = {ROLE_MEMBERS_READ})
     @RateLimit
-    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    @GetMapping(params = "unpaged=true",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
     public ResponseEntity<Iterable<Member>> listAllMembers() {
         return ResponseEntity.ok(repository.findAllByOrderByNameAsc());
     }
 
     /**
-     * Retrieves a member by its ID.
+     * Finds up to {@code limit} members whose name starts with the prefix, for search-as-you-type. Served from the
+     * in-memory name index without querying the database.
+     *
+     * @param prefix the prefix of the name, compared ignoring case and accents
+     * @param limit  the maximum number of matches, capped at {@code MAX_SEARCH_LIMIT}
+     * @return the ids and names of the matching members, ordered by name
+     */
+    @Authorize(roles = {ROLE_MEMBERS_READ})
+    @RateLimit(permitsPerSecond = 20, burst = 40)
+    @GetMapping(path = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<MemberNameMatch>> searchMembers(@RequestParam String prefix,
+                                                               @RequestParam(defaultValue = DEFAULT_SEARCH_LIMIT) int limit) {
+        return ResponseEntity.ok(memberService.searchNames(searchPrefix(prefix), searchLimit(limit)));
+    }
+
+    /**
+     * Finds the members whose name, email or phone number contains the fragment, for example a surname, an email
+     * domain or part of a phone number, best matches first. Served from the trigram indexes within the time
+     * budget of {@code members.search.max-time-ms}.
+     *
+     * @param q    the fragment, at least three letters or digits
+     * @param page the zero-based page of the matches
+     * @param size the number of matches per page, capped at {@code MAX_TEXT_SEARCH_SIZE}
+     * @return the page of matching members, their total and whether the candidates were truncated
+     */
+    @Authorize(roles = {ROLE_MEMBERS_READ})
+    @RateLimit(permitsPerSecond = 5, burst = 10)
+    @GetMapping(path = "/search/text", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<MemberSearchResult> searchMemberText(@RequestParam String q,
+                                                               @RequestParam(defaultValue = "0") int page,
+                                                               @RequestParam(defaultValue = DEFAULT_TEXT_SEARCH_SIZE) int size) {
+        return ResponseEntity.ok(memberService.searchMembers(searchTerms(q), searchPage(page), textSearchSize(size)));
+    }
+
+    /**
+     * Exports all members as newline-delimited JSON, streamed from the database without buffering. The export
+     * runs on the async executor with its own timeout of {@code members.export.timeout-ms}, so other async
+     * requests keep the default one.
      *
-     * @param id the ID of the member
-     * @return the member if found, or a 404 Not Found response if not
+     * @param response the response the members are written to
+     * @return the task writing one member per line
      */
     @Authorize(roles = {ROLE_MEMBERS_READ})
-    @GetMapping(path = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Member> lookupMemberById(@PathVariable Long id) {
-        return repository.findById(id)
-                .map(ResponseEntity::ok)
-                .orElseGet(() -> ResponseEntity.notFound().build());
+    @GetMapping(path = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public WebAsyncTask<Void> exportMembers(HttpServletResponse response) {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        return new WebAsyncTask<>(exportTimeoutMillis, () -> {
+            memberService.exportMembers(response.getOutputStream());
+            return null;
+        });
     }
 
     /**
-     * Creates a new member.
+     * Retrieves a member by its ID, served from the member cache when present. Written as JSON unless the
+     * client prefers CBOR or Smile, hence {@code Vary: Accept}. The ETag is the version of the member, suffixed
+     * with the format for CBOR and Smile, so each representation has its own; a matching {@code If-None-Match}
+     * gets a 304 Not Modified without a body.
+     *
+     * @param id      the ID of the member
+     * @param request the request, used to evaluate {@code If-None-Match}
+     * @return the member if found, or a 404 Not Found response if not, or {@code null} once a
+     *         304 Not Modified response has been prepared
+     */
+    @Authorize(roles = {ROLE_MEMBERS_READ})
+    @GetMapping(path = "/{id}",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public ResponseEntity<Member> lookupMemberById(@PathVariable Long id, WebRequest request) {
+        Optional<Member> member = memberService.findMember(id);
+        if (member.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = etag(member.get().getVersion(),
+                representationType(request.getHeaderValues(HttpHeaders.ACCEPT)));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(member.get());
+    }
+
+    /**
+     * Retrieves the fields selected by {@code fields} of a member, projected in the query. The ETag is the
+     * version of the member, as for the full member.
+     *
+     * @param id      the ID of the member
+     * @param fields  the comma separated member fields to return, for example {@code id,name}
+     * @param request the request, used to evaluate {@code If-None-Match}
+     * @return the selected fields of the member if found, or a 404 Not Found response if not, or {@code null}
+     *         once a 304 Not Modified response has been prepared
+     */
+    @Authorize(roles = {ROLE_MEMBERS_READ})
+    @GetMapping(path = "/{id}", params = "fields", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> lookupMemberFieldsById(@PathVariable Long id,
+                                                                      @RequestParam String fields,
+                                                                      WebRequest request) {
+        MemberFields selected = MemberFields.parse(fields);
+        Optional<Document> member = repository.findFieldsById(id, selected.projection("version"));
+        if (member.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        // Members written before versioning have no version yet
+        Object version = member.get().get("version");
+        String etag = etag(version != null ? ((Number) version).longValue() : 0);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(selected.toJson(member.get()));
+    }
+
+    /**
+     * Creates a new member. The member is inserted without reading first; a taken email is detected by the
+     * unique email index. The member may be sent as JSON, CBOR or Smile.
      *
      * @param member the member to be created
      * @return a 200 Created response if successful, or a 409 Conflict if the email is already taken,
      *         or a 400 Bad Request for other errors
      */
     @Authorize(roles = {ROLE_MEMBERS_WRITE})
-    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @PostMapping(consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
     public ResponseEntity<Map<String, String>> createMember(@RequestBody  Member member) {
         try {
             validateMember(member);
@@ -82,9 +290,14 @@ public class MemberController {
         } catch (ConstraintViolationException ce) {
             // Handle bean validation issues
             return createViolationResponse(ce.getConstraintViolations());
-        } catch (ValidationException e) {
+        } catch (DuplicateKeyException e) {
+            if (!isEmailConflict(e)) {
+                throw e;
+            }
             return ResponseEntity.status(HttpStatus.CONFLICT)
                     .body(Map.of("email", "Email taken"));
+        } catch (ResponseStatusException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("error", e.getMessage()));
@@ -92,14 +305,30 @@ public class MemberController {
     }
 
     /**
-     * Updates an existing member.
+     * Imports a JSON array of members in bulk. Invalid or duplicate members are reported by their
+     * position in the array and do not prevent the others from being stored.
+     *
+     * @param body the JSON array of members, read incrementally
+     * @return the number of received and stored members and the errors of the rejected ones
+     * @throws IOException if reading the request body fails
+     */
+    @Authorize(roles = {ROLE_MEMBERS_WRITE})
+    @PostMapping(path = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkImportResult> importMembers(InputStream body) throws IOException {
+        return ResponseEntity.ok(memberService.importMembers(body));
+    }
+
+    /**
+     * Updates an existing member. The changes may be sent as JSON, CBOR or Smile.
      *
      * @param id             the ID of the member to be updated
      * @param updatedMember  the updated member details
      * @return the updated member
      */
     @Authorize(roles = {ROLE_MEMBERS_WRITE})
-    @PatchMapping(path = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PatchMapping(path = "/{id}",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
     public ResponseEntity<Member> updateMember(@PathVariable Long id,
                                                @Valid @RequestBody MemberUpdateDto updatedMember) {
         Member member = memberService.updateMember(id, updatedMember);
@@ -120,34 +349,227 @@ public class MemberController {
     }
 
     /**
-     * Validates the member to ensure the email is unique.
+     * Deletes a member by its ID and returns it; requires {@code returnDeleted=true}.
+     *
+     * @param id the ID of the member to be deleted
+     * @return the deleted member
+     */
+    @Authorize(roles = {ROLE_MEMBERS_DELETE})
+    @DeleteMapping(path = "/{id}", params = "returnDeleted=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Member> deleteAndReturnMember(@PathVariable Long id) {
+        return ResponseEntity.ok(memberService.deleteAndReturnMember(id));
+    }
+
+    /**
+     * Deletes the members with the given IDs in one call. IDs without a member are ignored.
+     *
+     * @param request the IDs of the members to be deleted
+     * @return the number of requested IDs and of deleted members
+     */
+    @Authorize(roles = {ROLE_MEMBERS_DELETE})
+    @PostMapping(path = "/bulk-delete", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkDeleteResult> deleteMembers(@Valid @RequestBody BulkDeleteRequest request) {
+        return ResponseEntity.ok(memberService.deleteMembers(request.ids()));
+    }
+
+    /**
+     * Validates the member against its bean constraints. Email uniqueness is left to the unique index.
      *
      * @param member the member to be validated
-     * @throws ValidationException if the email is already taken
+     * @throws ConstraintViolationException if the member violates a constraint
      */
-    private void validateMember(Member member) throws ValidationException {
+    void validateMember(Member member) throws ConstraintViolationException {
         Set<ConstraintViolation<Member>> violations = validator.validate(member);
 
         if (!violations.isEmpty()) {
             throw new ConstraintViolationException(new HashSet<>(violations));
         }
+    }
+
+    /**
+     * Checks if a duplicate key error was raised by the unique email index.
+     *
+     * @param exception the duplicate key error
+     * @return true if the email is already taken, false for any other unique key
+     */
+    static boolean isEmailConflict(DuplicateKeyException exception) {
+        return MemberIndexManager.isEmailIndexViolation(exception.getMessage());
+    }
+
+    /**
+     * Validates the requested page size and caps it at {@code MAX_PAGE_LIMIT}.
+     *
+     * @param limit the requested number of members
+     * @return the number of members to return
+     * @throws ResponseStatusException with 400 if the limit is not positive
+     */
+    static int pageSize(int limit) {
+        if (limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be positive");
+        }
+        return Math.min(limit, MAX_PAGE_LIMIT);
+    }
+
+    /**
+     * Validates the search prefix.
+     *
+     * @param prefix the requested prefix
+     * @return the prefix
+     * @throws ResponseStatusException with 400 if the prefix is blank
+     */
+    static String searchPrefix(String prefix) {
+        if (prefix.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "prefix must not be blank");
+        }
+        return prefix;
+    }
+
+    /**
+     * Validates the requested number of search matches and caps it at {@code MAX_SEARCH_LIMIT}.
+     *
+     * @param limit the requested number of matches
+     * @return the number of matches to return
+     * @throws ResponseStatusException with 400 if the limit is not positive
+     */
+    static int searchLimit(int limit) {
+        if (limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be positive");
+        }
+        return Math.min(limit, MAX_SEARCH_LIMIT);
+    }
+
+    /**
+     * Parses the full-text search query.
+     *
+     * @param q the requested fragment
+     * @return the terms to search
+     * @throws ResponseStatusException with 400 if the fragment has fewer than three characters to search
+     */
+    static SearchText.Terms searchTerms(String q) {
+        SearchText.Terms terms = SearchText.terms(q);
+        if (!terms.isSearchable()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "q must have at least " + SearchText.GRAM_LENGTH + " characters");
+        }
+        return terms;
+    }
+
+    /**
+     * Validates the requested page of search matches.
+     *
+     * @param page the requested zero-based page
+     * @return the page
+     * @throws ResponseStatusException with 400 if the page is negative
+     */
+    static int searchPage(int page) {
+        if (page < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "page must not be negative");
+        }
+        return page;
+    }
+
+    /**
+     * Validates the requested number of full-text search matches per page and caps it at
+     * {@code MAX_TEXT_SEARCH_SIZE}.
+     *
+     * @param size the requested number of matches per page
+     * @return the number of matches per page
+     * @throws ResponseStatusException with 400 if the size is not positive
+     */
+    static int textSearchSize(int size) {
+        if (size < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be positive");
+        }
+        return Math.min(size, MAX_TEXT_SEARCH_SIZE);
+    }
+
+    /**
+     * Cuts a page from members read with one extra member, which is only used to find out whether there is a
+     * next page.
+     *
+     * @param members        up to {@code pageSize + 1} members
+     * @param pageSize       the number of members of the page
+     * @param cursorOf       the position of a member, used for the token of the next page
+     * @param representation how a member is returned
+     * @return the page
+     */
+    static <M, T> MemberPage<T> page(List<M> members, int pageSize, Function<M, PageCursor> cursorOf,
+                                             Function<M, T> representation) {
+        if (members.size() <= pageSize) {
+            return new MemberPage<>(members.stream().map(representation).toList(), null);
+        }
+        List<M> page = members.subList(0, pageSize);
+        return new MemberPage<>(page.stream().map(representation).toList(),
+                cursorOf.apply(page.get(pageSize - 1)).encode());
+    }
 
-        if (emailAlreadyExists(member.getEmail())) {
-            throw new ValidationException("Unique Email Violation");
+    /**
+     * Formats a member version as a strong ETag.
+     *
+     * @param version the version of the member
+     * @return the quoted ETag
+     */
+    static String etag(long version) {
+        return etag(String.valueOf(version));
+    }
+
+    /**
+     * Formats a version as the strong ETag of a representation written as the given type: the version for JSON,
+     * followed by {@code -cbor} or {@code -smile} for the binary formats.
+     *
+     * @param version the version of the member or of the members collection
+     * @param type    the type the representation is written as
+     * @return the quoted ETag
+     */
+    static String etag(long version, MediaType type) {
+        if (MediaType.APPLICATION_CBOR.equalsTypeAndSubtype(type)) {
+            return etag(version + "-cbor");
+        }
+        if (APPLICATION_SMILE.equalsTypeAndSubtype(type)) {
+            return etag(version + "-smile");
+        }
+        return etag(version);
+    }
+
+    /**
+     * Returns the type a member or a page of members is written as for the {@code Accept} header, chosen like the
+     * message converters do: the most specific, then preferred, accepted type, JSON on a tie.
+     *
+     * @param accept the values of the {@code Accept} header, or {@code null} if absent
+     * @return the type the representation is written as
+     */
+    static MediaType representationType(String[] accept) {
+        List<MediaType> accepted = accept == null ? List.of(MediaType.ALL)
+                : MediaType.parseMediaTypes(List.of(accept));
+        List<MediaType> requestedTypes = new ArrayList<>(accepted);
+        MimeTypeUtils.sortBySpecificity(requestedTypes);
+        List<MediaType> candidates = new ArrayList<>();
+        for (MediaType requested : requestedTypes) {
+            for (MediaType producible : REPRESENTATION_TYPES) {
+                if (requested.isCompatibleWith(producible)) {
+                    candidates.add(producible.copyQualityValue(requested));
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return MediaType.APPLICATION_JSON;
         }
+        MimeTypeUtils.sortBySpecificity(candidates);
+        return candidates.get(0);
     }
 
     /**
-     * Checks if the email already exists in the repository.
+     * Formats a version as a strong ETag.
      *
-     * @param email the email to check
-     * @return true if the email exists, false otherwise
+     * @param version the version of the member or of the members collection
+     * @return the quoted ETag
      */
-    private boolean emailAlreadyExists(String email) {
-        return repository.findByEmail(email).isPresent();
+    static String etag(String version) {
+        return "\"" + version + "\"";
     }
 
-    private ResponseEntity<Map<String, String>> createViolationResponse(Set<ConstraintViolation<?>> violations) {
+    static ResponseEntity<Map<String, String>> createViolationResponse(Set<ConstraintViolation<?>> violations) {
         LOG.fine("Validation completed. violations found: " + violations.size());
 
         Map<String, String> responseObj = new HashMap<>();
@@ -0,0 +1,348 @@
+package com.mongodbdemo.kitchensink.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.mongodbdemo.kitchensink.annotation.Authorize;
+import com.mongodbdemo.kitchensink.annotation.RateLimit;
+import com.mongodbdemo.kitchensink.dto.BulkDeleteRequest;
+import com.mongodbdemo.kitchensink.dto.BulkDeleteResult;
+import com.mongodbdemo.kitchensink.dto.BulkImportResult;
+import com.mongodbdemo.kitchensink.dto.MemberNameMatch;
+import com.mongodbdemo.kitchensink.dto.MemberPage;
+import com.mongodbdemo.kitchensink.dto.MemberSearchResult;
+import com.mongodbdemo.kitchensink.dto.MemberUpdateDto;
+import com.mongodbdemo.kitchensink.helper.MemberFields;
+import com.mongodbdemo.kitchensink.helper.PageCursor;
+import com.mongodbdemo.kitchensink.model.Member;
+import com.mongodbdemo.kitchensink.service.ReactiveMemberService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static com.mongodbdemo.kitchensink.MemberConstants.*;
+
+/**
+ * Controller for managing members, active when the application runs on WebFlux
+ * ({@code spring.profiles.active=reactive}).
+ * <p>
+ * Serves the endpoints of {@link MemberController} with the same authorization, rate limits, representations,
+ * ETags and error responses, without blocking a thread while waiting for the database or the auth and rate limit
+ * services.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping(BASE_PATH + MEMBERS_PATH)
+public class ReactiveMemberController {
+
+    @Autowired
+    private ReactiveMemberService memberService;
+
+    @Autowired
+    private Validator validator;
+
+    /**
+     * Retrieves a page of members, ordered by name and then id in ascending order. Negotiated and tagged like
+     * {@link MemberController#listMembers}: the ETag is the version of the members collection, suffixed with the
+     * format for CBOR and Smile.
+     *
+     * @param limit    the maximum number of members to return, capped at {@code MAX_PAGE_LIMIT}
+     * @param next     the token of the page to return, as returned with the previous page
+     * @param exchange the exchange, used to evaluate {@code If-None-Match}
+     * @return the page of members and the token of the next page, if any, or empty once a 304 Not Modified
+     *         response has been prepared
+     */
+    @Authorize(roles = {ROLE_MEMBERS_READ})
+    @RateLimit
+    @GetMapping(
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public Mono<ResponseEntity<MemberPage<Member>>> listMembers(
+            @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+            @RequestParam(required = false) String next,
+            ServerWebExchange exchange) {
+        int pageSize = MemberController.pageSize(limit);
+        PageCursor cursor = next != null ? PageCursor.decode(next) : PageCursor.FIRST;
+        MediaType type = representationType(exchange);
+
+        return memberService.collectionVersion()
+                .map(version -> MemberController.etag(version, type))
+                .filter(etag -> !exchange.checkNotModified(etag))
+                .flatMap(etag -> memberService.findPageAfter(cursor.name(), cursor.id(), pageSize + 1)
+                        .collectList()
+                        .map(members -> ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(
+                                MemberController.page(members, pageSize, PageCursor::after, Function.identity()))));
+    }
+
+    /**
+     * Retrieves a page of members like {@link #listMembers}, with only the fields selected by {@code fields},
+     * projected in the query as {@link MemberController#listMemberFields} does.
+     *
+     * @param limit    the maximum number of members to return, capped at {@code MAX_PAGE_LIMIT}
+     * @param next     the token of the page to return, as returned with the previous page
+     * @param fields   the comma separated member fields to return, for example {@code id,name}
+     * @param exchange the exchange, used to evaluate {@code If-None-Match}
+     * @return the page of projected members and the token of the next page, if any, or empty once a
+     *         304 Not Modified response has been prepared
+     */
+    @Authorize(roles = {ROLE_MEMBERS_READ})
+    @RateLimit
+    @GetMapping(params = {"fields", "!unpaged"},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public Mono<ResponseEntity<MemberPage<Map<String, Object>>>> listMemberFields(
+            @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+            @RequestParam(required = false) String next,
+            @RequestParam String fields,
+            ServerWebExchange exchange) {
+        int pageSize = MemberController.pageSize(limit);
+        PageCursor cursor = next != null ? PageCursor.decode(next) : PageCursor.FIRST;
+        MemberFields selected = MemberFields.parse(fields);
+        MediaType type = representationType(exchange);
+
+        return memberService.collectionVersion()
+                .map(version -> MemberController.etag(version, type))
+                .filter(etag -> !exchange.checkNotModified(etag))
+                .flatMap(etag -> memberService.findPageAfter(cursor.name(), cursor.id(), pageSize + 1,
+                                selected.projection())
+                        .collectList()
+                        .map(members -> ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(
+                                MemberController.page(members, pageSize, PageCursor::after, selected::toJson))));
+    }
+
+    /**
+     * Retrieves all members, ordered by name in ascending order. Kept for clients that cannot follow page tokens;
+     * requires {@code unpaged=true}. Written as JSON unless the client accepts only CBOR or Smile; JSON and Smile
+     * arrays are written while the members are read, CBOR once all were read.
+     *
+     * @return all members
+     */
+    @Authorize(roles = {ROLE_MEMBERS_READ})
+    @RateLimit
+    @GetMapping(params = "unpaged=true",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public Flux<Member> listAllMembers() {
+        return memberService.findAllMembers();
+    }
+
+    /**
+     * Finds up to {@code limit} members whose name starts with the prefix, for search-as-you-type. Served from the
+     * in-memory name index without querying the database.
+     *
+     * @param prefix the prefix of the name, compared ignoring case and accents
+     * @param limit  the maximum number of matches, capped at {@code MAX_SEARCH_LIMIT}
+     * @return the ids and names of the matching members, ordered by name
+     */
+    @Authorize(roles = {ROLE_MEMBERS_READ})
+    @RateLimit(permitsPerSecond = 20, burst = 40)
+    @GetMapping(path = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<List<MemberNameMatch>> searchMembers(@RequestParam String prefix,
+                                                     @RequestParam(defaultValue = DEFAULT_SEARCH_LIMIT) int limit) {
+        return memberService.searchNames(MemberController.searchPrefix(prefix), MemberController.searchLimit(limit));
+    }
+
+    /**
+     * Finds the members whose name, email or phone number contains the fragment, best matches first, as
+     * {@link MemberController#searchMemberText} does.
+     *
+     * @param q    the fragment, at least three letters or digits
+     * @param page the zero-based page of the matches
+     * @param size the number of matches per page, capped at {@code MAX_TEXT_SEARCH_SIZE}
+     * @return the page of matching members, their total and whether the candidates were truncated
+     */
+    @Authorize(roles = {ROLE_MEMBERS_READ})
+    @RateLimit(permitsPerSecond = 5, burst = 10)
+    @GetMapping(path = "/search/text", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<MemberSearchResult> searchMemberText(@RequestParam String q,
+                                                     @RequestParam(defaultValue = "0") int page,
+                                                     @RequestParam(defaultValue = DEFAULT_TEXT_SEARCH_SIZE) int size) {
+        return memberService.searchMembers(MemberController.searchTerms(q), MemberController.searchPage(page),
+                MemberController.textSearchSize(size));
+    }
+
+    /**
+     * Exports all members as newline-delimited JSON, streamed from the database with backpressure.
+     *
+     * @return the members, written one per line
+     */
+    @Authorize(roles = {ROLE_MEMBERS_READ})
+    @GetMapping(path = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Member> exportMembers() {
+        return memberService.exportMembers();
+    }
+
+    /**
+     * Retrieves a member by its ID, served from the member cache when present. Negotiated and tagged like
+     * {@link MemberController#lookupMemberById}; WebFlux answers a matching {@code If-None-Match} with
+     * 304 Not Modified without writing the member.
+     *
+     * @param id       the ID of the member
+     * @param exchange the exchange, used to choose the representation
+     * @return the member if found, or a 404 Not Found response if not
+     */
+    @Authorize(roles = {ROLE_MEMBERS_READ})
+    @GetMapping(path = "/{id}",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public Mono<ResponseEntity<Member>> lookupMemberById(@PathVariable Long id, ServerWebExchange exchange) {
+        MediaType type = representationType(exchange);
+        return memberService.findMember(id)
+                .map(member -> ResponseEntity.ok().eTag(MemberController.etag(member.getVersion(), type))
+                        .varyBy(HttpHeaders.ACCEPT).body(member))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Retrieves the fields selected by {@code fields} of a member, projected in the query. The ETag is the
+     * version of the member, as for the full member.
+     *
+     * @param id     the ID of the member
+     * @param fields the comma separated member fields to return, for example {@code id,name}
+     * @return the selected fields of the member if found, or a 404 Not Found response if not
+     */
+    @Authorize(roles = {ROLE_MEMBERS_READ})
+    @GetMapping(path = "/{id}", params = "fields", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Map<String, Object>>> lookupMemberFieldsById(@PathVariable Long id,
+                                                                            @RequestParam String fields) {
+        MemberFields selected = MemberFields.parse(fields);
+        return memberService.findFieldsById(id, selected.projection("version"))
+                .map(member -> ResponseEntity.ok().eTag(MemberController.etag(versionOf(member)))
+                        .body(selected.toJson(member)))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Creates a new member. The member is inserted without reading first; a taken email is detected by the
+     * unique email index. The member may be sent as JSON, CBOR or Smile.
+     *
+     * @param member the member to be created
+     * @return a 200 response if successful, or a 409 Conflict if the email is already taken,
+     *         or a 400 Bad Request for other errors
+     */
+    @Authorize(roles = {ROLE_MEMBERS_WRITE})
+    @PostMapping(consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public Mono<ResponseEntity<Map<String, String>>> createMember(@RequestBody Member member) {
+        Set<ConstraintViolation<Member>> violations = validator.validate(member);
+        if (!violations.isEmpty()) {
+            return Mono.just(MemberController.createViolationResponse(new HashSet<>(violations)));
+        }
+        return Mono.defer(() -> memberService.register(member))
+                .map(registered -> ResponseEntity.ok().<Map<String, String>>build())
+                .onErrorResume(e -> {
+                    if (e instanceof DuplicateKeyException duplicate) {
+                        return MemberController.isEmailConflict(duplicate)
+                                ? Mono.just(ResponseEntity.status(HttpStatus.CONFLICT)
+                                        .body(Map.of("email", "Email taken")))
+                                : Mono.error(e);
+                    }
+                    if (e instanceof ResponseStatusException) {
+                        return Mono.error(e);
+                    }
+                    return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                            .body(Map.of("error", e.getMessage())));
+                });
+    }
+
+    /**
+     * Imports a JSON array of members in bulk, decoded item by item as the body arrives. Invalid or duplicate
+     * members are reported by their position in the array and do not prevent the others from being stored.
+     *
+     * @param items the items of the JSON array
+     * @return the number of received and stored members and the errors of the rejected ones
+     */
+    @Authorize(roles = {ROLE_MEMBERS_WRITE})
+    @PostMapping(path = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<BulkImportResult>> importMembers(@RequestBody Flux<JsonNode> items) {
+        return memberService.importMembers(items).map(ResponseEntity::ok);
+    }
+
+    /**
+     * Updates an existing member. The changes may be sent as JSON, CBOR or Smile.
+     *
+     * @param id            the ID of the member to be updated
+     * @param updatedMember the updated member details
+     * @return the updated member
+     */
+    @Authorize(roles = {ROLE_MEMBERS_WRITE})
+    @PatchMapping(path = "/{id}",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public Mono<ResponseEntity<Member>> updateMember(@PathVariable Long id,
+                                                     @Valid @RequestBody MemberUpdateDto updatedMember) {
+        return memberService.updateMember(id, updatedMember).map(ResponseEntity::ok);
+    }
+
+    /**
+     * Deletes a member by its ID.
+     *
+     * @param id the ID of the member to be deleted
+     * @return a 204 No Content response if successful
+     */
+    @Authorize(roles = {ROLE_MEMBERS_DELETE})
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteMember(@PathVariable Long id) {
+        return memberService.deleteMember(id).then(Mono.fromSupplier(() -> ResponseEntity.noContent().build()));
+    }
+
+    /**
+     * Deletes a member by its ID and returns it; requires {@code returnDeleted=true}.
+     *
+     * @param id the ID of the member to be deleted
+     * @return the deleted member
+     */
+    @Authorize(roles = {ROLE_MEMBERS_DELETE})
+    @DeleteMapping(path = "/{id}", params = "returnDeleted=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Member>> deleteAndReturnMember(@PathVariable Long id) {
+        return memberService.deleteAndReturnMember(id).map(ResponseEntity::ok);
+    }
+
+    /**
+     * Deletes the members with the given IDs in one call. IDs without a member are ignored.
+     *
+     * @param request the IDs of the members to be deleted
+     * @return the number of requested IDs and of deleted members
+     */
+    @Authorize(roles = {ROLE_MEMBERS_DELETE})
+    @PostMapping(path = "/bulk-delete", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<BulkDeleteResult>> deleteMembers(@Valid @RequestBody BulkDeleteRequest request) {
+        return memberService.deleteMembers(request.ids()).map(ResponseEntity::ok);
+    }
+
+    /**
+     * Returns the type a member or a page of members is written as for the {@code Accept} header of the request.
+     *
+     * @param exchange the exchange
+     * @return the type the representation is written as
+     */
+    private static MediaType representationType(ServerWebExchange exchange) {
+        List<String> accept = exchange.getRequest().getHeaders().get(HttpHeaders.ACCEPT);
+        return MemberController.representationType(accept != null ? accept.toArray(String[]::new) : null);
+    }
+
+    /**
+     * Reads the version of a projected member.
+     *
+     * @param member the member document, projected with its version
+     * @return the version, or 0 for members written before versioning
+     */
+    private static long versionOf(Document member) {
+        Object version = member.get("version");
+        return version != null ? ((Number) version).longValue() : 0;
+    }
+}
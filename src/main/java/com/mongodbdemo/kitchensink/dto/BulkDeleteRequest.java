@@ -0,0 +1,16 @@
+package com.mongodbdemo.kitchensink.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+import static com.mongodbdemo.kitchensink.MemberConstants.MAX_BULK_DELETE;
+
+/**
+ * The members to delete with one bulk delete.
+ *
+ * @param ids the ids of the members, at most {@code MAX_BULK_DELETE}
+ */
+public record BulkDeleteRequest(@NotEmpty @Size(max = MAX_BULK_DELETE) List<@NotNull Long> ids) {}
@@ -0,0 +1,9 @@
+package com.mongodbdemo.kitchensink.dto;
+
+/**
+ * Outcome of a bulk member delete.
+ *
+ * @param requested the number of ids in the request
+ * @param deleted   the number of members that existed and were deleted
+ */
+public record BulkDeleteResult(int requested, long deleted) {}
@@ -0,0 +1,22 @@
+package com.mongodbdemo.kitchensink.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a bulk member import.
+ *
+ * @param received the number of members in the request
+ * @param inserted the number of members that were stored
+ * @param errors   the members that were rejected, by their position in the request
+ */
+public record BulkImportResult(int received, int inserted, List<ItemError> errors) {
+
+    /**
+     * Why a single member of the request was rejected.
+     *
+     * @param index  the zero-based position of the member in the request
+     * @param errors the errors by field, in the same shape as the single create endpoint
+     */
+    public record ItemError(int index, Map<String, String> errors) {}
+}
@@ -0,0 +1,9 @@
+package com.mongodbdemo.kitchensink.dto;
+
+/**
+ * A member whose name starts with the searched prefix.
+ *
+ * @param id   the id of the member
+ * @param name the name of the member
+ */
+public record MemberNameMatch(long id, String name) {}
@@ -0,0 +1,12 @@
+package com.mongodbdemo.kitchensink.dto;
+
+import java.util.List;
+
+/**
+ * One page of members ordered by name and id.
+ *
+ * @param members the members of the page, either full members or only the fields the client selected
+ * @param next    the opaque token of the next page, or {@code null} on the last page
+ * @param <T>     the representation of a member
+ */
+public record MemberPage<T>(List<T> members, String next) {}
@@ -0,0 +1,14 @@
+package com.mongodbdemo.kitchensink.dto;
+
+import com.mongodbdemo.kitchensink.model.Member;
+
+import java.util.List;
+
+/**
+ * One page of full-text search results, best matches first.
+ *
+ * @param members   the members of the page
+ * @param total     the number of matching members among the candidates
+ * @param truncated whether the search stopped at the maximum number of candidates, so more members may match
+ */
+public record MemberSearchResult(List<Member> members, int total, boolean truncated) {}
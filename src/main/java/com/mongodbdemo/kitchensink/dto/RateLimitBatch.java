@@ -0,0 +1,10 @@
+package com.mongodbdemo.kitchensink.dto;
+
+import java.util.Map;
+
+/**
+ * Requests consumed per user since the last flush, sent to the rate limit service in one call.
+ *
+ * @param consumed the number of requests allowed locally, by user ID
+ */
+public record RateLimitBatch(Map<String, Long> consumed) {}
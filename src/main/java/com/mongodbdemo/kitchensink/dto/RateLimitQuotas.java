@@ -0,0 +1,20 @@
+package com.mongodbdemo.kitchensink.dto;
+
+import java.util.Map;
+
+/**
+ * The answer of the rate limit service to a {@link RateLimitBatch}: the quota of every reported user once the
+ * reported requests were counted.
+ *
+ * @param quotas the quota by user ID
+ */
+public record RateLimitQuotas(Map<String, Quota> quotas) {
+
+    /**
+     * The quota of one user.
+     *
+     * @param remaining         the number of requests the user may still make in the current window
+     * @param retryAfterSeconds how long the user must wait before the next request, {@code 0} if not over quota
+     */
+    public record Quota(long remaining, long retryAfterSeconds) {}
+}
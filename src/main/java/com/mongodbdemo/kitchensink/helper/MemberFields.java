@@ -0,0 +1,82 @@
+package com.mongodbdemo.kitchensink.helper;
+
+import org.bson.Document;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The member fields a client selected with {@code fields=}, used to project member documents in the query and
+ * to write them as JSON without mapping them to {@link com.mongodbdemo.kitchensink.model.Member}.
+ *
+ * @param names the selected JSON field names, in the order they were requested
+ */
+public record MemberFields(List<String> names) {
+
+    // JSON field name to document field name
+    private static final Map<String, String> DOCUMENT_FIELDS = Map.of(
+            "id", "_id",
+            "name", "name",
+            "email", "email",
+            "phoneNumber", "phoneNumber",
+            "version", "version",
+            "lastModified", "lastModified");
+
+    /**
+     * Parses a comma separated list of member field names.
+     *
+     * @param fields the field names, for example {@code id,name}
+     * @return the selected fields
+     * @throws ResponseStatusException with status 400 if no field or an unknown field is given
+     */
+    public static MemberFields parse(String fields) {
+        Set<String> names = new LinkedHashSet<>();
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (!trimmed.isEmpty()) {
+                if (!DOCUMENT_FIELDS.containsKey(trimmed)) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown member field: " + trimmed);
+                }
+                names.add(trimmed);
+            }
+        }
+        if (names.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fields must name at least one field");
+        }
+        return new MemberFields(List.copyOf(names));
+    }
+
+    /**
+     * Returns the document fields to project: the selected ones and the given ones the server needs itself.
+     *
+     * @param required document fields to read even if they were not selected
+     * @return the document field names
+     */
+    public Set<String> projection(String... required) {
+        Set<String> projection = new LinkedHashSet<>(List.of(required));
+        names.forEach(name -> projection.add(DOCUMENT_FIELDS.get(name)));
+        return projection;
+    }
+
+    /**
+     * Copies the selected fields of a projected document into a JSON object, in the order they were selected.
+     * Fields missing from the document are written as {@code null}.
+     *
+     * @param document the projected member document
+     * @return the JSON object
+     */
+    public Map<String, Object> toJson(Document document) {
+        Map<String, Object> json = new LinkedHashMap<>(names.size() * 2);
+        for (String name : names) {
+            Object value = document.get(DOCUMENT_FIELDS.get(name));
+            json.put(name, value instanceof Date date ? date.toInstant() : value);
+        }
+        return json;
+    }
+}
@@ -0,0 +1,44 @@
+package com.mongodbdemo.kitchensink.helper;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.client.HttpStatusCodeException;
+
+/**
+ * Tag values shared by the timers around calls to the auth and rate limit services.
+ */
+public final class MetricTags {
+
+    public static final String OUTCOME = "outcome";
+    public static final String SUCCESS = "2xx";
+
+    private MetricTags() {
+    }
+
+    /**
+     * Returns the outcome tag of a failed call: {@code 429} on its own, otherwise the status class such as
+     * {@code 4xx} or {@code 5xx}, or {@code error} if no response was received.
+     *
+     * @param failure the exception the call failed with
+     * @return the outcome tag value
+     */
+    public static String outcome(Throwable failure) {
+        if (failure instanceof HttpStatusCodeException exception) {
+            return outcome(exception.getStatusCode());
+        }
+        return "error";
+    }
+
+    /**
+     * Returns the outcome tag of a response status.
+     *
+     * @param status the response status
+     * @return the outcome tag value
+     */
+    public static String outcome(HttpStatusCode status) {
+        if (status.isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS)) {
+            return "429";
+        }
+        return status.value() / 100 + "xx";
+    }
+}
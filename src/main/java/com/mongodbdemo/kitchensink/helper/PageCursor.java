@@ -0,0 +1,60 @@
+package com.mongodbdemo.kitchensink.helper;
+
+import com.mongodbdemo.kitchensink.model.Member;
+import org.bson.Document;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position after the last member of a page, exchanged with clients as an opaque token.
+ *
+ * @param name the name of the last member of the page
+ * @param id   the id of the last member of the page
+ */
+public record PageCursor(String name, Long id) {
+
+    public static final PageCursor FIRST = new PageCursor(null, null);
+
+    private static final char SEPARATOR = ':';
+
+    public static PageCursor after(Member member) {
+        return new PageCursor(member.getName(), member.getId());
+    }
+
+    public static PageCursor after(Document member) {
+        return new PageCursor(member.getString("name"), member.getLong("_id"));
+    }
+
+    /**
+     * Encodes the cursor as a URL safe token.
+     *
+     * @return the token
+     */
+    public String encode() {
+        String raw = id + String.valueOf(SEPARATOR) + name;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token created by {@link #encode()}.
+     *
+     * @param token the token
+     * @return the cursor
+     * @throws ResponseStatusException with status 400 if the token is malformed
+     */
+    public static PageCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 1) {
+                throw new IllegalArgumentException("Missing separator");
+            }
+            return new PageCursor(raw.substring(separator + 1), Long.parseLong(raw.substring(0, separator)));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid page token");
+        }
+    }
+}
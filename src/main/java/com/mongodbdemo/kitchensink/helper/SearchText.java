@@ -0,0 +1,194 @@
+package com.mongodbdemo.kitchensink.helper;
+
+import org.bson.Document;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * The text of the searchable member fields as stored and matched by the full-text search.
+ * <p>
+ * Every member document carries the trigrams of its name, email and phone number under {@value #FIELD}, one
+ * multikey-indexed array per field. A search for a fragment of at least {@value #GRAM_LENGTH} characters finds
+ * the candidates whose field has all trigrams of the fragment, and the candidates are then checked and ranked on
+ * the actual field values.
+ */
+public final class SearchText {
+
+    /**
+     * The document field holding the trigrams, by searchable field.
+     */
+    public static final String FIELD = "search";
+
+    /**
+     * The searchable document fields.
+     */
+    public static final List<String> FIELDS = List.of("name", "email", "phoneNumber");
+
+    /**
+     * The length of the n-grams, and so the minimum length of a searched fragment.
+     */
+    public static final int GRAM_LENGTH = 3;
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern NON_DIGITS = Pattern.compile("\\D+");
+    private static final Pattern PHONE_QUERY = Pattern.compile("[0-9 +()./-]+");
+
+    private SearchText() {
+    }
+
+    /**
+     * Lower-cases the text, strips accents and collapses whitespace, so {@code "José  M"} and {@code "jose m"}
+     * are searched alike.
+     *
+     * @param text the text
+     * @return the normalized text, with leading whitespace removed
+     */
+    public static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        String stripped = COMBINING_MARKS.matcher(decomposed).replaceAll("");
+        return WHITESPACE.matcher(stripped).replaceAll(" ").stripLeading().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the value of a searchable field as it is matched: phone numbers by their digits, names and emails
+     * normalized.
+     *
+     * @param field the searchable field
+     * @param value the value of the field, may be {@code null}
+     * @return the searched text, empty for {@code null}
+     */
+    public static String searchable(String field, String value) {
+        if (value == null) {
+            return "";
+        }
+        return "phoneNumber".equals(field) ? NON_DIGITS.matcher(value).replaceAll("") : normalize(value).strip();
+    }
+
+    /**
+     * Returns the distinct trigrams of the value of a searchable field, as stored under {@value #FIELD}.
+     *
+     * @param field the searchable field
+     * @param value the value of the field, may be {@code null}
+     * @return the trigrams, empty for values shorter than {@value #GRAM_LENGTH}
+     */
+    public static List<String> grams(String field, String value) {
+        return grams(searchable(field, value));
+    }
+
+    /**
+     * Builds the {@value #FIELD} sub-document of a member, with the trigrams of each searchable field.
+     *
+     * @param name        the name
+     * @param email       the email
+     * @param phoneNumber the phone number
+     * @return the document to store under {@value #FIELD}
+     */
+    public static Document document(String name, String email, String phoneNumber) {
+        return new Document("name", grams("name", name))
+                .append("email", grams("email", email))
+                .append("phoneNumber", grams("phoneNumber", phoneNumber));
+    }
+
+    /**
+     * Parses a search query.
+     *
+     * @param query the searched fragment
+     * @return the terms, which match nothing if the fragment is too short
+     */
+    public static Terms terms(String query) {
+        String text = normalize(query).strip();
+        String digits = PHONE_QUERY.matcher(query.strip()).matches() ? NON_DIGITS.matcher(query).replaceAll("") : "";
+        return new Terms(text.length() >= GRAM_LENGTH ? text : null,
+                digits.length() >= GRAM_LENGTH ? digits : null);
+    }
+
+    private static List<String> grams(String text) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return new ArrayList<>(grams);
+    }
+
+    /**
+     * The terms of a search query.
+     *
+     * @param text   the normalized fragment searched in names and emails, or {@code null} if it is too short
+     * @param digits the digits searched in phone numbers, or {@code null} if the query is not a phone number
+     *               fragment of at least {@value #GRAM_LENGTH} digits
+     */
+    public record Terms(String text, String digits) {
+
+        /**
+         * Whether the query can match anything.
+         *
+         * @return {@code true} if there is a fragment to search
+         */
+        public boolean isSearchable() {
+            return text != null || digits != null;
+        }
+
+        /**
+         * The trigrams a candidate must all have, by searchable field.
+         *
+         * @return the trigrams of the searched fragments, without the fields that are not searched
+         */
+        public Map<String, List<String>> grams() {
+            Map<String, List<String>> grams = new LinkedHashMap<>();
+            if (text != null) {
+                grams.put("name", SearchText.grams(text));
+                grams.put("email", SearchText.grams(text));
+            }
+            if (digits != null) {
+                grams.put("phoneNumber", SearchText.grams(digits));
+            }
+            return grams;
+        }
+
+        /**
+         * Scores how well a member matches: 4 for a field equal to the fragment, 3 for a field starting with it,
+         * 2 for a word of a field starting with it (a surname, an email domain) and 1 for any other occurrence.
+         *
+         * @param name        the name of the member
+         * @param email       the email of the member
+         * @param phoneNumber the phone number of the member
+         * @return the score of the best matching field, or 0 if no field contains the fragment
+         */
+        public int score(String name, String email, String phoneNumber) {
+            int score = 0;
+            if (text != null) {
+                score = Math.max(score, score(searchable("name", name), text));
+                score = Math.max(score, score(searchable("email", email), text));
+            }
+            if (digits != null) {
+                score = Math.max(score, score(searchable("phoneNumber", phoneNumber), digits));
+            }
+            return score;
+        }
+
+        private static int score(String value, String fragment) {
+            int index = value.indexOf(fragment);
+            if (index < 0) {
+                return 0;
+            }
+            if (index == 0) {
+                return value.length() == fragment.length() ? 4 : 3;
+            }
+            for (; index >= 0; index = value.indexOf(fragment, index + 1)) {
+                if (!Character.isLetterOrDigit(value.charAt(index - 1))) {
+                    return 2;
+                }
+            }
+            return 1;
+        }
+    }
+}
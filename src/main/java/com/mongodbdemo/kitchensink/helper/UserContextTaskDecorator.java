@@ -0,0 +1,36 @@
+package com.mongodbdemo.kitchensink.helper;
+
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Propagates the {@link UserContext} of the submitting thread to tasks run on the application task executor,
+ * which runs them on virtual threads when {@code spring.threads.virtual.enabled=true}.
+ */
+@Component
+public class UserContextTaskDecorator implements TaskDecorator {
+
+    /**
+     * Wraps the task so it runs with the user ID of the thread that submitted it.
+     *
+     * @param runnable the task to run
+     * @return the task running with the submitting thread's user ID
+     */
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        String userId = UserContext.getUserId();
+        return () -> {
+            String previous = UserContext.getUserId();
+            UserContext.setUserId(userId);
+            try {
+                runnable.run();
+            } finally {
+                if (previous != null) {
+                    UserContext.setUserId(previous);
+                } else {
+                    UserContext.clear();
+                }
+            }
+        };
+    }
+}
@@ -4,11 +4,13 @@ import jakarta.validation.constraints.*;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Transient;
-import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.Instant;
+
 @Data
 @Document(collection = "members")
+// Indexes are declared and built by MemberIndexManager
 public class Member {
     @Transient
     public static final String SEQUENCE_NAME = "MEMBER_ID_SEQUENCE";
@@ -23,7 +25,6 @@ public class Member {
     @NotNull
     @NotEmpty
     @Email
-    @Indexed(unique = true)
     private String email;
 
     @NotNull
@@ -31,4 +32,9 @@ public class Member {
     @Digits(fraction = 0, integer = 12)
     private String phoneNumber;
 
+    // Maintained by MemberService on every write; values sent by clients are ignored
+    private long version;
+
+    private Instant lastModified;
+
 }
@@ -0,0 +1,208 @@
+package com.mongodbdemo.kitchensink.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodbdemo.kitchensink.annotation.RateLimit;
+import com.mongodbdemo.kitchensink.dto.RateLimitBatch;
+import com.mongodbdemo.kitchensink.dto.RateLimitQuotas;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Enforces {@link RateLimit} against the quotas of the rate limit service without calling it per request, active
+ * when {@code ratelimit.mode=batched}.
+ * <p>
+ * Each request takes one from the last quota the service returned for the user; a user without a quota yet is
+ * let through until the next flush returns one. Every {@code ratelimit.batched.flush-interval-ms} the requests
+ * consumed by all users since the last flush are posted to {@code ratelimit.service.url/batch} in one call, which
+ * answers with the new quota of each reported user. Users whose quota is used up are reported with no requests, so
+ * they get a new quota once the service refills it. Users over quota are rejected locally until their
+ * {@code retry-after} has passed.
+ * <p>
+ * So the service sees one call per flush window instead of one per request, and the decisions are at most one
+ * window stale. Unlike {@code ratelimit.mode=local}, the limits declared on {@code @RateLimit} are not used, the
+ * service decides as in {@code ratelimit.mode=remote}.
+ */
+@Component
+@ConditionalOnProperty(name = "ratelimit.mode", havingValue = "batched")
+public class BatchedRateLimiter implements RateLimiter, MeterBinder {
+
+    private final Logger log = Logger.getLogger(getClass().getName());
+
+    private final RestTemplate restTemplate;
+    private final String batchUrl;
+    private final long flushIntervalNanos;
+    private final LongSupplier nanoClock;
+    private final Cache<String, UserQuota> quotas;
+    private final LongAdder flushes = new LongAdder();
+
+    /**
+     * Constructs a {@code BatchedRateLimiter}.
+     *
+     * @param restTemplate        the {@code RestTemplate} used to flush the consumption
+     * @param rateLimitServiceUrl the URL of the rate limit service
+     * @param flushIntervalMillis how often the consumption is flushed
+     * @param idleExpirySeconds   how long the quota of an idle user is kept
+     * @param maximumUsers        the maximum number of users whose quota is kept in memory
+     */
+    @Autowired
+    public BatchedRateLimiter(RestTemplate restTemplate,
+                              @Value("${ratelimit.service.url}") String rateLimitServiceUrl,
+                              @Value("${ratelimit.batched.flush-interval-ms:1000}") long flushIntervalMillis,
+                              @Value("${ratelimit.batched.idle-expiry-seconds:600}") long idleExpirySeconds,
+                              @Value("${ratelimit.batched.maximum-users:100000}") long maximumUsers) {
+        this(restTemplate, rateLimitServiceUrl, Duration.ofMillis(flushIntervalMillis),
+                Duration.ofSeconds(idleExpirySeconds), maximumUsers, System::nanoTime);
+    }
+
+    BatchedRateLimiter(RestTemplate restTemplate, String rateLimitServiceUrl, Duration flushInterval,
+                       Duration idleExpiry, long maximumUsers, LongSupplier nanoClock) {
+        this.restTemplate = restTemplate;
+        this.batchUrl = rateLimitServiceUrl + "/batch";
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.nanoClock = nanoClock;
+        this.quotas = Caffeine.newBuilder()
+                .expireAfterAccess(idleExpiry)
+                .maximumSize(maximumUsers)
+                .build();
+    }
+
+    /**
+     * Takes a request from the user's last known quota.
+     *
+     * @param userId    the ID of the user making the request
+     * @param rateLimit the limit declared on the invoked method, not used as the service decides the quotas
+     * @return {@code 0} if the request is allowed, otherwise the nanoseconds until the user is unblocked or, if
+     *         the quota is used up, until the next flush
+     */
+    @Override
+    public long tryAcquire(String userId, RateLimit rateLimit) {
+        return quotas.get(userId, id -> new UserQuota()).tryAcquire(nanoClock.getAsLong(), flushIntervalNanos);
+    }
+
+    @Override
+    public String mode() {
+        return "batched";
+    }
+
+    /**
+     * Posts the requests consumed since the last flush to the rate limit service and applies the quotas it
+     * returns. If the call fails, the consumption is kept for the next flush and the last quotas stay in force.
+     */
+    @Scheduled(fixedDelayString = "${ratelimit.batched.flush-interval-ms:1000}")
+    public void flush() {
+        Map<String, Long> consumed = new HashMap<>();
+        quotas.asMap().forEach((userId, quota) -> {
+            long requests = quota.unreported.sumThenReset();
+            if (requests > 0 || quota.isUsedUp()) {
+                consumed.put(userId, requests);
+            }
+        });
+        if (consumed.isEmpty()) {
+            return;
+        }
+
+        RateLimitQuotas response;
+        try {
+            response = restTemplate.postForObject(batchUrl, new RateLimitBatch(consumed), RateLimitQuotas.class);
+            flushes.increment();
+        } catch (RestClientException exception) {
+            log.warning("Cannot flush rate limit consumption of " + consumed.size() + " users: "
+                    + exception.getMessage());
+            consumed.forEach((userId, requests) -> {
+                UserQuota quota = quotas.getIfPresent(userId);
+                if (quota != null) {
+                    quota.unreported.add(requests);
+                }
+            });
+            return;
+        }
+
+        if (response != null && response.quotas() != null) {
+            long now = nanoClock.getAsLong();
+            response.quotas().forEach((userId, snapshot) -> {
+                UserQuota quota = quotas.getIfPresent(userId);
+                if (quota != null) {
+                    quota.apply(snapshot, now);
+                }
+            });
+        }
+    }
+
+    /**
+     * Registers the number of successful flushes with the given registry.
+     *
+     * @param registry the registry to bind to
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("ratelimit.batched.flushes", flushes, LongAdder::sum)
+                .description("Batched calls to the rate limit service")
+                .register(registry);
+    }
+
+    /**
+     * The last quota of a user and the requests taken from it since.
+     */
+    static final class UserQuota {
+        // requests left of the last quota, or UNKNOWN before the first one
+        static final long UNKNOWN = Long.MAX_VALUE;
+
+        private final AtomicLong available = new AtomicLong(UNKNOWN);
+        private final LongAdder unreported = new LongAdder();
+        private volatile long blockedUntil;
+        private volatile boolean blocked;
+
+        long tryAcquire(long now, long flushIntervalNanos) {
+            if (blocked) {
+                long waitNanos = blockedUntil - now;
+                if (waitNanos > 0) {
+                    return waitNanos;
+                }
+                blocked = false;
+            }
+            while (true) {
+                long left = available.get();
+                if (left <= 0) {
+                    return flushIntervalNanos;
+                }
+                if (left == UNKNOWN || available.compareAndSet(left, left - 1)) {
+                    unreported.increment();
+                    return 0;
+                }
+            }
+        }
+
+        boolean isUsedUp() {
+            return available.get() <= 0;
+        }
+
+        void apply(RateLimitQuotas.Quota snapshot, long now) {
+            if (snapshot.retryAfterSeconds() > 0) {
+                blockedUntil = now + Duration.ofSeconds(snapshot.retryAfterSeconds()).toNanos();
+                blocked = true;
+                // the service sends a new quota with the first report after the block
+                available.set(UNKNOWN);
+            } else {
+                // the requests taken while the flush was in flight are not counted in the snapshot yet
+                available.set(Math.max(0, snapshot.remaining() - unreported.sum()));
+            }
+        }
+    }
+}
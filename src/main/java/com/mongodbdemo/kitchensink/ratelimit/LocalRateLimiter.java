@@ -0,0 +1,222 @@
+package com.mongodbdemo.kitchensink.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodbdemo.kitchensink.annotation.RateLimit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Enforces {@link RateLimit} in the JVM with a lock-free token bucket per user, active when
+ * {@code ratelimit.mode=local}.
+ * <p>
+ * Consumed requests are counted per user and reported to the rate limit service every
+ * {@code ratelimit.local.sync-interval-ms}. When the service answers a report with 429, the user is
+ * rejected locally until its {@code retry-after} has passed.
+ */
+@Component
+@ConditionalOnProperty(name = "ratelimit.mode", havingValue = "local")
+public class LocalRateLimiter implements RateLimiter {
+
+    private final Logger log = Logger.getLogger(getClass().getName());
+
+    private final RestTemplate restTemplate;
+    private final String rateLimitServiceUrl;
+    private final LongSupplier nanoClock;
+    private final Cache<BucketKey, TokenBucket> buckets;
+    private final Map<String, LongAdder> unreported = new ConcurrentHashMap<>();
+    private final Map<String, Long> blockedUntil = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a {@code LocalRateLimiter}.
+     *
+     * @param restTemplate        the {@code RestTemplate} used to report consumption
+     * @param rateLimitServiceUrl the URL of the rate limit service
+     * @param idleExpirySeconds   how long the bucket of an idle user is kept
+     * @param maximumUsers        the maximum number of buckets kept in memory
+     */
+    @Autowired
+    public LocalRateLimiter(RestTemplate restTemplate,
+                            @Value("${ratelimit.service.url}") String rateLimitServiceUrl,
+                            @Value("${ratelimit.local.idle-expiry-seconds:600}") long idleExpirySeconds,
+                            @Value("${ratelimit.local.maximum-users:100000}") long maximumUsers) {
+        this(restTemplate, rateLimitServiceUrl, Duration.ofSeconds(idleExpirySeconds), maximumUsers, System::nanoTime);
+    }
+
+    LocalRateLimiter(RestTemplate restTemplate, String rateLimitServiceUrl, Duration idleExpiry,
+                     long maximumUsers, LongSupplier nanoClock) {
+        this.restTemplate = restTemplate;
+        this.rateLimitServiceUrl = rateLimitServiceUrl;
+        this.nanoClock = nanoClock;
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(idleExpiry)
+                .maximumSize(maximumUsers)
+                .build();
+    }
+
+    /**
+     * Takes a token from the user's bucket for the given limit.
+     *
+     * @param userId    the ID of the user making the request
+     * @param rateLimit the limit declared on the invoked method
+     * @return {@code 0} if the request is allowed, otherwise the nanoseconds until it would be
+     */
+    @Override
+    public long tryAcquire(String userId, RateLimit rateLimit) {
+        long now = nanoClock.getAsLong();
+        Long blocked = blockedUntil.get(userId);
+        if (blocked != null) {
+            if (blocked - now > 0) {
+                return blocked - now;
+            }
+            blockedUntil.remove(userId, blocked);
+        }
+
+        BucketKey key = new BucketKey(userId, rateLimit.permitsPerSecond(), rateLimit.burst());
+        long waitNanos = buckets.get(key, TokenBucket::new).tryAcquire(now);
+        if (waitNanos == 0) {
+            count(userId, 1);
+        }
+        return waitNanos;
+    }
+
+    @Override
+    public String mode() {
+        return "local";
+    }
+
+    /**
+     * Reports the requests consumed since the last run to the rate limit service. Counts that cannot be reported
+     * are kept for the next run.
+     */
+    @Scheduled(fixedDelayString = "${ratelimit.local.sync-interval-ms:1000}")
+    public void reconcile() {
+        unreported.forEach((userId, counter) -> {
+            long consumed = counter.sumThenReset();
+            if (consumed == 0) {
+                unreported.remove(userId, counter);
+                // Requests counted between the reset and the removal would be lost with the counter
+                long late = counter.sumThenReset();
+                if (late != 0) {
+                    count(userId, late);
+                }
+            } else if (!report(userId, consumed)) {
+                count(userId, consumed);
+            }
+        });
+    }
+
+    /**
+     * Sends the consumed request count of one user to the rate limit service.
+     *
+     * @param userId   the ID of the user
+     * @param consumed the number of requests allowed locally since the last report
+     * @return {@code true} if the service received the count, {@code false} if it has to be reported again
+     */
+    boolean report(String userId, long consumed) {
+        String url = rateLimitServiceUrl + "/" + userId + "?consumed=" + consumed;
+        try {
+            restTemplate.exchange(url, HttpMethod.PUT, new HttpEntity<>(new HttpHeaders()), Void.class);
+            return true;
+        } catch (HttpClientErrorException exception) {
+            if (exception.getStatusCode().isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS)) {
+                block(userId, retryAfterSeconds(exception));
+                return true;
+            }
+            log.warning("Cannot report rate limit consumption for the user " + userId + ": " + exception.getMessage());
+            return false;
+        } catch (RestClientException exception) {
+            log.warning("Cannot report rate limit consumption for the user " + userId + ": " + exception.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Adds requests to the unreported count of the user. If {@link #reconcile} removed the counter meanwhile, the
+     * requests are moved to a new one; whichever side resets the removed counter last reports them, never both.
+     */
+    private void count(String userId, long requests) {
+        LongAdder counter = unreported.computeIfAbsent(userId, id -> new LongAdder());
+        counter.add(requests);
+        if (unreported.get(userId) != counter) {
+            long stray = counter.sumThenReset();
+            if (stray != 0) {
+                count(userId, stray);
+            }
+        }
+    }
+
+    /**
+     * Rejects all requests of the user for the given number of seconds.
+     *
+     * @param userId  the ID of the user
+     * @param seconds how long the user stays blocked
+     */
+    void block(String userId, long seconds) {
+        blockedUntil.put(userId, nanoClock.getAsLong() + Duration.ofSeconds(seconds).toNanos());
+    }
+
+    private static long retryAfterSeconds(HttpClientErrorException exception) {
+        HttpHeaders headers = exception.getResponseHeaders();
+        String retryAfter = headers != null ? headers.getFirst("retry-after") : null;
+        try {
+            return retryAfter != null ? Long.parseLong(retryAfter) : 1;
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    private record BucketKey(String userId, double permitsPerSecond, int burst) {
+    }
+
+    /**
+     * Token bucket kept as a single theoretical arrival time (GCRA), so taking a token is one CAS.
+     */
+    static final class TokenBucket {
+        private final long emissionIntervalNanos;
+        private final long toleranceNanos;
+        private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+        TokenBucket(BucketKey key) {
+            this(key.permitsPerSecond(), key.burst());
+        }
+
+        TokenBucket(double permitsPerSecond, int burst) {
+            this.emissionIntervalNanos = (long) (Duration.ofSeconds(1).toNanos() / permitsPerSecond);
+            this.toleranceNanos = emissionIntervalNanos * Math.max(1, burst);
+        }
+
+        long tryAcquire(long now) {
+            while (true) {
+                long arrival = theoreticalArrival.get();
+                long start = arrival == Long.MIN_VALUE || arrival - now < 0 ? now : arrival;
+                long next = start + emissionIntervalNanos;
+                long waitNanos = next - now - toleranceNanos;
+                if (waitNanos > 0) {
+                    return waitNanos;
+                }
+                if (theoreticalArrival.compareAndSet(arrival, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.mongodbdemo.kitchensink.ratelimit;
+
+import com.mongodbdemo.kitchensink.annotation.RateLimit;
+
+/**
+ * Decides on {@link RateLimit} in process, without calling the rate limit service on the request path. The
+ * implementation is selected with {@code ratelimit.mode}; with {@code ratelimit.mode=remote} there is none and
+ * every request is checked by the rate limit service.
+ */
+public interface RateLimiter {
+
+    /**
+     * Takes a request from the user's limit.
+     *
+     * @param userId    the ID of the user making the request
+     * @param rateLimit the limit declared on the invoked method
+     * @return {@code 0} if the request is allowed, otherwise the nanoseconds until it would be
+     */
+    long tryAcquire(String userId, RateLimit rateLimit);
+
+    /**
+     * Returns the value of {@code ratelimit.mode} this limiter is active for, used to tag the check timers.
+     *
+     * @return the mode
+     */
+    String mode();
+}
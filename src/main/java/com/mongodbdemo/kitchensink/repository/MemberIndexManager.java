@@ -0,0 +1,365 @@
+package com.mongodbdemo.kitchensink.repository;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodbdemo.kitchensink.helper.SearchText;
+import com.mongodbdemo.kitchensink.model.Member;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Declares the indexes of the members collection and builds the missing ones once the application is ready, so
+ * startup never waits for an index build on a large collection.
+ * <p>
+ * While a build runs, its progress as reported by {@code currentOp} is logged every
+ * {@code members.indexes.progress-interval-ms} and exposed in the health details. Once the indexes exist, the
+ * repository queries are explained and a warning is logged for every plan that scans the collection or sorts in
+ * memory.
+ * <p>
+ * Duplicate emails are only rejected by the unique email index, so writes that set an email are refused until
+ * that index is known to exist (see {@link #isEmailUnique()}). The health is {@code DOWN} once a build failed.
+ */
+@Component
+@ConditionalOnProperty(name = "members.indexes.manage", havingValue = "true", matchIfMissing = true)
+public class MemberIndexManager implements HealthIndicator {
+
+    /**
+     * Plan stages that read the whole collection or buffer the results to sort them.
+     */
+    static final Set<String> BLOCKING_STAGES = Set.of("COLLSCAN", "SORT");
+
+    /**
+     * The name of the unique index on {@code email}.
+     */
+    public static final String EMAIL_INDEX = "email";
+
+    /**
+     * The index name in a duplicate key error, such as {@code E11000 duplicate key error collection: db.members
+     * index: email dup key: { email: "..." }}.
+     */
+    private static final Pattern DUPLICATE_KEY_INDEX = Pattern.compile("\\bindex: (\\S+)");
+
+    enum State { PENDING, BUILDING, READY, FAILED }
+
+    /**
+     * What identifies an index: an existing index only counts as a declared one if all three match.
+     */
+    private record IndexSignature(String name, Document keys, boolean unique) {
+
+        static IndexSignature of(Index index) {
+            Document options = index.getIndexOptions();
+            return new IndexSignature(options.getString("name"), index.getIndexKeys(),
+                    Boolean.TRUE.equals(options.get("unique")));
+        }
+
+        static IndexSignature of(IndexInfo indexInfo) {
+            return new IndexSignature(indexInfo.getName(), MemberIndexManager.keys(indexInfo), indexInfo.isUnique());
+        }
+    }
+
+    private final Logger log = Logger.getLogger(getClass().getName());
+
+    private final MongoTemplate mongoTemplate;
+    private final Executor executor;
+    private final long progressIntervalMillis;
+
+    private volatile State state = State.PENDING;
+    private volatile boolean emailUnique;
+    private volatile String progress;
+    private volatile Map<String, List<String>> planWarnings = Map.of();
+
+    /**
+     * Constructs a {@code MemberIndexManager}.
+     *
+     * @param mongoTemplate          the template used to build the indexes and explain the queries
+     * @param executor               the executor on which the indexes are built
+     * @param progressIntervalMillis how often the progress of a running build is reported
+     */
+    @Autowired
+    public MemberIndexManager(MongoTemplate mongoTemplate,
+                              @Qualifier("applicationTaskExecutor") Executor executor,
+                              @Value("${members.indexes.progress-interval-ms:5000}") long progressIntervalMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.executor = executor;
+        this.progressIntervalMillis = progressIntervalMillis;
+    }
+
+    /**
+     * The indexes of the members collection: {@code name_id} serves the name ordered listings and pages,
+     * {@code email} enforces unique emails and serves lookups by email, {@code lastModified} serves the refresh
+     * of the name index, and the multikey {@code search_*} indexes serve the full-text search on the trigrams of
+     * each searchable field.
+     *
+     * @return the declared indexes
+     */
+    static List<Index> indexes() {
+        // background only matters for servers before 4.2, which otherwise lock the collection during the build
+        return List.of(
+                new Index().on("name", Sort.Direction.ASC).on("_id", Sort.Direction.ASC).named("name_id").background(),
+                new Index().on("email", Sort.Direction.ASC).unique().named(EMAIL_INDEX).background(),
+                new Index().on("lastModified", Sort.Direction.DESC).named("lastModified").background(),
+                searchIndex("name"),
+                searchIndex("email"),
+                searchIndex("phoneNumber"));
+    }
+
+    /**
+     * The queries issued by the member repositories, by repository method, as used to verify their plans.
+     *
+     * @return the queries to explain
+     */
+    static Map<String, Query> repositoryQueries() {
+        Map<String, Query> queries = new LinkedHashMap<>();
+        queries.put("findAllByOrderByNameAsc", new Query().with(Sort.by(Sort.Order.asc("name"))));
+        queries.put("findByEmail", new Query(Criteria.where("email").is("")));
+        queries.put("findPageAfter (first page)", MemberRepositoryCustomImpl.pageQuery(null, null, 1));
+        queries.put("findPageAfter", MemberRepositoryCustomImpl.pageQuery("", 0L, 1));
+        queries.put("streamAll", new Query().with(Sort.by(Sort.Order.asc("_id"))));
+        queries.put("streamNames", new Query().with(MemberRepositoryCustomImpl.NAME_ID_SORT));
+        queries.put("streamNamesModifiedSince", MemberRepositoryCustomImpl.modifiedSinceQuery(Instant.EPOCH));
+        // a digits-only fragment is searched in all three fields
+        queries.put("findSearchCandidates", MemberRepositoryCustomImpl.searchQuery(
+                SearchText.terms("555").grams(), 1, Duration.ofSeconds(1)));
+        return queries;
+    }
+
+    /**
+     * Builds the missing indexes and verifies the query plans in the background.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        executor.execute(() -> {
+            if (ensureIndexes()) {
+                verifyQueryPlans();
+            }
+        });
+    }
+
+    /**
+     * Builds the declared indexes that do not exist yet, reporting the progress until they are built. An index
+     * exists if one has the same name, keys and uniqueness; an index that differs in one of them, such as a
+     * non-unique {@code email} index, makes the build fail and has to be dropped first.
+     *
+     * @return {@code true} if all declared indexes exist
+     */
+    boolean ensureIndexes() {
+        try {
+            IndexOperations indexOps = mongoTemplate.indexOps(Member.class);
+            Set<IndexSignature> existing = indexOps.getIndexInfo().stream()
+                    .map(IndexSignature::of)
+                    .collect(Collectors.toSet());
+            List<Index> missing = indexes().stream()
+                    .filter(index -> !existing.contains(IndexSignature.of(index)))
+                    .toList();
+            emailUnique = missing.stream().noneMatch(MemberIndexManager::isEmailIndex);
+            if (missing.isEmpty()) {
+                state = State.READY;
+                return true;
+            }
+
+            state = State.BUILDING;
+            CompletableFuture<Void> build = CompletableFuture.runAsync(() -> missing.forEach(index -> {
+                log.info("Building index " + index.getIndexOptions().get("name") + " on " + collectionName());
+                indexOps.ensureIndex(index);
+                if (isEmailIndex(index)) {
+                    emailUnique = true;
+                }
+            }), executor);
+            awaitBuild(build);
+            state = State.READY;
+            progress = null;
+            log.info("Built " + missing.size() + " index(es) on " + collectionName());
+            return true;
+        } catch (DataAccessException | MongoException exception) {
+            state = State.FAILED;
+            log.warning("Cannot build the indexes of " + collectionName() + ": " + exception.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Explains every repository query and logs a warning for each plan with a blocking stage.
+     *
+     * @return the blocking stages found, by repository method
+     */
+    Map<String, List<String>> verifyQueryPlans() {
+        Map<String, List<String>> warnings = new LinkedHashMap<>();
+        try {
+            MongoCollection<Document> collection = mongoTemplate.getCollection(collectionName());
+            repositoryQueries().forEach((method, query) -> {
+                Document explain = collection.find(query.getQueryObject())
+                        .sort(query.getSortObject())
+                        .limit(query.getLimit())
+                        .explain();
+                List<String> stages = blockingStages(explain);
+                if (!stages.isEmpty()) {
+                    warnings.put(method, stages);
+                    log.warning("MemberRepository." + method + " is planned with " + String.join(", ", stages)
+                            + "; check the indexes of " + collectionName());
+                }
+            });
+        } catch (DataAccessException | MongoException exception) {
+            log.warning("Cannot explain the queries on " + collectionName() + ": " + exception.getMessage());
+        }
+        planWarnings = warnings;
+        return warnings;
+    }
+
+    /**
+     * Finds the blocking stages of the winning plan of an explain output, for both the classic and the slot based
+     * execution engines.
+     *
+     * @param explain the output of {@code explain}
+     * @return the names of the blocking stages, in plan order
+     */
+    static List<String> blockingStages(Document explain) {
+        List<String> stages = new ArrayList<>();
+        Document queryPlanner = explain.get("queryPlanner", Document.class);
+        if (queryPlanner != null) {
+            collectBlockingStages(queryPlanner.get("winningPlan"), stages);
+        }
+        return stages;
+    }
+
+    /**
+     * Checks whether a duplicate key error was raised by the unique email index, going by the index name the
+     * server reports in the error message.
+     *
+     * @param message the message of the duplicate key error
+     * @return {@code true} if the email is already taken, {@code false} for any other unique index
+     */
+    public static boolean isEmailIndexViolation(String message) {
+        if (message == null) {
+            return false;
+        }
+        Matcher index = DUPLICATE_KEY_INDEX.matcher(message);
+        return index.find() && index.group(1).equals(EMAIL_INDEX);
+    }
+
+    /**
+     * Whether the unique email index is known to exist, so that inserts and updates cannot store an email twice.
+     * False until the indexes were checked, while the email index is being built and if it could not be built.
+     *
+     * @return {@code true} if writes that set an email may proceed
+     */
+    public boolean isEmailUnique() {
+        return emailUnique;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder health = (state == State.FAILED ? Health.down() : Health.up())
+                .withDetail("state", state)
+                .withDetail("emailUnique", emailUnique);
+        if (progress != null) {
+            health.withDetail("progress", progress);
+        }
+        if (!planWarnings.isEmpty()) {
+            health.withDetail("planWarnings", planWarnings);
+        }
+        return health.build();
+    }
+
+    State state() {
+        return state;
+    }
+
+    private void awaitBuild(CompletableFuture<Void> build) {
+        while (true) {
+            try {
+                build.get(progressIntervalMillis, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException timeout) {
+                reportProgress();
+            } catch (ExecutionException exception) {
+                if (exception.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new IllegalStateException(exception.getCause());
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the index build", exception);
+            }
+        }
+    }
+
+    /**
+     * Logs the progress of the index builds running on the members collection.
+     */
+    void reportProgress() {
+        try {
+            Document currentOp = mongoTemplate.getMongoDatabaseFactory().getMongoDatabase("admin").runCommand(
+                    new Document("currentOp", true).append("command.createIndexes", collectionName()));
+            for (Document operation : currentOp.getList("inprog", Document.class, List.of())) {
+                Document done = operation.get("progress", Document.class);
+                progress = done != null
+                        ? done.get("done", Number.class) + "/" + done.get("total", Number.class)
+                        : operation.getString("msg");
+                log.info("Index build on " + collectionName() + ": " + operation.getString("msg"));
+            }
+        } catch (MongoException exception) {
+            log.fine("Cannot read the index build progress: " + exception.getMessage());
+        }
+    }
+
+    private static boolean isEmailIndex(Index index) {
+        return EMAIL_INDEX.equals(index.getIndexOptions().get("name"));
+    }
+
+    private static Index searchIndex(String field) {
+        return new Index().on(SearchText.FIELD + "." + field, Sort.Direction.ASC)
+                .named(SearchText.FIELD + "_" + field).background();
+    }
+
+    private String collectionName() {
+        return mongoTemplate.getCollectionName(Member.class);
+    }
+
+    private static Document keys(IndexInfo indexInfo) {
+        Document keys = new Document();
+        indexInfo.getIndexFields().forEach(field ->
+                keys.append(field.getKey(), field.getDirection() == Sort.Direction.DESC ? -1 : 1));
+        return keys;
+    }
+
+    private static void collectBlockingStages(Object plan, List<String> stages) {
+        if (plan instanceof Document document) {
+            Object stage = document.get("stage");
+            if (stage instanceof String name && BLOCKING_STAGES.contains(name)) {
+                stages.add(name);
+            }
+            document.values().forEach(value -> collectBlockingStages(value, stages));
+        } else if (plan instanceof List<?> list) {
+            list.forEach(value -> collectBlockingStages(value, stages));
+        }
+    }
+}
@@ -1,15 +1,34 @@
 package com.mongodbdemo.kitchensink.repository;
 
+import com.mongodbdemo.kitchensink.helper.SearchText;
 import com.mongodbdemo.kitchensink.model.Member;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface MemberRepository extends MongoRepository<Member, Long> {
+public interface MemberRepository extends MongoRepository<Member, Long>, MemberRepositoryCustom {
+    /**
+     * Projection of the member queries that leaves out the search trigrams, which are only used by the search
+     * query and are larger than the member itself.
+     */
+    String WITHOUT_SEARCH = "{ '" + SearchText.FIELD + "' : 0 }";
+
+    @Override
+    @Query(fields = WITHOUT_SEARCH)
+    Optional<Member> findById(Long id);
+
+    @Query(fields = WITHOUT_SEARCH)
     List<Member> findAllByOrderByNameAsc();
 
+    @Query(fields = WITHOUT_SEARCH)
     Optional<Member> findByEmail(String email);
+
+    long removeById(Long id);
+
+    long removeByIdIn(Collection<Long> ids);
 }
@@ -0,0 +1,122 @@
+package com.mongodbdemo.kitchensink.repository;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodbdemo.kitchensink.model.Member;
+import org.bson.Document;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Member queries that are not expressible as derived repository queries.
+ */
+public interface MemberRepositoryCustom {
+
+    /**
+     * Finds the members that sort after the given (name, id) key, ordered by name and then id.
+     *
+     * @param afterName the name of the last member of the previous page, or {@code null} for the first page
+     * @param afterId   the id of the last member of the previous page, or {@code null} for the first page
+     * @param limit     the maximum number of members to return
+     * @return the members of the page
+     */
+    List<Member> findPageAfter(String afterName, Long afterId, int limit);
+
+    /**
+     * Finds the members that sort after the given (name, id) key like {@link #findPageAfter}, reading only the
+     * given fields. {@code name} and {@code _id} are always read, so a projection of only those fields is served
+     * from the (name, _id) index without fetching the documents.
+     *
+     * @param afterName the name of the last member of the previous page, or {@code null} for the first page
+     * @param afterId   the id of the last member of the previous page, or {@code null} for the first page
+     * @param limit     the maximum number of members to return
+     * @param fields    the document fields to read
+     * @return the projected member documents of the page
+     */
+    List<Document> findPageAfter(String afterName, Long afterId, int limit, Collection<String> fields);
+
+    /**
+     * Finds a member by id, reading only the given fields.
+     *
+     * @param id     the id of the member
+     * @param fields the document fields to read
+     * @return the projected member document, or empty if no member has the id
+     */
+    Optional<Document> findFieldsById(Long id, Collection<String> fields);
+
+    /**
+     * Streams all members in id order from a single cursor.
+     * The returned stream must be closed to release the cursor.
+     *
+     * @param batchSize the number of members fetched from the server per batch
+     * @return the members
+     */
+    Stream<Member> streamAll(int batchSize);
+
+    /**
+     * Streams the id and name of all members in (name, id) order from a single cursor, served from the
+     * (name, _id) index without fetching the documents.
+     * The returned stream must be closed to release the cursor.
+     *
+     * @param batchSize the number of entries fetched from the server per batch
+     * @return documents with only {@code _id} and {@code name}
+     */
+    Stream<Document> streamNames(int batchSize);
+
+    /**
+     * Streams the id, name and version of the members whose {@code lastModified} is at or after the given time,
+     * found with the {@code lastModified} index.
+     * The returned stream must be closed to release the cursor.
+     *
+     * @param since     the earliest modification time
+     * @param batchSize the number of entries fetched from the server per batch
+     * @return documents with only {@code _id}, {@code name} and {@code version}
+     */
+    Stream<Document> streamNamesModifiedSince(Instant since, int batchSize);
+
+    /**
+     * Finds the candidates of a full-text search: the members whose search trigrams of one of the given fields
+     * include all given trigrams. A candidate may still not contain the searched fragment, as its trigrams can
+     * appear in another order.
+     *
+     * @param grams   the trigrams by searchable field, not empty
+     * @param limit   the maximum number of candidates
+     * @param maxTime the time after which the server aborts the query
+     * @return the candidates, in no particular order
+     * @throws org.springframework.dao.DataAccessException caused by a
+     *         {@link com.mongodb.MongoExecutionTimeoutException} if the query ran out of time
+     */
+    List<Member> findSearchCandidates(Map<String, List<String>> grams, int limit, Duration maxTime);
+
+    /**
+     * Inserts the members with a single unordered bulk write, so one failing member does not stop the others.
+     *
+     * @param members the members to insert, with their ids already assigned
+     * @return the write errors, whose indexes refer to positions in {@code members}
+     */
+    List<BulkWriteError> insertUnordered(List<Member> members);
+
+    /**
+     * Sets the given fields of a member, increments its {@code version} and stamps its {@code lastModified} with
+     * a single {@code findAndModify}, leaving all other fields untouched.
+     *
+     * @param id     the id of the member
+     * @param fields the values to set by field name, must not be empty
+     * @return the member as it is after the update, or empty if no member has the id
+     * @throws org.springframework.dao.DuplicateKeyException if a new value violates a unique index
+     */
+    Optional<Member> setFields(Long id, Map<String, Object> fields);
+
+    /**
+     * Deletes a member with a single {@code findAndModify} and returns what was deleted.
+     *
+     * @param id the id of the member
+     * @return the deleted member, or empty if no member has the id
+     */
+    Optional<Member> findAndRemoveById(Long id);
+}
@@ -0,0 +1,206 @@
+package com.mongodbdemo.kitchensink.repository;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodbdemo.kitchensink.helper.SearchText;
+import com.mongodbdemo.kitchensink.model.Member;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Field;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * {@link MongoOperations} based implementation of {@link MemberRepositoryCustom}.
+ */
+public class MemberRepositoryCustomImpl implements MemberRepositoryCustom {
+
+    static final Sort NAME_ID_SORT = Sort.by(Sort.Order.asc("name"), Sort.Order.asc("_id"));
+
+    private final MongoOperations mongoOperations;
+
+    @Autowired
+    public MemberRepositoryCustomImpl(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    @Override
+    public List<Member> findPageAfter(String afterName, Long afterId, int limit) {
+        Query query = pageQuery(afterName, afterId, limit);
+        query.fields().exclude(SearchText.FIELD);
+        return mongoOperations.find(query, Member.class);
+    }
+
+    @Override
+    public List<Document> findPageAfter(String afterName, Long afterId, int limit, Collection<String> fields) {
+        Query query = pageQuery(afterName, afterId, limit);
+        project(query, fields).include("_id", "name");
+        return mongoOperations.find(query, Document.class, mongoOperations.getCollectionName(Member.class));
+    }
+
+    @Override
+    public Optional<Document> findFieldsById(Long id, Collection<String> fields) {
+        Query query = new Query(Criteria.where("_id").is(id));
+        project(query, fields);
+        return Optional.ofNullable(mongoOperations.findOne(query, Document.class,
+                mongoOperations.getCollectionName(Member.class)));
+    }
+
+    @Override
+    public Stream<Member> streamAll(int batchSize) {
+        Query query = new Query().with(Sort.by(Sort.Order.asc("_id"))).cursorBatchSize(batchSize);
+        query.fields().exclude(SearchText.FIELD);
+        return mongoOperations.stream(query, Member.class);
+    }
+
+    @Override
+    public Stream<Document> streamNames(int batchSize) {
+        Query query = new Query().with(NAME_ID_SORT).cursorBatchSize(batchSize);
+        query.fields().include("_id", "name");
+        return mongoOperations.stream(query, Document.class, mongoOperations.getCollectionName(Member.class));
+    }
+
+    @Override
+    public Stream<Document> streamNamesModifiedSince(Instant since, int batchSize) {
+        Query query = modifiedSinceQuery(since).cursorBatchSize(batchSize);
+        query.fields().include("_id", "name", "version");
+        return mongoOperations.stream(query, Document.class, mongoOperations.getCollectionName(Member.class));
+    }
+
+    @Override
+    public List<Member> findSearchCandidates(Map<String, List<String>> grams, int limit, Duration maxTime) {
+        return mongoOperations.find(searchQuery(grams, limit, maxTime), Member.class);
+    }
+
+    @Override
+    public List<BulkWriteError> insertUnordered(List<Member> members) {
+        try {
+            mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Member.class)
+                    .insert(members)
+                    .execute();
+            return List.of();
+        } catch (BulkOperationException e) {
+            return e.getErrors();
+        }
+    }
+
+    @Override
+    public Optional<Member> setFields(Long id, Map<String, Object> fields) {
+        return Optional.ofNullable(mongoOperations.findAndModify(
+                byId(id),
+                setUpdate(fields),
+                FindAndModifyOptions.options().returnNew(true),
+                Member.class));
+    }
+
+    @Override
+    public Optional<Member> findAndRemoveById(Long id) {
+        return Optional.ofNullable(mongoOperations.findAndRemove(byId(id), Member.class));
+    }
+
+    /**
+     * Builds the query for one member by id, which returns the member without its search trigrams.
+     *
+     * @param id the id of the member
+     * @return the query
+     */
+    static Query byId(Long id) {
+        Query query = new Query(Criteria.where("_id").is(id));
+        query.fields().exclude(SearchText.FIELD);
+        return query;
+    }
+
+    /**
+     * Builds a {@code $set} of exactly the given fields and of the search trigrams of the searchable ones, an
+     * {@code $inc} of the member version and a {@code $currentDate} of {@code lastModified}, so the server clock
+     * stamps the write.
+     *
+     * @param fields the values to set by field name
+     * @return the update
+     */
+    static Update setUpdate(Map<String, Object> fields) {
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("At least one field must be set");
+        }
+        Update update = new Update();
+        fields.forEach(update::set);
+        fields.forEach((field, value) -> {
+            if (SearchText.FIELDS.contains(field)) {
+                update.set(SearchText.FIELD + "." + field, SearchText.grams(field, (String) value));
+            }
+        });
+        return update.inc("version", 1).currentDate("lastModified");
+    }
+
+    /**
+     * Restricts the query to the given fields.
+     *
+     * @param query  the query
+     * @param fields the document fields to read
+     * @return the projection of the query
+     */
+    static Field project(Query query, Collection<String> fields) {
+        return query.fields().include(fields.toArray(String[]::new));
+    }
+
+    /**
+     * Builds the keyset query for a page, served as a range scan of the (name, _id) index.
+     *
+     * @param afterName the name of the last member of the previous page, or {@code null} for the first page
+     * @param afterId   the id of the last member of the previous page, or {@code null} for the first page
+     * @param limit     the maximum number of members to return
+     * @return the page query
+     */
+    static Query pageQuery(String afterName, Long afterId, int limit) {
+        Query query = new Query();
+        if (afterName != null && afterId != null) {
+            query.addCriteria(new Criteria().orOperator(
+                    Criteria.where("name").gt(afterName),
+                    Criteria.where("name").is(afterName).and("_id").gt(afterId)));
+        }
+        return query.with(NAME_ID_SORT).limit(limit);
+    }
+
+    /**
+     * Builds the query for the members modified at or after the given time, served as a range scan of the
+     * {@code lastModified} index.
+     *
+     * @param since the earliest modification time
+     * @return the query
+     */
+    static Query modifiedSinceQuery(Instant since) {
+        return new Query(Criteria.where("lastModified").gte(since));
+    }
+
+    /**
+     * Builds the query for the full-text search candidates: the members with all given trigrams in one of the
+     * searched fields, each field served by its multikey index. The server aborts the query once it has run
+     * for {@code maxTime}.
+     *
+     * @param grams   the trigrams by searchable field, not empty
+     * @param limit   the maximum number of candidates
+     * @param maxTime the time budget of the query on the server
+     * @return the candidate query, which does not read the trigrams
+     */
+    static Query searchQuery(Map<String, List<String>> grams, int limit, Duration maxTime) {
+        Criteria[] fields = grams.entrySet().stream()
+                .map(entry -> Criteria.where(SearchText.FIELD + "." + entry.getKey()).all(entry.getValue()))
+                .toArray(Criteria[]::new);
+        Query query = new Query(new Criteria().orOperator(fields)).limit(limit).maxTime(maxTime);
+        query.fields().exclude(SearchText.FIELD);
+        return query;
+    }
+}
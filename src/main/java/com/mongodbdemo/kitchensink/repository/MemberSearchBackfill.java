@@ -0,0 +1,136 @@
+package com.mongodbdemo.kitchensink.repository;
+
+import com.mongodb.MongoException;
+import com.mongodbdemo.kitchensink.helper.SearchText;
+import com.mongodbdemo.kitchensink.model.Member;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Adds the search trigrams to the member documents written before the full-text search existed. Runs once the
+ * application is ready and only finds work on the first start after an upgrade; members written since carry
+ * their trigrams from the write itself.
+ * <p>
+ * Each document is only updated if its name, email and phone number are still the ones the trigrams were
+ * computed from, so a concurrent update is never overwritten with stale trigrams.
+ */
+@Component
+public class MemberSearchBackfill {
+
+    private final Logger log = Logger.getLogger(getClass().getName());
+
+    private final MongoTemplate mongoTemplate;
+    private final Executor executor;
+    private final int batchSize;
+
+    /**
+     * Constructs a {@code MemberSearchBackfill}.
+     *
+     * @param mongoTemplate the template used to find and update the documents
+     * @param executor      the executor on which the backfill runs
+     * @param batchSize     the number of documents read per batch and updated per bulk write
+     */
+    @Autowired
+    public MemberSearchBackfill(MongoTemplate mongoTemplate,
+                                @Qualifier("applicationTaskExecutor") Executor executor,
+                                @Value("${members.search.backfill-batch-size:500}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.executor = executor;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Runs the backfill in the background.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        executor.execute(this::backfill);
+    }
+
+    /**
+     * Adds the search trigrams to all member documents missing some of them.
+     *
+     * @return the number of updated documents
+     */
+    long backfill() {
+        String collection = mongoTemplate.getCollectionName(Member.class);
+        long updated = 0;
+        try (Stream<Document> documents = mongoTemplate.stream(missingQuery(batchSize), Document.class, collection)) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, collection);
+            int pending = 0;
+            for (Iterator<Document> iterator = documents.iterator(); iterator.hasNext(); ) {
+                Document document = iterator.next();
+                bulk.updateOne(unchangedQuery(document), backfillUpdate(document));
+                if (++pending == batchSize) {
+                    updated += bulk.execute().getModifiedCount();
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, collection);
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                updated += bulk.execute().getModifiedCount();
+            }
+            if (updated > 0) {
+                log.info(String.format("Added the search trigrams to %d members", updated));
+            }
+        } catch (DataAccessException | MongoException exception) {
+            log.warning("Cannot add the search trigrams to the members: " + exception.getMessage());
+        }
+        return updated;
+    }
+
+    /**
+     * Finds the documents without the trigrams of some searchable field, reading only the searchable fields.
+     * Each branch is an equality to {@code null}, answered by the multikey index of the field.
+     *
+     * @param batchSize the number of documents fetched from the server per batch
+     * @return the query
+     */
+    static Query missingQuery(int batchSize) {
+        Criteria[] missing = SearchText.FIELDS.stream()
+                .map(field -> Criteria.where(SearchText.FIELD + "." + field).is(null))
+                .toArray(Criteria[]::new);
+        Query query = new Query(new Criteria().orOperator(missing)).cursorBatchSize(batchSize);
+        query.fields().include(SearchText.FIELDS.toArray(String[]::new));
+        return query;
+    }
+
+    /**
+     * Matches the document only while its searchable fields still have the values that were read.
+     *
+     * @param document the document as read by {@link #missingQuery}
+     * @return the query
+     */
+    static Query unchangedQuery(Document document) {
+        Criteria criteria = Criteria.where("_id").is(document.get("_id"));
+        SearchText.FIELDS.forEach(field -> criteria.and(field).is(document.get(field)));
+        return new Query(criteria);
+    }
+
+    /**
+     * Sets the trigrams of all searchable fields of the document.
+     *
+     * @param document the document as read by {@link #missingQuery}
+     * @return the update
+     */
+    static Update backfillUpdate(Document document) {
+        return Update.update(SearchText.FIELD, SearchText.document(document.getString("name"),
+                document.getString("email"), document.getString("phoneNumber")));
+    }
+}
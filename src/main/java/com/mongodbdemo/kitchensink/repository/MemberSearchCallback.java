@@ -0,0 +1,23 @@
+package com.mongodbdemo.kitchensink.repository;
+
+import com.mongodbdemo.kitchensink.helper.SearchText;
+import com.mongodbdemo.kitchensink.model.Member;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveCallback;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds the search trigrams to every member document inserted or replaced through {@code MongoTemplate},
+ * including the bulk inserts of an import, so the full-text search sees a member as soon as it is written.
+ * Updates of single fields set their trigrams in the same update, see {@link MemberRepositoryCustomImpl}.
+ */
+@Component
+public class MemberSearchCallback implements BeforeSaveCallback<Member> {
+
+    @Override
+    public Member onBeforeSave(Member member, Document document, String collection) {
+        document.put(SearchText.FIELD, SearchText.document(member.getName(), member.getEmail(),
+                member.getPhoneNumber()));
+        return member;
+    }
+}
@@ -0,0 +1,27 @@
+package com.mongodbdemo.kitchensink.repository;
+
+import com.mongodbdemo.kitchensink.model.Member;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * Non-blocking counterpart of {@link MemberRepository}, used when the application runs on WebFlux.
+ */
+@Repository
+public interface ReactiveMemberRepository extends ReactiveMongoRepository<Member, Long>, ReactiveMemberRepositoryCustom {
+    @Override
+    @Query(fields = MemberRepository.WITHOUT_SEARCH)
+    Mono<Member> findById(Long id);
+
+    @Query(fields = MemberRepository.WITHOUT_SEARCH)
+    Flux<Member> findAllByOrderByNameAsc();
+
+    Mono<Long> removeById(Long id);
+
+    Mono<Long> removeByIdIn(Collection<Long> ids);
+}
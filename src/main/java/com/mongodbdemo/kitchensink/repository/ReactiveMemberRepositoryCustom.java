@@ -0,0 +1,93 @@
+package com.mongodbdemo.kitchensink.repository;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodbdemo.kitchensink.model.Member;
+import org.bson.Document;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-blocking counterparts of the queries of {@link MemberRepositoryCustom}.
+ */
+public interface ReactiveMemberRepositoryCustom {
+
+    /**
+     * Finds the members that sort after the given (name, id) key, ordered by name and then id.
+     *
+     * @param afterName the name of the last member of the previous page, or {@code null} for the first page
+     * @param afterId   the id of the last member of the previous page, or {@code null} for the first page
+     * @param limit     the maximum number of members to return
+     * @return the members of the page
+     */
+    Flux<Member> findPageAfter(String afterName, Long afterId, int limit);
+
+    /**
+     * Finds the members that sort after the given (name, id) key, reading only the given fields, like
+     * {@link MemberRepositoryCustom#findPageAfter(String, Long, int, Collection)}.
+     *
+     * @param afterName the name of the last member of the previous page, or {@code null} for the first page
+     * @param afterId   the id of the last member of the previous page, or {@code null} for the first page
+     * @param limit     the maximum number of members to return
+     * @param fields    the document fields to read
+     * @return the projected member documents of the page
+     */
+    Flux<Document> findPageAfter(String afterName, Long afterId, int limit, Collection<String> fields);
+
+    /**
+     * Finds a member by id, reading only the given fields.
+     *
+     * @param id     the id of the member
+     * @param fields the document fields to read
+     * @return the projected member document, or empty if no member has the id
+     */
+    Mono<Document> findFieldsById(Long id, Collection<String> fields);
+
+    /**
+     * Streams all members in id order from a single cursor, fetching the next batch only on demand.
+     *
+     * @param batchSize the number of members fetched from the server per batch
+     * @return the members
+     */
+    Flux<Member> streamAll(int batchSize);
+
+    /**
+     * Finds the candidates of a full-text search, like {@link MemberRepositoryCustom#findSearchCandidates}.
+     *
+     * @param grams   the trigrams by searchable field, not empty
+     * @param limit   the maximum number of candidates
+     * @param maxTime the time after which the server aborts the query
+     * @return the candidates, in no particular order
+     */
+    Flux<Member> findSearchCandidates(Map<String, List<String>> grams, int limit, Duration maxTime);
+
+    /**
+     * Inserts the members with a single unordered bulk write, like {@link MemberRepositoryCustom#insertUnordered}.
+     *
+     * @param members the members to insert, with their ids already assigned
+     * @return the write errors, whose indexes refer to positions in {@code members}
+     */
+    Mono<List<BulkWriteError>> insertUnordered(List<Member> members);
+
+    /**
+     * Sets the given fields of a member, increments its {@code version} and stamps its {@code lastModified} with
+     * a single {@code findAndModify}, leaving all other fields untouched.
+     *
+     * @param id     the id of the member
+     * @param fields the values to set by field name, not empty
+     * @return the member after the update, or empty if no member has the id
+     */
+    Mono<Member> setFields(Long id, Map<String, Object> fields);
+
+    /**
+     * Deletes a member with a single {@code findAndModify} and returns it.
+     *
+     * @param id the id of the member
+     * @return the deleted member, or empty if no member has the id
+     */
+    Mono<Member> findAndRemoveById(Long id);
+}
@@ -0,0 +1,112 @@
+package com.mongodbdemo.kitchensink.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodbdemo.kitchensink.helper.SearchText;
+import com.mongodbdemo.kitchensink.model.Member;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link ReactiveMongoOperations} based implementation of {@link ReactiveMemberRepositoryCustom}, building the
+ * same queries and updates as {@link MemberRepositoryCustomImpl}.
+ */
+public class ReactiveMemberRepositoryCustomImpl implements ReactiveMemberRepositoryCustom {
+
+    private final ReactiveMongoOperations mongoOperations;
+
+    @Autowired
+    public ReactiveMemberRepositoryCustomImpl(ReactiveMongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    @Override
+    public Flux<Member> findPageAfter(String afterName, Long afterId, int limit) {
+        Query query = MemberRepositoryCustomImpl.pageQuery(afterName, afterId, limit);
+        query.fields().exclude(SearchText.FIELD);
+        return mongoOperations.find(query, Member.class);
+    }
+
+    @Override
+    public Flux<Document> findPageAfter(String afterName, Long afterId, int limit, Collection<String> fields) {
+        Query query = MemberRepositoryCustomImpl.pageQuery(afterName, afterId, limit);
+        MemberRepositoryCustomImpl.project(query, fields).include("_id", "name");
+        return mongoOperations.find(query, Document.class, mongoOperations.getCollectionName(Member.class));
+    }
+
+    @Override
+    public Mono<Document> findFieldsById(Long id, Collection<String> fields) {
+        Query query = new Query(Criteria.where("_id").is(id));
+        MemberRepositoryCustomImpl.project(query, fields);
+        return mongoOperations.findOne(query, Document.class, mongoOperations.getCollectionName(Member.class));
+    }
+
+    @Override
+    public Flux<Member> streamAll(int batchSize) {
+        Query query = new Query().with(Sort.by(Sort.Order.asc("_id"))).cursorBatchSize(batchSize);
+        query.fields().exclude(SearchText.FIELD);
+        return mongoOperations.find(query, Member.class);
+    }
+
+    @Override
+    public Flux<Member> findSearchCandidates(Map<String, List<String>> grams, int limit, Duration maxTime) {
+        return mongoOperations.find(MemberRepositoryCustomImpl.searchQuery(grams, limit, maxTime), Member.class);
+    }
+
+    @Override
+    public Mono<List<BulkWriteError>> insertUnordered(List<Member> members) {
+        return mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Member.class)
+                .insert(members)
+                .execute()
+                .<List<BulkWriteError>>thenReturn(List.of())
+                .onErrorResume(exception -> writeErrorsOf(exception) != null,
+                        exception -> Mono.just(writeErrorsOf(exception)));
+    }
+
+    @Override
+    public Mono<Member> setFields(Long id, Map<String, Object> fields) {
+        return mongoOperations.findAndModify(
+                MemberRepositoryCustomImpl.byId(id),
+                MemberRepositoryCustomImpl.setUpdate(fields),
+                FindAndModifyOptions.options().returnNew(true),
+                Member.class);
+    }
+
+    @Override
+    public Mono<Member> findAndRemoveById(Long id) {
+        return mongoOperations.findAndRemove(MemberRepositoryCustomImpl.byId(id), Member.class);
+    }
+
+    /**
+     * Finds the per-member errors of a failed bulk write, which the exception translation may have wrapped, for
+     * example in a {@code DuplicateKeyException} when a member has a taken email.
+     *
+     * @param exception the error of the bulk write
+     * @return the write errors, or {@code null} if the bulk write failed as a whole
+     */
+    static List<BulkWriteError> writeErrorsOf(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BulkOperationException bulkOperationException) {
+                return bulkOperationException.getErrors();
+            }
+            if (cause instanceof MongoBulkWriteException bulkWriteException) {
+                return bulkWriteException.getWriteErrors();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,23 @@
+package com.mongodbdemo.kitchensink.repository;
+
+import com.mongodbdemo.kitchensink.helper.SearchText;
+import com.mongodbdemo.kitchensink.model.Member;
+import org.bson.Document;
+import org.reactivestreams.Publisher;
+import org.springframework.data.mongodb.core.mapping.event.ReactiveBeforeSaveCallback;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Counterpart of {@link MemberSearchCallback} for the documents written through {@code ReactiveMongoTemplate}.
+ */
+@Component
+public class ReactiveMemberSearchCallback implements ReactiveBeforeSaveCallback<Member> {
+
+    @Override
+    public Publisher<Member> onBeforeSave(Member member, Document document, String collection) {
+        document.put(SearchText.FIELD, SearchText.document(member.getName(), member.getEmail(),
+                member.getPhoneNumber()));
+        return Mono.just(member);
+    }
+}
@@ -0,0 +1,207 @@
+package com.mongodbdemo.kitchensink.resilience;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Circuit breaker and bulkhead around the calls to one remote dependency, with the policy applied when the
+ * dependency is unavailable.
+ * <p>
+ * Timeouts, connection errors and 5xx responses count as failures, and calls slower than the breaker's slow call
+ * threshold as slow. Once too many of the recent calls failed or were slow, the breaker opens and calls fail at
+ * once with {@link CallNotPermittedException} until the breaker lets a few trial calls through again. The bulkhead
+ * bounds the calls in flight, so a slow dependency cannot hold every request thread: calls beyond it fail at once
+ * with {@link BulkheadFullException}. Other responses, such as 401 or 429, are decisions of the dependency and count
+ * as successes.
+ * <p>
+ * The breaker state and call counts are published as {@code resilience4j.circuitbreaker.*}, the free bulkhead
+ * permits as {@code resilience4j.bulkhead.*}, both tagged with the dependency {@code name}. Requests that found the
+ * dependency unavailable are counted as {@code dependency.unavailable}, tagged with the {@code dependency} and the
+ * {@code reason} ({@code circuit-open}, {@code bulkhead-full} or {@code error}).
+ */
+public class DependencyGuard implements MeterBinder {
+
+    private final Logger log = Logger.getLogger(getClass().getName());
+
+    private final String dependency;
+    private final FailurePolicy failurePolicy;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final LongAdder circuitOpen = new LongAdder();
+    private final LongAdder bulkheadFull = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * Constructs a {@code DependencyGuard}.
+     *
+     * @param dependency     the name of the dependency, used as breaker and bulkhead name and metric tag
+     * @param failurePolicy  what requests do while the dependency is unavailable
+     * @param circuitBreaker the breaker settings; which failures are recorded is set here
+     * @param bulkhead       the bulkhead settings
+     */
+    public DependencyGuard(String dependency, FailurePolicy failurePolicy, CircuitBreakerConfig circuitBreaker,
+                           BulkheadConfig bulkhead) {
+        this.dependency = dependency;
+        this.failurePolicy = failurePolicy;
+        this.circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.from(circuitBreaker)
+                .recordException(DependencyGuard::isFailure)
+                .ignoreExceptions(BulkheadFullException.class)
+                .build());
+        this.bulkheadRegistry = BulkheadRegistry.of(bulkhead);
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(dependency);
+        this.bulkhead = bulkheadRegistry.bulkhead(dependency);
+        this.circuitBreaker.getEventPublisher().onStateTransition(event ->
+                log.warning("Circuit breaker of the " + dependency + " service: " + event.getStateTransition()));
+    }
+
+    /**
+     * Makes a blocking call to the dependency.
+     *
+     * @param call the call
+     * @param <T>  the result type
+     * @return the result of the call
+     * @throws CallNotPermittedException if the breaker is open
+     * @throws BulkheadFullException     if too many calls are in flight
+     */
+    public <T> T call(Supplier<T> call) {
+        return circuitBreaker.executeSupplier(Bulkhead.decorateSupplier(bulkhead, call));
+    }
+
+    /**
+     * Guards a non-blocking call to the dependency, which takes its permits when subscribed to.
+     *
+     * @param call the call
+     * @param <T>  the result type
+     * @return the guarded call, failing with {@link CallNotPermittedException} or {@link BulkheadFullException}
+     *         if it is not let through
+     */
+    public <T> Mono<T> call(Mono<T> call) {
+        return call.transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    /**
+     * Applies the failure policy to a failed call: returns if the dependency is unavailable and the policy is
+     * {@link FailurePolicy#OPEN}, so the request goes on without it.
+     *
+     * @param failure the exception the call failed with
+     * @throws RuntimeException        the failure itself if it is a decision of the dependency
+     * @throws ResponseStatusException with 503 if the dependency is unavailable and the policy is
+     *                                 {@link FailurePolicy#CLOSED}
+     */
+    public void recover(RuntimeException failure) {
+        if (!isUnavailable(failure)) {
+            throw failure;
+        }
+        if (failure instanceof CallNotPermittedException) {
+            circuitOpen.increment();
+        } else if (failure instanceof BulkheadFullException) {
+            bulkheadFull.increment();
+        } else {
+            errors.increment();
+            log.warning("Call to the " + dependency + " service failed: " + failure.getMessage());
+        }
+        if (failurePolicy == FailurePolicy.CLOSED) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "The " + dependency + " service is unavailable");
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #recover(RuntimeException)}: completes empty instead of failing if the
+     * dependency is unavailable and the policy is {@link FailurePolicy#OPEN}.
+     *
+     * @param call the guarded call
+     * @param <T>  the result type
+     * @return the call, with the failure policy applied to its failures
+     */
+    public <T> Mono<T> recover(Mono<T> call) {
+        return call.onErrorResume(DependencyGuard::isUnavailable,
+                failure -> Mono.fromRunnable(() -> recover((RuntimeException) failure)));
+    }
+
+    /**
+     * Whether the call failed because the dependency is unavailable, rather than because it decided against the
+     * request.
+     *
+     * @param failure the exception the call failed with
+     * @return {@code true} if the breaker or bulkhead rejected the call, or the call failed
+     */
+    public static boolean isUnavailable(Throwable failure) {
+        return failure instanceof CallNotPermittedException || failure instanceof BulkheadFullException
+                || isFailure(failure);
+    }
+
+    /**
+     * Whether the call counts as a failure of the dependency for the breaker.
+     *
+     * @param failure the exception the call failed with
+     * @return {@code true} for timeouts, connection errors and 5xx responses
+     */
+    static boolean isFailure(Throwable failure) {
+        if (failure instanceof RestClientResponseException exception) {
+            return exception.getStatusCode().is5xxServerError();
+        }
+        return failure instanceof ResourceAccessException || failure instanceof WebClientRequestException;
+    }
+
+    /**
+     * Returns the state of the breaker.
+     *
+     * @return the breaker state
+     */
+    public CircuitBreaker.State state() {
+        return circuitBreaker.getState();
+    }
+
+    /**
+     * Registers the breaker, bulkhead and unavailability metrics with the given registry.
+     *
+     * @param registry the registry to bind to
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(registry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheadRegistry).bindTo(registry);
+        unavailableCounter(registry, "circuit-open", circuitOpen);
+        unavailableCounter(registry, "bulkhead-full", bulkheadFull);
+        unavailableCounter(registry, "error", errors);
+    }
+
+    private void unavailableCounter(MeterRegistry registry, String reason, LongAdder count) {
+        FunctionCounter.builder("dependency.unavailable", count, LongAdder::sum)
+                .description("Requests that found a dependency unavailable")
+                .tag("dependency", dependency)
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
+}
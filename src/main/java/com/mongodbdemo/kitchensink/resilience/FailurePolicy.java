@@ -0,0 +1,29 @@
+package com.mongodbdemo.kitchensink.resilience;
+
+import java.util.Locale;
+
+/**
+ * What a request does when a dependency it needs is unavailable.
+ */
+public enum FailurePolicy {
+
+    /**
+     * The request goes on without the dependency's decision.
+     */
+    OPEN,
+
+    /**
+     * The request fails with 503.
+     */
+    CLOSED;
+
+    /**
+     * Parses the policy as written in the properties.
+     *
+     * @param value {@code open} or {@code closed}, in any case
+     * @return the policy
+     */
+    public static FailurePolicy of(String value) {
+        return valueOf(value.strip().toUpperCase(Locale.ROOT));
+    }
+}
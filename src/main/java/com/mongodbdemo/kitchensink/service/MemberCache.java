@@ -0,0 +1,173 @@
+package com.mongodbdemo.kitchensink.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.mongodbdemo.kitchensink.model.Member;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of members by id, bounded by the estimated memory of the cached members
+ * ({@code members.cache.maximum-weight-bytes}) and expiring entries {@code members.cache.ttl-seconds} after they
+ * were written.
+ * <p>
+ * Writes go through {@link MemberService}, which caches a registered member and invalidates an updated or
+ * deleted one before returning, so a caller reads its own writes on the same node. Updates invalidate rather
+ * than cache the returned document: concurrent updates can return out of order, and an update racing a delete
+ * could otherwise cache a member that no longer exists. Invalidation waits for a load of the same id that is in
+ * progress, so a load that read the old document cannot repopulate the cache afterwards; a non-blocking load
+ * cannot be waited for, so it is not cached if any member was written while it ran. Hit, miss and eviction
+ * counts are published under the cache name {@code members}.
+ */
+@Component
+public class MemberCache implements MeterBinder {
+
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final Cache<Long, Member> cache;
+    private final AtomicLong writes = new AtomicLong();
+
+    /**
+     * Constructs a {@code MemberCache}.
+     *
+     * @param maximumWeightBytes the estimated memory the cached members may use
+     * @param ttlSeconds         how long a member is cached after it was loaded or written
+     */
+    @Autowired
+    public MemberCache(@Value("${members.cache.maximum-weight-bytes:67108864}") long maximumWeightBytes,
+                       @Value("${members.cache.ttl-seconds:300}") long ttlSeconds) {
+        this(maximumWeightBytes, Duration.ofSeconds(ttlSeconds), Ticker.systemTicker());
+    }
+
+    MemberCache(long maximumWeightBytes, Duration ttl, Ticker ticker) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeightBytes)
+                .weigher((Long id, Member member) -> weigh(member))
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached member, loading and caching it on a miss. Missing members are not cached.
+     * The returned member is shared and must not be modified.
+     *
+     * @param id     the id of the member
+     * @param loader reads the member from the database
+     * @return the member, or empty if it does not exist
+     */
+    public Optional<Member> get(Long id, Function<Long, Optional<Member>> loader) {
+        return Optional.ofNullable(cache.get(id, key -> loader.apply(key).orElse(null)));
+    }
+
+    /**
+     * Non-blocking variant of {@link #get(Long, Function)}: returns the cached member, subscribing to the loader
+     * on a miss. The loaded member is cached unless a member was written or invalidated meanwhile.
+     *
+     * @param id     the id of the member
+     * @param loader reads the member from the database
+     * @return the member, or empty if it does not exist
+     */
+    public Mono<Member> get(Long id, Mono<Member> loader) {
+        return Mono.defer(() -> {
+            Member cached = cache.getIfPresent(id);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            long seen = writes.get();
+            return loader.doOnNext(member -> cache.asMap().compute(id,
+                    (key, current) -> current != null || writes.get() != seen ? current : member));
+        });
+    }
+
+    /**
+     * Caches a copy of the member as just inserted, so later changes to the caller's instance do not reach the
+     * cache.
+     *
+     * @param member the member, with its id assigned
+     */
+    public void put(Member member) {
+        writes.incrementAndGet();
+        cache.put(member.getId(), copy(member));
+    }
+
+    /**
+     * Removes the member from the cache.
+     *
+     * @param id the id of the member
+     */
+    public void invalidate(Long id) {
+        writes.incrementAndGet();
+        cache.invalidate(id);
+    }
+
+    /**
+     * Removes the members from the cache.
+     *
+     * @param ids the ids of the members
+     */
+    public void invalidateAll(Collection<Long> ids) {
+        writes.incrementAndGet();
+        cache.invalidateAll(ids);
+    }
+
+    /**
+     * Returns the hit, miss and eviction counters of the cache.
+     *
+     * @return the cache statistics
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Registers the cache statistics with the given registry.
+     *
+     * @param registry the registry to bind to
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "members");
+    }
+
+    Cache<Long, Member> getCache() {
+        return cache;
+    }
+
+    /**
+     * Estimates the memory held by a cached member from the length of its strings.
+     */
+    static int weigh(Member member) {
+        return ENTRY_OVERHEAD_BYTES + 2 * (length(member.getName()) + length(member.getEmail())
+                + length(member.getPhoneNumber()));
+    }
+
+    private static Member copy(Member member) {
+        Member copy = new Member();
+        copy.setId(member.getId());
+        copy.setName(member.getName());
+        copy.setEmail(member.getEmail());
+        copy.setPhoneNumber(member.getPhoneNumber());
+        copy.setVersion(member.getVersion());
+        copy.setLastModified(member.getLastModified());
+        return copy;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+}
@@ -0,0 +1,323 @@
+package com.mongodbdemo.kitchensink.service;
+
+import com.mongodbdemo.kitchensink.dto.MemberNameMatch;
+import com.mongodbdemo.kitchensink.helper.SearchText;
+import com.mongodbdemo.kitchensink.model.Member;
+import com.mongodbdemo.kitchensink.repository.MemberRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * In-memory index of member names for prefix search, kept in a skip list sorted by normalized name and id.
+ * A search seeks to the prefix and reads the following entries, so it costs {@code O(log n + limit)} whatever
+ * the number of members.
+ * <p>
+ * Writes go through {@link MemberService}, which updates the index once the write succeeded. Every entry keeps
+ * the version of the member it was taken from, so an update that completes after a later one does not bring back
+ * the older name, and a deleted member leaves a tombstone, so an update racing the delete does not bring the
+ * member back. Ids are never reused; a tombstone is dropped by the second reload after the delete. Deleting a
+ * member the index does not hold leaves no tombstone unless a scan, which could still read it, is running.
+ * <p>
+ * Writes made on other instances are read from the database. Every {@code members.name-index.refresh-interval-ms}
+ * the members modified since the previous refresh are read from the {@code lastModified} index, and every
+ * {@code members.name-index.reload-interval-ms} all names are scanned from the (name, _id) index, which also drops
+ * the members that no longer exist. A member created or renamed on another instance is therefore found under its
+ * new name after at most one refresh interval, provided the clocks of the instances are less than one refresh
+ * interval apart, and a member deleted on another instance is still found for at most one reload interval.
+ * Writes made during a scan win over the names it reads.
+ */
+@Component
+public class MemberNameIndex implements MeterBinder {
+
+    private final Logger log = Logger.getLogger(getClass().getName());
+
+    private final MemberRepository memberRepository;
+    private final Executor executor;
+    private final int batchSize;
+    private final Duration refreshInterval;
+
+    private final ConcurrentSkipListMap<Key, String> names = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong generation = new AtomicLong();
+    private final ReentrantLock scanLock = new ReentrantLock();
+    private volatile Instant refreshedSince;
+
+    /**
+     * Constructs a {@code MemberNameIndex}.
+     *
+     * @param memberRepository      the repository the index is loaded from
+     * @param executor              the executor on which the index is loaded
+     * @param batchSize             the number of names fetched from the server per batch while loading
+     * @param refreshIntervalMillis how often the members modified on other instances are read
+     */
+    @Autowired
+    public MemberNameIndex(MemberRepository memberRepository,
+                           @Qualifier("applicationTaskExecutor") Executor executor,
+                           @Value("${members.name-index.batch-size:1000}") int batchSize,
+                           @Value("${members.name-index.refresh-interval-ms:30000}") long refreshIntervalMillis) {
+        this.memberRepository = memberRepository;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.refreshInterval = Duration.ofMillis(refreshIntervalMillis);
+    }
+
+    /**
+     * Loads the index in the background.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        executor.execute(this::load);
+    }
+
+    /**
+     * Reloads the index in the background, dropping the members deleted on other instances.
+     */
+    @Scheduled(fixedDelayString = "${members.name-index.reload-interval-ms:3600000}",
+            initialDelayString = "${members.name-index.reload-interval-ms:3600000}")
+    public void reload() {
+        executor.execute(this::load);
+    }
+
+    /**
+     * Adds the names of all members, streamed from the database, keeping the entries written meanwhile. Once the
+     * scan completed, the members it did not find and that were not written meanwhile are removed.
+     *
+     * @return the number of names read
+     */
+    long load() {
+        scanLock.lock();
+        Instant started = Instant.now();
+        long scan = generation.incrementAndGet();
+        long count = 0;
+        try (Stream<Document> documents = memberRepository.streamNames(batchSize)) {
+            for (Iterator<Document> iterator = documents.iterator(); iterator.hasNext(); count++) {
+                Document document = iterator.next();
+                addScanned(((Number) document.get("_id")).longValue(), document.getString("name"), scan);
+            }
+            int dropped = dropUnseen(scan);
+            if (refreshedSince == null) {
+                refreshedSince = started;
+            }
+            log.info(String.format("Loaded %d member names, dropped %d deleted members", count, dropped));
+        } catch (DataAccessException exception) {
+            log.warning("Cannot load the member names: " + exception.getMessage());
+        } finally {
+            scanLock.unlock();
+        }
+        return count;
+    }
+
+    /**
+     * Refreshes the index in the background with the members modified on other instances.
+     */
+    @Scheduled(fixedDelayString = "${members.name-index.refresh-interval-ms:30000}",
+            initialDelayString = "${members.name-index.refresh-interval-ms:30000}")
+    public void refresh() {
+        executor.execute(this::applyModified);
+    }
+
+    /**
+     * Applies the names of the members modified since the previous refresh, on any instance. Skipped until the
+     * index was loaded and while it is being reloaded or refreshed; the next refresh then covers the skipped
+     * period.
+     */
+    void applyModified() {
+        Instant since = refreshedSince;
+        if (since == null || !scanLock.tryLock()) {
+            return;
+        }
+        Instant started = Instant.now();
+        // Inserts are stamped by the clock of the instance that made them, which may lag behind this one
+        try (Stream<Document> documents = memberRepository.streamNamesModifiedSince(since.minus(refreshInterval),
+                batchSize)) {
+            documents.forEach(document -> apply(((Number) document.get("_id")).longValue(),
+                    document.getString("name"), versionOf(document)));
+            refreshedSince = started;
+        } catch (DataAccessException exception) {
+            log.warning("Cannot refresh the member names: " + exception.getMessage());
+        } finally {
+            scanLock.unlock();
+        }
+    }
+
+    /**
+     * Finds the members whose normalized name starts with the normalized prefix, ordered by normalized name and
+     * then id.
+     *
+     * @param prefix the prefix, compared ignoring case, accents and repeated whitespace
+     * @param limit  the maximum number of matches
+     * @return the matches
+     */
+    public List<MemberNameMatch> search(String prefix, int limit) {
+        String normalized = SearchText.normalize(prefix);
+        List<MemberNameMatch> matches = new ArrayList<>(Math.min(limit, 64));
+        for (Map.Entry<Key, String> entry : names.tailMap(new Key(normalized, Long.MIN_VALUE)).entrySet()) {
+            if (matches.size() == limit || !entry.getKey().name().startsWith(normalized)) {
+                break;
+            }
+            matches.add(new MemberNameMatch(entry.getKey().id(), entry.getValue()));
+        }
+        return matches;
+    }
+
+    /**
+     * Adds the member or replaces its previous name, unless the index holds a later version of the member or the
+     * member was deleted.
+     *
+     * @param member the member as just written, with its id and version assigned
+     */
+    public void put(Member member) {
+        apply(member.getId(), member.getName(), member.getVersion());
+    }
+
+    /**
+     * Removes the member, leaving a tombstone that keeps it from being added again.
+     *
+     * @param id the id of the member
+     */
+    public void remove(Long id) {
+        entries.compute(id, (ignored, current) -> {
+            // A scan starting now reads the database after the delete, so only a running one could add it back
+            if (current == null && !scanLock.isLocked()) {
+                return null;
+            }
+            unlink(current);
+            return new Entry(null, Long.MAX_VALUE, generation.get());
+        });
+    }
+
+    /**
+     * Removes the members.
+     *
+     * @param ids the ids of the members
+     */
+    public void removeAll(Collection<Long> ids) {
+        ids.forEach(this::remove);
+    }
+
+    /**
+     * Returns the number of indexed names.
+     *
+     * @return the number of members in the index
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Registers the size of the index with the given registry.
+     *
+     * @param registry the registry to bind to
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("members.name-index.size", this, MemberNameIndex::size)
+                .description("Number of member names in the prefix search index")
+                .register(registry);
+    }
+
+    private void apply(long id, String name, long version) {
+        Key key = new Key(SearchText.normalize(name), id);
+        entries.compute(id, (ignored, current) -> {
+            if (current != null && current.version() > version) {
+                return current;
+            }
+            unlink(current);
+            link(key, name);
+            return new Entry(key, version, generation.get());
+        });
+    }
+
+    private void addScanned(long id, String name, long scan) {
+        Key key = new Key(SearchText.normalize(name), id);
+        entries.compute(id, (ignored, current) -> {
+            // Deleted, or written since the scan started
+            if (current != null && (current.key() == null || current.generation() == scan)) {
+                return current;
+            }
+            unlink(current);
+            link(key, name);
+            return new Entry(key, current != null ? current.version() : 0, scan);
+        });
+    }
+
+    /**
+     * Removes the members that were neither found by the scan nor written since it started, and the tombstones
+     * that have already outlived a whole scan.
+     */
+    private int dropUnseen(long scan) {
+        int[] dropped = new int[1];
+        for (Long id : entries.keySet()) {
+            entries.computeIfPresent(id, (ignored, current) -> {
+                long oldest = current.key() == null ? scan - 1 : scan;
+                if (current.generation() >= oldest) {
+                    return current;
+                }
+                if (current.key() != null) {
+                    dropped[0]++;
+                }
+                unlink(current);
+                return null;
+            });
+        }
+        return dropped[0];
+    }
+
+    private void link(Key key, String name) {
+        names.put(key, name);
+        size.incrementAndGet();
+    }
+
+    private void unlink(Entry entry) {
+        if (entry != null && entry.key() != null) {
+            names.remove(entry.key());
+            size.decrementAndGet();
+        }
+    }
+
+    private static long versionOf(Document document) {
+        Object version = document.get("version");
+        return version != null ? ((Number) version).longValue() : 0;
+    }
+
+    /**
+     * Sort key of an entry: the normalized name, then the id to keep members with the same name apart.
+     */
+    record Key(String name, long id) implements Comparable<Key> {
+        @Override
+        public int compareTo(Key other) {
+            int byName = name.compareTo(other.name);
+            return byName != 0 ? byName : Long.compare(id, other.id);
+        }
+    }
+
+    /**
+     * The indexed state of a member: its sort key, or {@code null} once deleted, the version it was taken from and
+     * the generation of the scan during which it was last written.
+     */
+    private record Entry(Key key, long version, long generation) {
+    }
+}
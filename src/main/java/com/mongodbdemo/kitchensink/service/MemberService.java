@@ -1,63 +1,482 @@
 package com.mongodbdemo.kitchensink.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoExecutionTimeoutException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodbdemo.kitchensink.dto.BulkDeleteResult;
+import com.mongodbdemo.kitchensink.dto.BulkImportResult;
+import com.mongodbdemo.kitchensink.dto.BulkImportResult.ItemError;
+import com.mongodbdemo.kitchensink.dto.MemberNameMatch;
+import com.mongodbdemo.kitchensink.dto.MemberSearchResult;
 import com.mongodbdemo.kitchensink.dto.MemberUpdateDto;
+import com.mongodbdemo.kitchensink.helper.SearchText;
 import com.mongodbdemo.kitchensink.model.Member;
+import com.mongodbdemo.kitchensink.repository.MemberIndexManager;
 import com.mongodbdemo.kitchensink.repository.MemberRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.util.Optional;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 @Service
 public class MemberService {
+    /**
+     * Name of the counter in {@code database_sequences} that is incremented after every write to the members
+     * collection, so a list can be validated without reading the members.
+     */
+    public static final String COLLECTION_VERSION = "members_collection_version";
+
     private final Logger log = Logger.getLogger(getClass().getName());
     @Autowired
     private MemberRepository memberRepository;
     @Autowired
     private SequenceGeneratorService sequenceGeneratorService;
+    @Autowired
+    private MemberCache memberCache;
+    @Autowired
+    private MemberNameIndex memberNameIndex;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private Validator validator;
+    @Autowired(required = false)
+    private MemberIndexManager memberIndexManager;
+    @Value("${members.export.batch-size:500}")
+    int exportBatchSize;
+    @Value("${members.import.chunk-size:1000}")
+    int importChunkSize;
+    @Value("${members.search.max-candidates:1000}")
+    int searchMaxCandidates;
+    @Value("${members.search.max-time-ms:200}")
+    long searchMaxTimeMillis;
+
+    /**
+     * Assigns the next id to the member and inserts it with a single write.
+     *
+     * @param member the member to register
+     * @throws org.springframework.dao.DuplicateKeyException if the email is already taken
+     * @throws ResponseStatusException with 503 if the unique email index is not ready
+     */
     @Transactional
     public void register(Member member) {
+        requireUniqueEmails(memberIndexManager);
         member.setId(sequenceGeneratorService.generateSequence(Member.SEQUENCE_NAME));
+        member.setVersion(1);
+        member.setLastModified(Instant.now());
         log.info(String.format("Registering %s", member.getName()));
-        memberRepository.save(member);
+        memberRepository.insert(member);
+        memberCache.put(member);
+        memberNameIndex.put(member);
+        bumpCollectionVersion();
+    }
+
+    /**
+     * Returns the version of the members collection, which changes after every write to it.
+     *
+     * @return the current collection version
+     */
+    public long collectionVersion() {
+        return sequenceGeneratorService.currentValue(COLLECTION_VERSION);
+    }
+
+    /**
+     * Finds a member by id, served from the {@link MemberCache} when present.
+     *
+     * @param id the id of the member
+     * @return the member, or empty if it does not exist
+     */
+    public Optional<Member> findMember(Long id) {
+        return memberCache.get(id, memberRepository::findById);
+    }
+
+    /**
+     * Finds members by name prefix in the {@link MemberNameIndex}, without querying the database.
+     *
+     * @param prefix the prefix of the name, compared ignoring case and accents
+     * @param limit  the maximum number of matches
+     * @return the ids and names of the matching members, ordered by name
+     */
+    public List<MemberNameMatch> searchNames(String prefix, int limit) {
+        return memberNameIndex.search(prefix, limit);
+    }
+
+    /**
+     * Searches the name, email and phone number of all members for a fragment, using the trigram indexes. The
+     * candidate query is aborted by the server after {@code members.search.max-time-ms} and reads at most
+     * {@code members.search.max-candidates} members, which are then checked and ranked in memory.
+     *
+     * @param terms the parsed query, which must be searchable
+     * @param page  the zero-based page of the ranked matches
+     * @param size  the number of matches per page
+     * @return the page of matches, best first
+     * @throws ResponseStatusException with 503 if the candidate query ran out of time
+     */
+    public MemberSearchResult searchMembers(SearchText.Terms terms, int page, int size) {
+        try {
+            List<Member> candidates = memberRepository.findSearchCandidates(terms.grams(), searchMaxCandidates,
+                    Duration.ofMillis(searchMaxTimeMillis));
+            return rank(terms, candidates, searchMaxCandidates, page, size);
+        } catch (DataAccessException e) {
+            throw searchFailure(e);
+        }
+    }
+
+    /**
+     * Drops the candidates that do not contain the searched fragment, orders the others by score, then name and
+     * then id, and cuts out the requested page.
+     *
+     * @param terms         the parsed query
+     * @param candidates    the members found by their trigrams
+     * @param maxCandidates the maximum number of candidates the query could return
+     * @param page          the zero-based page
+     * @param size          the number of matches per page
+     * @return the page of matches
+     */
+    static MemberSearchResult rank(SearchText.Terms terms, List<Member> candidates, int maxCandidates,
+                                   int page, int size) {
+        record Scored(Member member, int score, String name) {
+        }
+        List<Scored> matches = new ArrayList<>(candidates.size());
+        for (Member member : candidates) {
+            int score = terms.score(member.getName(), member.getEmail(), member.getPhoneNumber());
+            if (score > 0) {
+                matches.add(new Scored(member, score, SearchText.searchable("name", member.getName())));
+            }
+        }
+        matches.sort(Comparator.comparingInt(Scored::score).reversed()
+                .thenComparing(Scored::name)
+                .thenComparing(scored -> scored.member().getId()));
+        long from = Math.min((long) page * size, matches.size());
+        int to = (int) Math.min(from + size, matches.size());
+        List<Member> members = matches.subList((int) from, to).stream().map(Scored::member).toList();
+        return new MemberSearchResult(members, matches.size(), candidates.size() >= maxCandidates);
+    }
+
+    /**
+     * Turns a candidate query that ran out of time into a 503, so a slow search fails fast instead of holding
+     * the request.
+     *
+     * @param exception the failure of the candidate query
+     * @return the exception to throw
+     */
+    static RuntimeException searchFailure(RuntimeException exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoExecutionTimeoutException) {
+                return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Search exceeded its time budget");
+            }
+        }
+        return exception;
     }
 
+    /**
+     * Applies the non-null fields of the update with a single {@code findAndModify}. Only the changed fields
+     * are written, so concurrent updates of different fields do not overwrite each other, and the unique
+     * email index rejects an email that is already taken.
+     *
+     * @param id            the id of the member
+     * @param updatedMember the fields to change
+     * @return the member after the update
+     * @throws ResponseStatusException with 404 if no member has the id, 409 if the email is taken, or 503 if the
+     *         email changes and the unique email index is not ready
+     */
     public Member updateMember(Long id, MemberUpdateDto updatedMember) {
-        Member existingMember = memberRepository.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
-                        "Member not found"));
+        Map<String, Object> fields = changedFields(updatedMember);
+        if (fields.containsKey("email")) {
+            requireUniqueEmails(memberIndexManager);
+        }
 
-        // Check for duplicate email if provided and it's different
-        Optional.ofNullable(updatedMember.getEmail())
-                .filter(email -> !email.equals(existingMember.getEmail()))
-                .ifPresent(email -> {
-                    memberRepository.findByEmail(email)
-                            .filter(member -> !member.getId().equals(id))
-                            .ifPresent(member -> {
-                                throw new ResponseStatusException(HttpStatus.CONFLICT,
-                                        "Email is already in use by another member");
-                            });
-                    existingMember.setEmail(email);
-                });
-
-        // Update fields only if they are not null
+        Optional<Member> member;
+        try {
+            member = fields.isEmpty()
+                    ? memberRepository.findById(id)
+                    : memberRepository.setFields(id, fields);
+        } catch (DuplicateKeyException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Email is already in use by another member");
+        }
+        Member updated = member.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                "Member not found"));
+        memberCache.invalidate(id);
+        if (fields.containsKey("name")) {
+            memberNameIndex.put(updated);
+        }
+        if (!fields.isEmpty()) {
+            bumpCollectionVersion();
+        }
+        return updated;
+    }
+
+    /**
+     * Refuses a write that sets an email while the unique email index is not known to exist, as only the index
+     * rejects duplicate emails. Without an index manager, the indexes are managed outside the application and
+     * taken to exist.
+     *
+     * @param indexManager the index manager, or {@code null} if {@code members.indexes.manage} is off
+     * @throws ResponseStatusException with 503 if the unique email index is not ready
+     */
+    static void requireUniqueEmails(MemberIndexManager indexManager) {
+        if (indexManager != null && !indexManager.isEmailUnique()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Members cannot be written until the unique email index is built");
+        }
+    }
+
+    /**
+     * Collects the non-null fields of an update.
+     *
+     * @param updatedMember the fields to change
+     * @return the values to set by field name, in a fixed order
+     */
+    static Map<String, Object> changedFields(MemberUpdateDto updatedMember) {
+        Map<String, Object> fields = new LinkedHashMap<>();
         Optional.ofNullable(updatedMember.getName())
-                .ifPresent(existingMember::setName);
+                .ifPresent(name -> fields.put("name", name));
+        Optional.ofNullable(updatedMember.getEmail())
+                .ifPresent(email -> fields.put("email", email));
         Optional.ofNullable(updatedMember.getPhoneNumber())
-                .ifPresent(existingMember::setPhoneNumber);
-
-        return memberRepository.save(existingMember);
+                .ifPresent(phoneNumber -> fields.put("phoneNumber", phoneNumber));
+        return fields;
     }
 
+    /**
+     * Deletes a member with a single delete, using the deleted count to detect a missing member.
+     *
+     * @param id the id of the member
+     * @throws ResponseStatusException with 404 if no member has the id
+     */
     public void deleteMember(Long id) {
-        Optional<Member> optionalMember = memberRepository.findById(id);
-        if (optionalMember.isEmpty()) {
+        long deleted = memberRepository.removeById(id);
+        memberCache.invalidate(id);
+        memberNameIndex.remove(id);
+        if (deleted == 0) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Member not found");
         }
-        memberRepository.deleteById(id);
+        bumpCollectionVersion();
+    }
+
+    /**
+     * Deletes a member with a single {@code findAndModify} and returns it.
+     *
+     * @param id the id of the member
+     * @return the deleted member
+     * @throws ResponseStatusException with 404 if no member has the id
+     */
+    public Member deleteAndReturnMember(Long id) {
+        Optional<Member> deleted = memberRepository.findAndRemoveById(id);
+        memberCache.invalidate(id);
+        memberNameIndex.remove(id);
+        Member member = deleted.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                "Member not found"));
+        bumpCollectionVersion();
+        return member;
+    }
+
+    /**
+     * Deletes all members with the given ids with one {@code $in} delete. Ids without a member are ignored.
+     *
+     * @param ids the ids of the members
+     * @return the number of requested ids and of deleted members
+     */
+    public BulkDeleteResult deleteMembers(List<Long> ids) {
+        long deleted = memberRepository.removeByIdIn(ids);
+        memberCache.invalidateAll(ids);
+        memberNameIndex.removeAll(ids);
+        if (deleted > 0) {
+            bumpCollectionVersion();
+        }
+        log.info(String.format("Deleted %d of %d members", deleted, ids.size()));
+        return new BulkDeleteResult(ids.size(), deleted);
+    }
+
+    /**
+     * Writes all members to the output stream as newline-delimited JSON, straight from a database cursor.
+     * The next batch is only fetched once the previous one has been written, so memory use stays constant
+     * and a slow reader slows down the cursor.
+     *
+     * @param outputStream the stream to write to, left open
+     * @return the number of members written
+     * @throws IOException if writing to the stream fails
+     */
+    public long exportMembers(OutputStream outputStream) throws IOException {
+        long count = 0;
+        try (Stream<Member> members = memberRepository.streamAll(exportBatchSize);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            for (Iterator<Member> iterator = members.iterator(); iterator.hasNext(); ) {
+                generator.writeObject(iterator.next());
+                generator.writeRaw('\n');
+                if (++count % exportBatchSize == 0) {
+                    generator.flush();
+                }
+            }
+        }
+        log.info(String.format("Exported %d members", count));
+        return count;
+    }
+
+    /**
+     * Imports a JSON array of members. The body is parsed incrementally and processed in chunks of
+     * {@code members.import.chunk-size}: each chunk is validated in parallel, gets its ids from a single
+     * sequence update and is stored with one unordered bulk write. Invalid and duplicate members are
+     * reported per item and do not stop the import.
+     *
+     * @param inputStream the JSON array of members
+     * @return the number of received and stored members and the errors of the rejected ones
+     * @throws IOException if reading the input fails
+     * @throws ResponseStatusException with 503 if the unique email index is not ready
+     */
+    public BulkImportResult importMembers(InputStream inputStream) throws IOException {
+        requireUniqueEmails(memberIndexManager);
+        List<ItemError> errors = new ArrayList<>();
+        int received = 0;
+        int inserted = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Expected a JSON array of members");
+            }
+            List<IndexedMember> chunk = new ArrayList<>();
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unterminated JSON array of members");
+                }
+                int index = received++;
+                Member member = readMember(objectMapper, parser.readValueAsTree());
+                if (member != null) {
+                    chunk.add(new IndexedMember(index, member));
+                } else {
+                    errors.add(new ItemError(index, Map.of("error", "Malformed member")));
+                }
+                if (chunk.size() == importChunkSize) {
+                    inserted += importChunk(chunk, errors);
+                    chunk.clear();
+                }
+            }
+            inserted += importChunk(chunk, errors);
+        } catch (JsonParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed JSON array of members");
+        }
+        errors.sort(Comparator.comparingInt(ItemError::index));
+        log.info(String.format("Imported %d of %d members", inserted, received));
+        return new BulkImportResult(received, inserted, errors);
+    }
+
+    /**
+     * Validates and stores one chunk of an import.
+     *
+     * @param chunk  the parsed members with their position in the request
+     * @param errors collects the errors of rejected members
+     * @return the number of stored members
+     */
+    private int importChunk(List<IndexedMember> chunk, List<ItemError> errors) {
+        List<Map<String, String>> violations = chunk.parallelStream()
+                .map(item -> violationsOf(validator, item.member()))
+                .toList();
+        List<IndexedMember> valid = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            if (violations.get(i).isEmpty()) {
+                valid.add(chunk.get(i));
+            } else {
+                errors.add(new ItemError(chunk.get(i).index(), violations.get(i)));
+            }
+        }
+        if (valid.isEmpty()) {
+            return 0;
+        }
+
+        long nextId = sequenceGeneratorService.generateSequenceRange(Member.SEQUENCE_NAME, valid.size());
+        Instant now = Instant.now();
+        List<Member> members = new ArrayList<>(valid.size());
+        for (IndexedMember item : valid) {
+            item.member().setId(nextId++);
+            item.member().setVersion(1);
+            item.member().setLastModified(now);
+            members.add(item.member());
+        }
+        List<BulkWriteError> writeErrors = memberRepository.insertUnordered(members);
+        Set<Integer> rejected = new HashSet<>();
+        for (BulkWriteError writeError : writeErrors) {
+            rejected.add(writeError.getIndex());
+            errors.add(new ItemError(valid.get(writeError.getIndex()).index(), describe(writeError)));
+        }
+        for (int i = 0; i < members.size(); i++) {
+            if (!rejected.contains(i)) {
+                memberNameIndex.put(members.get(i));
+            }
+        }
+        int inserted = members.size() - writeErrors.size();
+        if (inserted > 0) {
+            bumpCollectionVersion();
+        }
+        return inserted;
+    }
+
+    /**
+     * Moves the collection version on after a write. Called once the write succeeded, so a list read that
+     * saw the new version also sees the write.
+     */
+    private void bumpCollectionVersion() {
+        sequenceGeneratorService.generateSequenceRange(COLLECTION_VERSION, 1);
+    }
+
+    /**
+     * Maps one item of an import to a member.
+     *
+     * @param objectMapper the mapper of the request body
+     * @param node         the item
+     * @return the member, or {@code null} if the item is not a well-formed member
+     */
+    static Member readMember(ObjectMapper objectMapper, JsonNode node) {
+        try {
+            // Only objects are members; treeToValue would map a JSON null to null instead of failing
+            return node != null && node.isObject() ? objectMapper.treeToValue(node, Member.class) : null;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    static Map<String, String> violationsOf(Validator validator, Member member) {
+        Set<ConstraintViolation<Member>> violations = validator.validate(member);
+        Map<String, String> errors = new HashMap<>();
+        for (ConstraintViolation<Member> violation : violations) {
+            errors.put(violation.getPropertyPath().toString(), violation.getMessage());
+        }
+        return errors;
+    }
+
+    static Map<String, String> describe(BulkWriteError writeError) {
+        if (writeError.getCategory() == ErrorCategory.DUPLICATE_KEY) {
+            return MemberIndexManager.isEmailIndexViolation(writeError.getMessage())
+                    ? Map.of("email", "Email taken")
+                    : Map.of("error", "Duplicate key");
+        }
+        return Map.of("error", writeError.getMessage());
+    }
+
+    record IndexedMember(int index, Member member) {
     }
 }
@@ -0,0 +1,411 @@
+package com.mongodbdemo.kitchensink.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodbdemo.kitchensink.dto.BulkDeleteResult;
+import com.mongodbdemo.kitchensink.dto.BulkImportResult;
+import com.mongodbdemo.kitchensink.dto.BulkImportResult.ItemError;
+import com.mongodbdemo.kitchensink.dto.MemberNameMatch;
+import com.mongodbdemo.kitchensink.dto.MemberSearchResult;
+import com.mongodbdemo.kitchensink.dto.MemberUpdateDto;
+import com.mongodbdemo.kitchensink.helper.SearchText;
+import com.mongodbdemo.kitchensink.model.DatabaseSequence;
+import com.mongodbdemo.kitchensink.model.Member;
+import com.mongodbdemo.kitchensink.repository.MemberIndexManager;
+import com.mongodbdemo.kitchensink.repository.ReactiveMemberRepository;
+import com.mongodbdemo.kitchensink.service.MemberService.IndexedMember;
+import jakarta.validation.Validator;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static com.mongodbdemo.kitchensink.service.MemberService.COLLECTION_VERSION;
+
+/**
+ * Non-blocking counterpart of {@link MemberService}, used when the application runs on WebFlux.
+ * <p>
+ * Members are read and written with the reactive Mongo driver and maintain the same member and collection
+ * versions, {@link MemberCache} and {@link MemberNameIndex}. Ids still come from {@link SequenceGeneratorService},
+ * which hands them out from memory and only reserves a new block from the database once in
+ * {@code sequence.block.size} calls; it runs on the bounded elastic scheduler so a block reservation never blocks
+ * an event loop. The collection version counter is read and incremented with the reactive driver.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveMemberService {
+    private final Logger log = Logger.getLogger(getClass().getName());
+    @Autowired
+    private ReactiveMemberRepository memberRepository;
+    @Autowired
+    private ReactiveMongoOperations mongoOperations;
+    @Autowired
+    private SequenceGeneratorService sequenceGeneratorService;
+    @Autowired
+    private MemberCache memberCache;
+    @Autowired
+    private MemberNameIndex memberNameIndex;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private Validator validator;
+    @Autowired(required = false)
+    private MemberIndexManager memberIndexManager;
+    @Value("${members.export.batch-size:500}")
+    int exportBatchSize;
+    @Value("${members.import.chunk-size:1000}")
+    int importChunkSize;
+    @Value("${members.search.max-candidates:1000}")
+    int searchMaxCandidates;
+    @Value("${members.search.max-time-ms:200}")
+    long searchMaxTimeMillis;
+
+    /**
+     * Assigns the next id to the member and inserts it with a single write.
+     *
+     * @param member the member to register
+     * @return the registered member, or a {@link DuplicateKeyException} if the email is already taken, or a
+     *         {@link ResponseStatusException} with 503 if the unique email index is not ready
+     */
+    public Mono<Member> register(Member member) {
+        return Mono.fromCallable(() -> {
+                    MemberService.requireUniqueEmails(memberIndexManager);
+                    return sequenceGeneratorService.generateSequence(Member.SEQUENCE_NAME);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(id -> {
+                    member.setId(id);
+                    member.setVersion(1);
+                    member.setLastModified(Instant.now());
+                    log.info(String.format("Registering %s", member.getName()));
+                    return memberRepository.insert(member);
+                })
+                .doOnNext(inserted -> {
+                    memberCache.put(inserted);
+                    memberNameIndex.put(inserted);
+                })
+                .flatMap(inserted -> bumpCollectionVersion().thenReturn(inserted));
+    }
+
+    /**
+     * Returns the version of the members collection, which changes after every write to it.
+     *
+     * @return the current collection version
+     */
+    public Mono<Long> collectionVersion() {
+        return mongoOperations.findById(COLLECTION_VERSION, DatabaseSequence.class)
+                .map(DatabaseSequence::getSeq)
+                .defaultIfEmpty(0L);
+    }
+
+    /**
+     * Finds a member by id, from the {@link MemberCache} when present. The returned member is shared with the
+     * cache and must not be modified.
+     *
+     * @param id the id of the member
+     * @return the member, or empty if it does not exist
+     */
+    public Mono<Member> findMember(Long id) {
+        return memberCache.get(id, memberRepository.findById(id));
+    }
+
+    /**
+     * Finds a member by id, reading only the given fields.
+     *
+     * @param id     the id of the member
+     * @param fields the document fields to read
+     * @return the projected member document, or empty if it does not exist
+     */
+    public Mono<Document> findFieldsById(Long id, Collection<String> fields) {
+        return memberRepository.findFieldsById(id, fields);
+    }
+
+    /**
+     * Finds a page of members ordered by name and id.
+     *
+     * @param afterName the name of the last member of the previous page, or {@code null} for the first page
+     * @param afterId   the id of the last member of the previous page, or {@code null} for the first page
+     * @param limit     the maximum number of members to return
+     * @return the members of the page
+     */
+    public Flux<Member> findPageAfter(String afterName, Long afterId, int limit) {
+        return memberRepository.findPageAfter(afterName, afterId, limit);
+    }
+
+    /**
+     * Finds a page of members ordered by name and id, reading only the given fields.
+     *
+     * @param afterName the name of the last member of the previous page, or {@code null} for the first page
+     * @param afterId   the id of the last member of the previous page, or {@code null} for the first page
+     * @param limit     the maximum number of members to return
+     * @param fields    the document fields to read
+     * @return the projected member documents of the page
+     */
+    public Flux<Document> findPageAfter(String afterName, Long afterId, int limit, Collection<String> fields) {
+        return memberRepository.findPageAfter(afterName, afterId, limit, fields);
+    }
+
+    /**
+     * Streams all members ordered by name.
+     *
+     * @return the members
+     */
+    public Flux<Member> findAllMembers() {
+        return memberRepository.findAllByOrderByNameAsc();
+    }
+
+    /**
+     * Streams all members in id order from a single cursor, fetching batches of {@code members.export.batch-size}
+     * only as fast as the client reads them.
+     *
+     * @return the members
+     */
+    public Flux<Member> exportMembers() {
+        return memberRepository.streamAll(exportBatchSize);
+    }
+
+    /**
+     * Finds members by name prefix in the {@link MemberNameIndex}, without querying the database.
+     *
+     * @param prefix the prefix of the name, compared ignoring case and accents
+     * @param limit  the maximum number of matches
+     * @return the ids and names of the matching members, ordered by name
+     */
+    public Mono<List<MemberNameMatch>> searchNames(String prefix, int limit) {
+        return Mono.fromSupplier(() -> memberNameIndex.search(prefix, limit));
+    }
+
+    /**
+     * Searches the name, email and phone number of all members for a fragment, as
+     * {@link MemberService#searchMembers} does.
+     *
+     * @param terms the parsed query, which must be searchable
+     * @param page  the zero-based page of the ranked matches
+     * @param size  the number of matches per page
+     * @return the page of matches, best first, or a {@link ResponseStatusException} with 503 if the candidate
+     *         query ran out of time
+     */
+    public Mono<MemberSearchResult> searchMembers(SearchText.Terms terms, int page, int size) {
+        return memberRepository.findSearchCandidates(terms.grams(), searchMaxCandidates,
+                        Duration.ofMillis(searchMaxTimeMillis))
+                .collectList()
+                .map(candidates -> MemberService.rank(terms, candidates, searchMaxCandidates, page, size))
+                .onErrorMap(RuntimeException.class, MemberService::searchFailure);
+    }
+
+    /**
+     * Applies the non-null fields of the update with a single {@code findAndModify}, as
+     * {@link MemberService#updateMember} does.
+     *
+     * @param id            the id of the member
+     * @param updatedMember the fields to change
+     * @return the member after the update, or a {@link ResponseStatusException} with 404 if no member has the id,
+     *         409 if the email is taken, or 503 if the email changes and the unique email index is not ready
+     */
+    public Mono<Member> updateMember(Long id, MemberUpdateDto updatedMember) {
+        Map<String, Object> fields = MemberService.changedFields(updatedMember);
+        if (fields.isEmpty()) {
+            return memberRepository.findById(id).switchIfEmpty(notFound());
+        }
+        Mono<Void> emailsUnique = fields.containsKey("email")
+                ? Mono.fromRunnable(() -> MemberService.requireUniqueEmails(memberIndexManager))
+                : Mono.empty();
+        return emailsUnique.then(memberRepository.setFields(id, fields))
+                .onErrorMap(DuplicateKeyException.class, e -> new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Email is already in use by another member"))
+                .switchIfEmpty(notFound())
+                .doOnNext(updated -> {
+                    memberCache.invalidate(id);
+                    if (fields.containsKey("name")) {
+                        memberNameIndex.put(updated);
+                    }
+                })
+                .flatMap(updated -> bumpCollectionVersion().thenReturn(updated));
+    }
+
+    /**
+     * Deletes a member with a single delete, using the deleted count to detect a missing member.
+     *
+     * @param id the id of the member
+     * @return completes when the member is deleted, or a {@link ResponseStatusException} with 404 if no member
+     *         has the id
+     */
+    public Mono<Void> deleteMember(Long id) {
+        return memberRepository.removeById(id)
+                .doOnNext(deleted -> {
+                    memberCache.invalidate(id);
+                    memberNameIndex.remove(id);
+                })
+                .flatMap(deleted -> deleted == 0 ? notFound() : bumpCollectionVersion());
+    }
+
+    /**
+     * Deletes a member with a single {@code findAndModify} and returns it.
+     *
+     * @param id the id of the member
+     * @return the deleted member, or a {@link ResponseStatusException} with 404 if no member has the id
+     */
+    public Mono<Member> deleteAndReturnMember(Long id) {
+        return memberRepository.findAndRemoveById(id)
+                .doOnNext(deleted -> {
+                    memberCache.invalidate(id);
+                    memberNameIndex.remove(id);
+                })
+                .switchIfEmpty(notFound())
+                .flatMap(deleted -> bumpCollectionVersion().thenReturn(deleted));
+    }
+
+    /**
+     * Deletes all members with the given ids with one {@code $in} delete. Ids without a member are ignored.
+     *
+     * @param ids the ids of the members
+     * @return the number of requested ids and of deleted members
+     */
+    public Mono<BulkDeleteResult> deleteMembers(List<Long> ids) {
+        return memberRepository.removeByIdIn(ids)
+                .doOnNext(deleted -> {
+                    memberCache.invalidateAll(ids);
+                    memberNameIndex.removeAll(ids);
+                })
+                .flatMap(deleted -> (deleted > 0 ? bumpCollectionVersion() : Mono.<Void>empty())
+                        .thenReturn(new BulkDeleteResult(ids.size(), deleted)))
+                .doOnNext(result -> log.info(String.format("Deleted %d of %d members",
+                        result.deleted(), result.requested())));
+    }
+
+    /**
+     * Imports the members of a JSON array, as {@link MemberService#importMembers} does: the items are decoded one
+     * by one as they arrive and stored in chunks of {@code members.import.chunk-size} with one unordered bulk
+     * write each, so invalid or duplicate members are reported by their position and do not prevent the others
+     * from being stored.
+     *
+     * @param items the items of the JSON array
+     * @return the number of received and stored members and the errors of the rejected ones, or a
+     *         {@link ResponseStatusException} with 400 if the body is not a JSON array, or with 503 if the unique
+     *         email index is not ready
+     */
+    public Mono<BulkImportResult> importMembers(Flux<JsonNode> items) {
+        return Mono.<Void>fromRunnable(() -> MemberService.requireUniqueEmails(memberIndexManager))
+                .then(Mono.defer(() -> {
+                    // Malformed items are reported while an earlier chunk may still be stored
+                    List<ItemError> errors = Collections.synchronizedList(new ArrayList<>());
+                    AtomicInteger received = new AtomicInteger();
+                    return items
+                            .<IndexedMember>handle((node, sink) -> {
+                                int index = received.getAndIncrement();
+                                Member member = MemberService.readMember(objectMapper, node);
+                                if (member != null) {
+                                    sink.next(new IndexedMember(index, member));
+                                } else {
+                                    errors.add(new ItemError(index, Map.of("error", "Malformed member")));
+                                }
+                            })
+                            .buffer(importChunkSize)
+                            .concatMap(chunk -> importChunk(chunk, errors))
+                            .reduce(0, Integer::sum)
+                            .map(inserted -> {
+                                errors.sort(Comparator.comparingInt(ItemError::index));
+                                log.info(String.format("Imported %d of %d members", inserted, received.get()));
+                                return new BulkImportResult(received.get(), inserted, errors);
+                            });
+                }))
+                .onErrorMap(DecodingException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Malformed JSON array of members"));
+    }
+
+    /**
+     * Validates one chunk of an import and reserves its ids on the bounded elastic scheduler, then stores the
+     * valid members with one unordered bulk write.
+     *
+     * @param chunk  the parsed members with their position in the request
+     * @param errors collects the errors of rejected members
+     * @return the number of stored members
+     */
+    private Mono<Integer> importChunk(List<IndexedMember> chunk, List<ItemError> errors) {
+        return Mono.fromCallable(() -> {
+                    List<IndexedMember> valid = new ArrayList<>(chunk.size());
+                    for (IndexedMember item : chunk) {
+                        Map<String, String> violations = MemberService.violationsOf(validator, item.member());
+                        if (violations.isEmpty()) {
+                            valid.add(item);
+                        } else {
+                            errors.add(new ItemError(item.index(), violations));
+                        }
+                    }
+                    if (!valid.isEmpty()) {
+                        long nextId = sequenceGeneratorService.generateSequenceRange(Member.SEQUENCE_NAME,
+                                valid.size());
+                        Instant now = Instant.now();
+                        for (IndexedMember item : valid) {
+                            item.member().setId(nextId++);
+                            item.member().setVersion(1);
+                            item.member().setLastModified(now);
+                        }
+                    }
+                    return valid;
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(valid -> valid.isEmpty() ? Mono.just(0) : insertChunk(valid, errors));
+    }
+
+    private Mono<Integer> insertChunk(List<IndexedMember> valid, List<ItemError> errors) {
+        List<Member> members = valid.stream().map(IndexedMember::member).toList();
+        return memberRepository.insertUnordered(members).flatMap(writeErrors -> {
+            Set<Integer> rejected = new HashSet<>();
+            for (BulkWriteError writeError : writeErrors) {
+                rejected.add(writeError.getIndex());
+                errors.add(new ItemError(valid.get(writeError.getIndex()).index(), MemberService.describe(writeError)));
+            }
+            for (int i = 0; i < members.size(); i++) {
+                if (!rejected.contains(i)) {
+                    memberNameIndex.put(members.get(i));
+                }
+            }
+            int inserted = members.size() - writeErrors.size();
+            return (inserted > 0 ? bumpCollectionVersion() : Mono.<Void>empty()).thenReturn(inserted);
+        });
+    }
+
+    /**
+     * Moves the collection version on after a write, as {@link MemberService} does.
+     */
+    private Mono<Void> bumpCollectionVersion() {
+        return mongoOperations.findAndModify(
+                        new Query(Criteria.where("_id").is(COLLECTION_VERSION)),
+                        new Update().inc("seq", 1),
+                        FindAndModifyOptions.options().upsert(true),
+                        DatabaseSequence.class)
+                .then();
+    }
+
+    private static <T> Mono<T> notFound() {
+        return Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Member not found"));
+    }
+}
@@ -1,7 +1,10 @@
 package com.mongodbdemo.kitchensink.service;
 
 import com.mongodbdemo.kitchensink.model.DatabaseSequence;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.query.Criteria;
@@ -9,19 +12,57 @@ import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
 
 /**
  * Service for generating unique sequences in MongoDB.
+ * <p>
+ * Sequence values are reserved from the database in blocks of {@code sequence.block.size} with a single
+ * {@code $inc}, and handed out from memory. Once fewer than {@code sequence.prefetch.threshold} values are
+ * left in the current block, the next block is reserved in the background. Values of a block that was
+ * not fully used before a restart are skipped.
  */
 @Service
 public class SequenceGeneratorService {
 
+    private final Logger log = Logger.getLogger(getClass().getName());
+
     private final MongoOperations mongoOperations;
+    private final int blockSize;
+    private final int prefetchThreshold;
+    private final Executor prefetchExecutor;
+    private final Map<String, SequenceAllocator> allocators = new ConcurrentHashMap<>();
 
+    /**
+     * Constructs a {@code SequenceGeneratorService}.
+     *
+     * @param mongoOperations   the operations used to reserve sequence blocks
+     * @param blockSize         the number of sequence values reserved per database round trip
+     * @param prefetchThreshold the number of remaining values at which the next block is prefetched,
+     *                          {@code 0} disables prefetching
+     * @param prefetchExecutor  the executor on which blocks are prefetched
+     */
     @Autowired
-    public SequenceGeneratorService(MongoOperations mongoOperations) {
+    public SequenceGeneratorService(MongoOperations mongoOperations,
+                                    @Value("${sequence.block.size:50}") int blockSize,
+                                    @Value("${sequence.prefetch.threshold:10}") int prefetchThreshold,
+                                    @Qualifier("applicationTaskExecutor") Executor prefetchExecutor) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Sequence block size must be at least 1");
+        }
         this.mongoOperations = mongoOperations;
+        this.blockSize = blockSize;
+        this.prefetchThreshold = Math.max(0, prefetchThreshold);
+        this.prefetchExecutor = prefetchExecutor;
     }
 
     /**
@@ -30,9 +71,61 @@ public class SequenceGeneratorService {
      * @param seqName the name of the sequence
      * @return the generated sequence number
      */
+    @Timed("sequence.generate")
     public long generateSequence(String seqName) {
+        return allocators.computeIfAbsent(seqName, SequenceAllocator::new).next();
+    }
+
+    /**
+     * Reserves {@code count} consecutive values of the given sequence with a single update, bypassing the
+     * in-memory block.
+     *
+     * @param seqName the name of the sequence
+     * @param count   the number of values to reserve
+     * @return the first reserved value
+     */
+    public long generateSequenceRange(String seqName, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one sequence value must be reserved");
+        }
+        return increment(seqName, count) - count + 1;
+    }
+
+    /**
+     * Reads the last value of the given sequence without reserving one.
+     *
+     * @param seqName the name of the sequence
+     * @return the last reserved value, or {@code 0} if none was reserved yet
+     */
+    public long currentValue(String seqName) {
+        return Optional.ofNullable(mongoOperations.findById(seqName, DatabaseSequence.class))
+                .map(DatabaseSequence::getSeq)
+                .orElse(0L);
+    }
+
+    /**
+     * Reserves the next block of values for the given sequence with a single {@code findAndModify}.
+     *
+     * @param seqName the name of the sequence
+     * @return the reserved block
+     */
+    IdBlock reserveBlock(String seqName) {
+        long end = increment(seqName, blockSize);
+        long start = end - blockSize + 1;
+        long prefetchAt = prefetchThreshold > 0 ? Math.max(start, end - prefetchThreshold) : Long.MIN_VALUE;
+        return new IdBlock(start, end, prefetchAt);
+    }
+
+    /**
+     * Increments the stored sequence value.
+     *
+     * @param seqName the name of the sequence
+     * @param amount  the amount to add
+     * @return the new sequence value
+     */
+    private long increment(String seqName, int amount) {
         Query query = new Query(Criteria.where("_id").is(seqName));
-        Update update = new Update().inc("seq", 1);
+        Update update = new Update().inc("seq", amount);
 
         DatabaseSequence counter = mongoOperations.findAndModify(
                 query,
@@ -43,6 +136,83 @@ public class SequenceGeneratorService {
 
         return Optional.ofNullable(counter)
                 .map(DatabaseSequence::getSeq)
-                .orElse(1L);
+                .orElse((long) amount);
+    }
+
+    /**
+     * A contiguous range of reserved sequence values. Values are claimed with a lock-free counter.
+     */
+    static final class IdBlock {
+        static final IdBlock EXHAUSTED = new IdBlock(1, 0, Long.MIN_VALUE);
+
+        final long end;
+        final long prefetchAt;
+        final AtomicLong cursor;
+
+        IdBlock(long start, long end, long prefetchAt) {
+            this.end = end;
+            this.prefetchAt = prefetchAt;
+            this.cursor = new AtomicLong(start);
+        }
+    }
+
+    /**
+     * Hands out the values of one sequence. Only switching to a new block takes a lock.
+     */
+    private final class SequenceAllocator {
+        private final String seqName;
+        private final AtomicReference<IdBlock> current = new AtomicReference<>(IdBlock.EXHAUSTED);
+        private final ReentrantLock lock = new ReentrantLock();
+        private CompletableFuture<IdBlock> prefetched;
+
+        SequenceAllocator(String seqName) {
+            this.seqName = seqName;
+        }
+
+        long next() {
+            while (true) {
+                IdBlock block = current.get();
+                long value = block.cursor.getAndIncrement();
+                if (value <= block.end) {
+                    if (value == block.prefetchAt) {
+                        prefetch();
+                    }
+                    return value;
+                }
+                advance(block);
+            }
+        }
+
+        private void prefetch() {
+            lock.lock();
+            try {
+                if (prefetched == null) {
+                    prefetched = CompletableFuture.supplyAsync(() -> reserveBlock(seqName), prefetchExecutor);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void advance(IdBlock exhausted) {
+            lock.lock();
+            try {
+                if (current.get() != exhausted) {
+                    return;
+                }
+                IdBlock next = null;
+                if (prefetched != null) {
+                    try {
+                        next = prefetched.join();
+                    } catch (CompletionException e) {
+                        log.warning("Prefetching block for sequence " + seqName + " failed: " + e.getCause());
+                    }
+                    prefetched = null;
+                }
+                current.set(next != null ? next : reserveBlock(seqName));
+            } finally {
+                lock.unlock();
+            }
+        }
     }
 }
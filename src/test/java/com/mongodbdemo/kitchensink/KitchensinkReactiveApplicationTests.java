@@ -0,0 +1,30 @@
+package com.mongodbdemo.kitchensink;
+
+import com.mongodbdemo.kitchensink.aspect.AuthorizationAspect;
+import com.mongodbdemo.kitchensink.aspect.ReactiveAccessAspect;
+import com.mongodbdemo.kitchensink.controller.MemberController;
+import com.mongodbdemo.kitchensink.controller.ReactiveMemberController;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("reactive")
+class KitchensinkReactiveApplicationTests {
+
+	@Autowired
+	private ApplicationContext context;
+
+	@Test
+	void reactiveProfileReplacesServletBeans() {
+		assertEquals(1, context.getBeanNamesForType(ReactiveMemberController.class).length);
+		assertEquals(1, context.getBeanNamesForType(ReactiveAccessAspect.class).length);
+		assertEquals(0, context.getBeanNamesForType(MemberController.class).length);
+		assertEquals(0, context.getBeanNamesForType(AuthorizationAspect.class).length);
+	}
+
+}
@@ -1,9 +1,18 @@
 package com.mongodbdemo.kitchensink.aspect;
 
 import com.mongodbdemo.kitchensink.annotation.Authorize;
+import com.mongodbdemo.kitchensink.auth.JwtVerifier;
+import com.mongodbdemo.kitchensink.auth.TokenValidationCache;
 import com.mongodbdemo.kitchensink.controller.MemberController;
 
 import com.mongodbdemo.kitchensink.dto.AuthResponse;
+import com.mongodbdemo.kitchensink.helper.UserContext;
+import com.mongodbdemo.kitchensink.resilience.DependencyGuard;
+import com.mongodbdemo.kitchensink.resilience.FailurePolicy;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.servlet.http.HttpServletRequest;
 import org.aspectj.lang.JoinPoint;
 
@@ -14,9 +23,11 @@ import org.mockito.*;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.*;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.lang.reflect.Method;
 import java.util.List;
@@ -40,6 +51,19 @@ public class AuthorizationAspectTest {
     @Mock
     private RestTemplate restTemplate;
 
+    @Spy
+    private TokenValidationCache tokenValidationCache = new TokenValidationCache(100, 60, 5, 100, 3000);
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private JwtVerifier jwtVerifier;
+
+    @Spy
+    private DependencyGuard authServiceGuard = new DependencyGuard("auth", FailurePolicy.CLOSED,
+            CircuitBreakerConfig.ofDefaults(), BulkheadConfig.ofDefaults());
+
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -223,4 +247,170 @@ public class AuthorizationAspectTest {
         // Assert
         assertEquals(Optional.empty(), token);
     }
+
+    @Test
+    void authorizeWithCachedTokenShouldNotCallAuthServiceAgain() throws NoSuchMethodException {
+        // Arrange
+        JoinPoint joinPoint = mock(JoinPoint.class);
+        MethodSignature methodSignature = mock(MethodSignature.class);
+        Method method = MemberController.class.getMethod("listAllMembers");
+        AuthResponse authResponse = new AuthResponse();
+        authResponse.setUserId("user-1");
+
+        when(joinPoint.getSignature()).thenReturn(methodSignature);
+        when(methodSignature.getMethod()).thenReturn(method);
+        when(request.getHeader("Authorization")).thenReturn("Bearer cached-token");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        when(restTemplate.exchange(eq(authServiceUrl),
+                eq(HttpMethod.POST),
+                any(HttpEntity.class),
+                eq(AuthResponse.class))).thenReturn(ResponseEntity.ok(authResponse));
+
+        // Act
+        authorizationAspect.authorize(joinPoint);
+        authorizationAspect.authorize(joinPoint);
+
+        // Assert
+        verify(restTemplate, times(1)).exchange(
+                eq(authServiceUrl),
+                eq(HttpMethod.POST),
+                any(HttpEntity.class),
+                eq(AuthResponse.class)
+        );
+        assertEquals("user-1", UserContext.getUserId());
+        UserContext.clear();
+    }
+
+    @Test
+    void authorizeWithRejectedTokenShouldCacheRejection() throws NoSuchMethodException {
+        // Arrange
+        JoinPoint joinPoint = mock(JoinPoint.class);
+        MethodSignature methodSignature = mock(MethodSignature.class);
+        Method method = MemberController.class.getMethod("listAllMembers");
+
+        when(joinPoint.getSignature()).thenReturn(methodSignature);
+        when(methodSignature.getMethod()).thenReturn(method);
+        when(request.getHeader("Authorization")).thenReturn("Bearer rejected-token");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        doThrow(new HttpClientErrorException(HttpStatus.FORBIDDEN)).when(restTemplate).exchange(
+                any(String.class),
+                any(HttpMethod.class),
+                any(HttpEntity.class),
+                any(Class.class)
+        );
+
+        // Act & Assert
+        assertThrows(HttpClientErrorException.class, () -> authorizationAspect.authorize(joinPoint));
+        HttpClientErrorException exception = assertThrows(HttpClientErrorException.class,
+                () -> authorizationAspect.authorize(joinPoint));
+        assertEquals(HttpStatus.FORBIDDEN, exception.getStatusCode());
+        verify(restTemplate, times(1)).exchange(
+                any(String.class),
+                any(HttpMethod.class),
+                any(HttpEntity.class),
+                any(Class.class)
+        );
+    }
+
+    @Test
+    void authorizeShouldTimeValidationsByCacheResultAndOutcome() throws NoSuchMethodException {
+        // Arrange
+        JoinPoint joinPoint = mock(JoinPoint.class);
+        MethodSignature methodSignature = mock(MethodSignature.class);
+        Method method = MemberController.class.getMethod("listAllMembers");
+        AuthResponse authResponse = new AuthResponse();
+        authResponse.setUserId("user-1");
+
+        when(joinPoint.getSignature()).thenReturn(methodSignature);
+        when(methodSignature.getMethod()).thenReturn(method);
+        when(request.getHeader("Authorization")).thenReturn("Bearer timed-token");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        when(restTemplate.exchange(eq(authServiceUrl),
+                eq(HttpMethod.POST),
+                any(HttpEntity.class),
+                eq(AuthResponse.class))).thenReturn(ResponseEntity.ok(authResponse));
+
+        // Act
+        authorizationAspect.authorize(joinPoint);
+        authorizationAspect.authorize(joinPoint);
+        authorizationAspect.authorize(joinPoint);
+
+        // Assert
+        assertEquals(1, meterRegistry.get("auth.validation").tags("cache", "miss", "outcome", "2xx").timer().count());
+        assertEquals(2, meterRegistry.get("auth.validation").tags("cache", "hit", "outcome", "2xx").timer().count());
+        UserContext.clear();
+    }
+
+    @Test
+    void authorizeWithRejectedTokenShouldTagOutcomeWithStatusClass() throws NoSuchMethodException {
+        // Arrange
+        JoinPoint joinPoint = mock(JoinPoint.class);
+        MethodSignature methodSignature = mock(MethodSignature.class);
+        Method method = MemberController.class.getMethod("listAllMembers");
+
+        when(joinPoint.getSignature()).thenReturn(methodSignature);
+        when(methodSignature.getMethod()).thenReturn(method);
+        when(request.getHeader("Authorization")).thenReturn("Bearer unknown-token");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        doThrow(new HttpClientErrorException(HttpStatus.UNAUTHORIZED)).when(restTemplate).exchange(
+                any(String.class),
+                any(HttpMethod.class),
+                any(HttpEntity.class),
+                any(Class.class)
+        );
+
+        // Act
+        assertThrows(HttpClientErrorException.class, () -> authorizationAspect.authorize(joinPoint));
+
+        // Assert
+        assertEquals(1, meterRegistry.get("auth.validation").tags("cache", "miss", "outcome", "4xx").timer().count());
+    }
+
+    @Test
+    void authorizeWithUnreachableAuthServiceShouldFailWithServiceUnavailable() throws NoSuchMethodException {
+        // Arrange
+        JoinPoint joinPoint = mock(JoinPoint.class);
+        MethodSignature methodSignature = mock(MethodSignature.class);
+        Method method = MemberController.class.getMethod("listAllMembers");
+
+        when(joinPoint.getSignature()).thenReturn(methodSignature);
+        when(methodSignature.getMethod()).thenReturn(method);
+        when(request.getHeader("Authorization")).thenReturn("Bearer unreachable-token");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        doThrow(new ResourceAccessException("Read timed out")).when(restTemplate).exchange(
+                any(String.class),
+                any(HttpMethod.class),
+                any(HttpEntity.class),
+                any(Class.class)
+        );
+
+        // Act & Assert
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> authorizationAspect.authorize(joinPoint));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatusCode());
+        assertEquals(1, meterRegistry.get("auth.validation").tags("cache", "miss", "outcome", "error").timer().count());
+    }
+
+    @Test
+    void authorizeWithLocallyVerifiedJwtShouldNotCallAuthService() throws NoSuchMethodException {
+        // Arrange
+        JoinPoint joinPoint = mock(JoinPoint.class);
+        MethodSignature methodSignature = mock(MethodSignature.class);
+        Method method = MemberController.class.getMethod("listAllMembers");
+
+        when(joinPoint.getSignature()).thenReturn(methodSignature);
+        when(methodSignature.getMethod()).thenReturn(method);
+        when(request.getHeader("Authorization")).thenReturn("Bearer signed-jwt");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        when(jwtVerifier.verify(eq("signed-jwt"), any(String[].class))).thenReturn("user-jwt");
+
+        // Act
+        authorizationAspect.authorize(joinPoint);
+
+        // Assert
+        assertEquals("user-jwt", UserContext.getUserId());
+        verifyNoInteractions(restTemplate);
+        assertEquals(1, meterRegistry.get("auth.validation").tags("cache", "local").timer().count());
+        UserContext.clear();
+    }
 }
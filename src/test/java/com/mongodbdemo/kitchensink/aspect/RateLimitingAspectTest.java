@@ -1,6 +1,13 @@
 package com.mongodbdemo.kitchensink.aspect;
 
+import com.mongodbdemo.kitchensink.annotation.RateLimit;
 import com.mongodbdemo.kitchensink.helper.UserContext;
+import com.mongodbdemo.kitchensink.ratelimit.LocalRateLimiter;
+import com.mongodbdemo.kitchensink.resilience.DependencyGuard;
+import com.mongodbdemo.kitchensink.resilience.FailurePolicy;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.aspectj.lang.JoinPoint;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,7 +19,9 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.logging.Logger;
 
@@ -27,25 +36,41 @@ class RateLimitingAspectTest {
     @Mock
     private RestTemplate restTemplate;
 
+    private SimpleMeterRegistry meterRegistry;
+
     private static final String TEST_URL = "http://example.com/rate-limit";
     private static final String USER_ID = "testUserId";
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
         // Set the rateLimitServiceUrl directly since it's a final field
-        rateLimitingAspect = new RateLimitingAspect(restTemplate, "http://localhost:8080/rate-limit");
+        rateLimitingAspect = new RateLimitingAspect(restTemplate, "http://localhost:8080/rate-limit", null, guard(FailurePolicy.OPEN), meterRegistry);
+    }
+
+    private static DependencyGuard guard(FailurePolicy failurePolicy) {
+        return new DependencyGuard("ratelimit", failurePolicy, CircuitBreakerConfig.ofDefaults(),
+                BulkheadConfig.ofDefaults());
+    }
+
+    @RateLimit(permitsPerSecond = 1, burst = 2)
+    void limitedMethod() {
+    }
+
+    private RateLimit rateLimitAnnotation() throws NoSuchMethodException {
+        return getClass().getDeclaredMethod("limitedMethod").getAnnotation(RateLimit.class);
     }
 
     @Test
-    void rateLimitShouldCallRateLimitServiceWhenUserIdIsNotNull() {
+    void rateLimitShouldCallRateLimitServiceWhenUserIdIsNotNull() throws NoSuchMethodException {
         // Arrange
         UserContext.setUserId("testUserId");
         String expectedUrl = "http://localhost:8080/rate-limit/testUserId";
         HttpEntity<Void> entity = new HttpEntity<>(new HttpHeaders());
 
         // Act
-        rateLimitingAspect.rateLimit();
+        rateLimitingAspect.rateLimit(rateLimitAnnotation());
 
         // Assert
         verify(restTemplate, times(1)).exchange(eq(expectedUrl), eq(HttpMethod.PUT), eq(entity), eq(Void.class));
@@ -53,12 +78,14 @@ class RateLimitingAspectTest {
     }
 
     @Test
-    void rateLimitShouldNotCallRateLimitServiceWhenUserIdIsNull() {
+    void rateLimitShouldNotCallRateLimitServiceWhenUserIdIsNull() throws NoSuchMethodException {
         // Arrange
         UserContext.setUserId(null);
 
+        RateLimit rateLimit = rateLimitAnnotation();
+
         // Act & Assert
-        assertDoesNotThrow(() -> rateLimitingAspect.rateLimit());
+        assertDoesNotThrow(() -> rateLimitingAspect.rateLimit(rateLimit));
 
         // Verify that restTemplate.exchange is not called
         verify(restTemplate, never()).exchange(anyString(), any(HttpMethod.class), any(HttpEntity.class), eq(Void.class));
@@ -119,4 +146,88 @@ class RateLimitingAspectTest {
         );
 
     }
+
+    @Test
+    void callRateLimitServiceUnreachableShouldAllowRequestWhenFailingOpen() {
+        // Given an unreachable rate limit service
+        HttpEntity<Void> entity = new HttpEntity<>(null);
+        doThrow(new ResourceAccessException("Read timed out"))
+                .when(restTemplate).exchange(TEST_URL, HttpMethod.PUT, entity, Void.class);
+
+        // When the rate limit is checked, then the request is allowed
+        assertDoesNotThrow(() -> rateLimitingAspect.callRateLimitService(TEST_URL, entity, USER_ID));
+        assertEquals(1, meterRegistry.get("ratelimit.check").tags("mode", "remote", "outcome", "error")
+                .timer().count());
+    }
+
+    @Test
+    void callRateLimitServiceUnreachableShouldFailWithServiceUnavailableWhenFailingClosed() {
+        // Given an unreachable rate limit service and a closed failure policy
+        rateLimitingAspect = new RateLimitingAspect(restTemplate, "http://localhost:8080/rate-limit", null,
+                guard(FailurePolicy.CLOSED), meterRegistry);
+        HttpEntity<Void> entity = new HttpEntity<>(null);
+        doThrow(new ResourceAccessException("Connection refused"))
+                .when(restTemplate).exchange(TEST_URL, HttpMethod.PUT, entity, Void.class);
+
+        // When the rate limit is checked, then the request fails with 503
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> rateLimitingAspect.callRateLimitService(TEST_URL, entity, USER_ID));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatusCode());
+    }
+
+    @Test
+    void rateLimitInLocalModeShouldNotCallRateLimitService() throws NoSuchMethodException {
+        // Arrange
+        LocalRateLimiter localRateLimiter = mock(LocalRateLimiter.class);
+        RateLimit rateLimit = rateLimitAnnotation();
+        rateLimitingAspect = new RateLimitingAspect(restTemplate, "http://localhost:8080/rate-limit", localRateLimiter, guard(FailurePolicy.OPEN), meterRegistry);
+        when(localRateLimiter.mode()).thenReturn("local");
+        when(localRateLimiter.tryAcquire(USER_ID, rateLimit)).thenReturn(0L);
+        UserContext.setUserId(USER_ID);
+
+        // Act
+        rateLimitingAspect.rateLimit(rateLimit);
+
+        // Assert
+        verify(localRateLimiter, times(1)).tryAcquire(USER_ID, rateLimit);
+        verify(restTemplate, never()).exchange(anyString(), any(HttpMethod.class), any(HttpEntity.class), eq(Void.class));
+        UserContext.clear();
+    }
+
+    @Test
+    void rateLimitInLocalModeWithEmptyBucketShouldThrowTooManyRequests() throws NoSuchMethodException {
+        // Arrange
+        LocalRateLimiter localRateLimiter = mock(LocalRateLimiter.class);
+        RateLimit rateLimit = rateLimitAnnotation();
+        rateLimitingAspect = new RateLimitingAspect(restTemplate, "http://localhost:8080/rate-limit", localRateLimiter, guard(FailurePolicy.OPEN), meterRegistry);
+        when(localRateLimiter.mode()).thenReturn("local");
+        when(localRateLimiter.tryAcquire(USER_ID, rateLimit)).thenReturn(1_500_000_000L);
+        UserContext.setUserId(USER_ID);
+
+        // Act & Assert
+        HttpClientErrorException exception = assertThrows(HttpClientErrorException.class,
+                () -> rateLimitingAspect.rateLimit(rateLimit));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exception.getStatusCode());
+        assertEquals("2", exception.getResponseHeaders().getFirst("retry-after"));
+        verify(restTemplate, never()).exchange(anyString(), any(HttpMethod.class), any(HttpEntity.class), eq(Void.class));
+        assertEquals(1, meterRegistry.get("ratelimit.check").tags("mode", "local", "outcome", "429").timer().count());
+        UserContext.clear();
+    }
+
+    @Test
+    void callRateLimitServiceShouldTimeCallsByOutcome() {
+        // Arrange
+        HttpEntity<Void> entity = new HttpEntity<>(null);
+        doThrow(HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", new HttpHeaders(), null, null))
+                .when(restTemplate).exchange(TEST_URL, HttpMethod.PUT, entity, Void.class);
+
+        // Act
+        rateLimitingAspect.callRateLimitService("http://example.com/rate-limit/other", entity, USER_ID);
+        assertThrows(HttpClientErrorException.class,
+                () -> rateLimitingAspect.callRateLimitService(TEST_URL, entity, USER_ID));
+
+        // Assert
+        assertEquals(1, meterRegistry.get("ratelimit.check").tags("mode", "remote", "outcome", "2xx").timer().count());
+        assertEquals(1, meterRegistry.get("ratelimit.check").tags("mode", "remote", "outcome", "429").timer().count());
+    }
 }
@@ -0,0 +1,247 @@
+package com.mongodbdemo.kitchensink.aspect;
+
+import com.mongodbdemo.kitchensink.annotation.Authorize;
+import com.mongodbdemo.kitchensink.annotation.RateLimit;
+import com.mongodbdemo.kitchensink.auth.JwtVerifier;
+import com.mongodbdemo.kitchensink.auth.TokenValidationCache;
+import com.mongodbdemo.kitchensink.resilience.DependencyGuard;
+import com.mongodbdemo.kitchensink.resilience.FailurePolicy;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.filter.reactive.ServerWebExchangeContextFilter;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+class ReactiveAccessAspectTest {
+
+    private static final String AUTH_URL = "http://auth/validate";
+    private static final String RATE_LIMIT_URL = "http://ratelimit/api/rate-limit";
+
+    private final List<ClientRequest> requests = new ArrayList<>();
+    private final Map<String, ClientResponse.Builder> responses = new java.util.HashMap<>();
+    private SimpleMeterRegistry meterRegistry;
+    private WebClient webClient;
+    private ReactiveAccessAspect aspect;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        responses.put(AUTH_URL, ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"userId\":\"user-1\"}"));
+        responses.put(RATE_LIMIT_URL + "/user-1", ClientResponse.create(HttpStatus.NO_CONTENT));
+        webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    requests.add(request);
+                    return Mono.just(responses.get(request.url().toString()).build());
+                })
+                .build();
+        aspect = new ReactiveAccessAspect(webClient, AUTH_URL, RATE_LIMIT_URL, null,
+                new TokenValidationCache(100, 60, 5, 100, 3000), null, guard("auth", FailurePolicy.CLOSED),
+                guard("ratelimit", FailurePolicy.OPEN), meterRegistry);
+    }
+
+    private static DependencyGuard guard(String dependency, FailurePolicy failurePolicy) {
+        return new DependencyGuard(dependency, failurePolicy, CircuitBreakerConfig.ofDefaults(),
+                BulkheadConfig.ofDefaults());
+    }
+
+    @Authorize(roles = {"MEMBERS:READ"})
+    @RateLimit
+    Mono<String> limitedHandler() {
+        return Mono.just("member");
+    }
+
+    @Authorize(roles = {"MEMBERS:READ"})
+    Flux<String> streamingHandler() {
+        return Flux.just("a", "b");
+    }
+
+    @Test
+    void authorizeShouldValidateTokenAndRateLimitBeforeSubscribingToHandler() throws Throwable {
+        // Arrange
+        ProceedingJoinPoint joinPoint = joinPoint("limitedHandler", limitedHandler());
+
+        // Act
+        Mono<Object> result = (Mono<Object>) aspect.authorize(joinPoint, authorize("limitedHandler"));
+
+        // Assert
+        StepVerifier.create(result.contextWrite(withToken("Bearer token"))).expectNext("member").verifyComplete();
+        assertEquals(List.of(HttpMethod.POST, HttpMethod.PUT), requests.stream().map(ClientRequest::method).toList());
+        assertEquals(RATE_LIMIT_URL + "/user-1", requests.get(1).url().toString());
+        assertEquals(1, meterRegistry.get("auth.validation").tags("cache", "miss", "outcome", "2xx").timer().count());
+        assertEquals(1, meterRegistry.get("ratelimit.check").tags("mode", "remote", "outcome", "2xx").timer().count());
+    }
+
+    @Test
+    void authorizeShouldServeRepeatedTokenFromCache() throws Throwable {
+        // Arrange
+        ProceedingJoinPoint joinPoint = joinPoint("streamingHandler", streamingHandler());
+
+        // Act
+        for (int i = 0; i < 2; i++) {
+            Flux<Object> result = (Flux<Object>) aspect.authorize(joinPoint, authorize("streamingHandler"));
+            StepVerifier.create(result.contextWrite(withToken("Bearer token"))).expectNext("a", "b").verifyComplete();
+        }
+
+        // Assert
+        assertEquals(1, requests.size());
+        assertEquals(1, meterRegistry.get("auth.validation").tags("cache", "hit").timer().count());
+    }
+
+    @Test
+    void authorizeWithoutTokenShouldFailWithUnauthorized() throws Throwable {
+        // Arrange
+        ProceedingJoinPoint joinPoint = joinPoint("limitedHandler", limitedHandler());
+
+        // Act
+        Mono<Object> result = (Mono<Object>) aspect.authorize(joinPoint, authorize("limitedHandler"));
+
+        // Assert
+        StepVerifier.create(result.contextWrite(withToken("Basic abc")))
+                .expectErrorSatisfies(error -> assertEquals(HttpStatus.UNAUTHORIZED,
+                        ((HttpClientErrorException) error).getStatusCode()))
+                .verify();
+        verify(joinPoint, never()).proceed();
+        assertTrue(requests.isEmpty());
+    }
+
+    @Test
+    void authorizeShouldFailWithRetryAfterWhenRateLimited() throws Throwable {
+        // Arrange
+        responses.put(RATE_LIMIT_URL + "/user-1", ClientResponse.create(HttpStatus.TOO_MANY_REQUESTS)
+                .header("retry-after", "3"));
+        ProceedingJoinPoint joinPoint = joinPoint("limitedHandler", limitedHandler());
+
+        // Act
+        Mono<Object> result = (Mono<Object>) aspect.authorize(joinPoint, authorize("limitedHandler"));
+
+        // Assert
+        StepVerifier.create(result.contextWrite(withToken("Bearer token")))
+                .expectErrorSatisfies(error -> {
+                    HttpClientErrorException exception = (HttpClientErrorException) error;
+                    assertEquals(HttpStatus.TOO_MANY_REQUESTS, exception.getStatusCode());
+                    assertEquals("3", exception.getResponseHeaders().getFirst("retry-after"));
+                })
+                .verify();
+        verify(joinPoint, never()).proceed();
+        assertEquals(1, meterRegistry.get("ratelimit.check").tags("outcome", "429").timer().count());
+    }
+
+    @Test
+    void authorizeShouldFailWithForbiddenWhenAuthServiceRejectsRoles() throws Throwable {
+        // Arrange
+        responses.put(AUTH_URL, ClientResponse.create(HttpStatus.FORBIDDEN));
+        ProceedingJoinPoint joinPoint = joinPoint("limitedHandler", limitedHandler());
+
+        // Act
+        Mono<Object> result = (Mono<Object>) aspect.authorize(joinPoint, authorize("limitedHandler"));
+
+        // Assert
+        StepVerifier.create(result.contextWrite(withToken("Bearer token")))
+                .expectErrorSatisfies(error -> assertEquals(HttpStatus.FORBIDDEN,
+                        ((HttpClientErrorException) error).getStatusCode()))
+                .verify();
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    void authorizeShouldFailWithServiceUnavailableWhenAuthServiceFails() throws Throwable {
+        // Arrange
+        responses.put(AUTH_URL, ClientResponse.create(HttpStatus.BAD_GATEWAY));
+        ProceedingJoinPoint joinPoint = joinPoint("limitedHandler", limitedHandler());
+
+        // Act
+        Mono<Object> result = (Mono<Object>) aspect.authorize(joinPoint, authorize("limitedHandler"));
+
+        // Assert
+        StepVerifier.create(result.contextWrite(withToken("Bearer token")))
+                .expectErrorSatisfies(error -> assertEquals(HttpStatus.SERVICE_UNAVAILABLE,
+                        ((ResponseStatusException) error).getStatusCode()))
+                .verify();
+        verify(joinPoint, never()).proceed();
+    }
+
+    @Test
+    void authorizeShouldAllowRequestWhenRateLimitServiceFails() throws Throwable {
+        // Arrange
+        responses.put(RATE_LIMIT_URL + "/user-1", ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE));
+        ProceedingJoinPoint joinPoint = joinPoint("limitedHandler", limitedHandler());
+
+        // Act
+        Mono<Object> result = (Mono<Object>) aspect.authorize(joinPoint, authorize("limitedHandler"));
+
+        // Assert
+        StepVerifier.create(result.contextWrite(withToken("Bearer token"))).expectNext("member").verifyComplete();
+        assertEquals(1, meterRegistry.get("ratelimit.check").tags("mode", "remote", "outcome", "5xx").timer().count());
+    }
+
+    @Test
+    void authorizeShouldVerifyJwtLocallyWithoutCallingAuthService() throws Throwable {
+        // Arrange
+        JwtVerifier jwtVerifier = mock(JwtVerifier.class);
+        when(jwtVerifier.verify(eq("signed-jwt"), any(String[].class))).thenReturn("user-1");
+        aspect = new ReactiveAccessAspect(webClient, AUTH_URL, RATE_LIMIT_URL, null,
+                new TokenValidationCache(100, 60, 5, 100, 3000), jwtVerifier, guard("auth", FailurePolicy.CLOSED),
+                guard("ratelimit", FailurePolicy.OPEN), meterRegistry);
+        ProceedingJoinPoint joinPoint = joinPoint("streamingHandler", streamingHandler());
+
+        // Act
+        Flux<Object> result = (Flux<Object>) aspect.authorize(joinPoint, authorize("streamingHandler"));
+
+        // Assert
+        StepVerifier.create(result.contextWrite(withToken("Bearer signed-jwt"))).expectNext("a", "b").verifyComplete();
+        assertTrue(requests.isEmpty());
+        assertEquals(1, meterRegistry.get("auth.validation").tags("cache", "local").timer().count());
+    }
+
+    private ProceedingJoinPoint joinPoint(String handler, Object result) throws Throwable {
+        Method method = getClass().getDeclaredMethod(handler);
+        MethodSignature signature = mock(MethodSignature.class);
+        when(signature.getMethod()).thenReturn(method);
+        when(signature.getReturnType()).thenReturn(method.getReturnType());
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.proceed()).thenReturn(result);
+        return joinPoint;
+    }
+
+    private Authorize authorize(String handler) throws NoSuchMethodException {
+        return getClass().getDeclaredMethod(handler).getAnnotation(Authorize.class);
+    }
+
+    private static java.util.function.Function<reactor.util.context.Context, reactor.util.context.Context> withToken(
+            String authorization) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/members")
+                .header(HttpHeaders.AUTHORIZATION, authorization));
+        return context -> context.put(ServerWebExchangeContextFilter.EXCHANGE_CONTEXT_ATTRIBUTE, exchange);
+    }
+}
@@ -0,0 +1,264 @@
+package com.mongodbdemo.kitchensink.auth;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jose.util.DefaultResourceRetriever;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtVerifierTest {
+
+    private static final String[] ROLES = {"MEMBERS:READ"};
+
+    private static RSAKey signingKey;
+    private static RSAKey otherKey;
+
+    @TempDir
+    Path directory;
+
+    private Path keySetFile;
+    private HttpServer server;
+    private JwtVerifier jwtVerifier;
+
+    @BeforeAll
+    static void generateKeys() throws JOSEException {
+        signingKey = new RSAKeyGenerator(2048).keyID("key-1").generate();
+        otherKey = new RSAKeyGenerator(2048).keyID("key-2").generate();
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        keySetFile = directory.resolve("jwks.json");
+        writeKeySet(signingKey);
+        jwtVerifier = verifier(new FileSystemResource(keySetFile));
+        jwtVerifier.onApplicationReady();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void verifyShouldReturnUserIdOfValidToken() throws JOSEException {
+        // Arrange
+        String token = sign(signingKey, claims().build());
+
+        // Act & Assert
+        assertEquals("user-1", jwtVerifier.verify(token, ROLES));
+    }
+
+    @Test
+    void verifyShouldRejectExpiredToken() throws JOSEException {
+        // Arrange
+        String token = sign(signingKey, claims().expirationTime(Date.from(Instant.now().minusSeconds(120))).build());
+
+        // Act & Assert
+        HttpClientErrorException exception = assertThrows(HttpClientErrorException.class,
+                () -> jwtVerifier.verify(token, ROLES));
+        assertEquals(HttpStatus.UNAUTHORIZED, exception.getStatusCode());
+    }
+
+    @Test
+    void verifyShouldRejectTokenUsedBeforeNotBefore() throws JOSEException {
+        // Arrange
+        String token = sign(signingKey, claims().notBeforeTime(Date.from(Instant.now().plusSeconds(300))).build());
+
+        // Act & Assert
+        assertThrows(HttpClientErrorException.class, () -> jwtVerifier.verify(token, ROLES));
+    }
+
+    @Test
+    void verifyShouldRejectTokenWithForgedSignature() throws JOSEException {
+        // Arrange
+        RSAKey forger = new RSAKey.Builder(otherKey).keyID(signingKey.getKeyID()).build();
+        String token = sign(forger, claims().build());
+
+        // Act & Assert
+        HttpClientErrorException exception = assertThrows(HttpClientErrorException.class,
+                () -> jwtVerifier.verify(token, ROLES));
+        assertEquals(HttpStatus.UNAUTHORIZED, exception.getStatusCode());
+    }
+
+    @Test
+    void verifyShouldLeaveSymmetricSignatureToAuthService() throws JOSEException {
+        // Arrange
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.HS256).keyID("key-1").build(),
+                claims().build());
+        jwt.sign(new MACSigner(new byte[32]));
+
+        // Act & Assert
+        assertNull(jwtVerifier.verify(jwt.serialize(), ROLES));
+    }
+
+    @Test
+    void verifyShouldRejectTokenWithoutRequiredRole() throws JOSEException {
+        // Arrange
+        String token = sign(signingKey, claims().claim("roles", List.of("MEMBERS:WRITE")).build());
+
+        // Act & Assert
+        HttpClientErrorException exception = assertThrows(HttpClientErrorException.class,
+                () -> jwtVerifier.verify(token, ROLES));
+        assertEquals(HttpStatus.FORBIDDEN, exception.getStatusCode());
+    }
+
+    @Test
+    void verifyShouldLeaveOpaqueTokenToAuthService() {
+        // Act & Assert
+        assertNull(jwtVerifier.verify("opaque-token", ROLES));
+    }
+
+    @Test
+    void verifyShouldLeaveTokenSignedWithUnknownKeyToAuthService() throws JOSEException {
+        // Arrange
+        String token = sign(otherKey, claims().build());
+
+        // Act & Assert
+        assertNull(jwtVerifier.verify(token, ROLES));
+    }
+
+    @Test
+    void refreshShouldPickUpRotatedKeys() throws JOSEException, IOException {
+        // Arrange
+        String token = sign(otherKey, claims().build());
+        writeKeySet(signingKey, otherKey);
+
+        // Act
+        jwtVerifier.refresh();
+
+        // Assert
+        assertEquals("user-1", jwtVerifier.verify(token, ROLES));
+    }
+
+    @Test
+    void verifyWithoutKeySetShouldLeaveTokensToAuthService() throws JOSEException {
+        // Arrange
+        jwtVerifier = verifier(new FileSystemResource(directory.resolve("missing.json")));
+        jwtVerifier.onApplicationReady();
+        String token = sign(signingKey, claims().build());
+
+        // Act & Assert
+        assertNull(jwtVerifier.verify(token, ROLES));
+    }
+
+    @Test
+    void constructorShouldNotLoadKeySet() throws JOSEException {
+        // Arrange
+        String token = sign(signingKey, claims().build());
+
+        // Act
+        jwtVerifier = verifier(new FileSystemResource(keySetFile));
+
+        // Assert
+        assertNull(jwtVerifier.verify(token, ROLES));
+    }
+
+    @Test
+    void refreshShouldFetchKeySetOverHttp() throws JOSEException, IOException {
+        // Arrange
+        String keySet = new JWKSet(signingKey).toPublicJWKSet().toString();
+        startServer(() -> keySet);
+        jwtVerifier = verifier(new UrlResource("http://localhost:" + server.getAddress().getPort() + "/jwks.json"));
+        String token = sign(signingKey, claims().build());
+
+        // Act
+        jwtVerifier.refresh();
+
+        // Assert
+        assertEquals("user-1", jwtVerifier.verify(token, ROLES));
+    }
+
+    @Test
+    void refreshShouldGiveUpOnSlowKeySetEndpointAndKeepKeys() throws JOSEException, IOException {
+        // Arrange
+        startServer(() -> {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new JWKSet(otherKey).toPublicJWKSet().toString();
+        });
+        String url = "http://localhost:" + server.getAddress().getPort() + "/jwks.json";
+        jwtVerifier = new JwtVerifier(new UrlResource(url), "userId", "roles", Duration.ofSeconds(60),
+                new DefaultResourceRetriever(200, 200), Runnable::run);
+        String token = sign(signingKey, claims().build());
+
+        // Act
+        long started = System.nanoTime();
+        jwtVerifier.refresh();
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+        // Assert
+        assertTrue(elapsed.compareTo(Duration.ofMillis(1500)) < 0);
+        assertNull(jwtVerifier.verify(token, ROLES));
+    }
+
+    private JwtVerifier verifier(Resource keySetResource) {
+        return new JwtVerifier(keySetResource, "userId", "roles", Duration.ofSeconds(60),
+                new DefaultResourceRetriever(1000, 1000), Runnable::run);
+    }
+
+    private void startServer(Supplier<String> body) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/jwks.json", exchange -> {
+            byte[] bytes = body.get().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+    }
+
+    private void writeKeySet(RSAKey... keys) throws IOException {
+        Files.writeString(keySetFile, new JWKSet(List.of(keys)).toPublicJWKSet().toString());
+    }
+
+    private static JWTClaimsSet.Builder claims() {
+        return new JWTClaimsSet.Builder()
+                .claim("userId", "user-1")
+                .claim("roles", List.of("MEMBERS:READ", "MEMBERS:WRITE"))
+                .expirationTime(Date.from(Instant.now().plusSeconds(300)));
+    }
+
+    private static String sign(RSAKey key, JWTClaimsSet claims) throws JOSEException {
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+}
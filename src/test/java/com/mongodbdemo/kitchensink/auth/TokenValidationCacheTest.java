@@ -0,0 +1,394 @@
+package com.mongodbdemo.kitchensink.auth;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenValidationCacheTest {
+
+    private static final String[] ROLES = {"MEMBERS:READ"};
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = nanos::get;
+    private TokenValidationCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new TokenValidationCache(2, Duration.ofSeconds(60), Duration.ofSeconds(5), 100,
+                Duration.ofMillis(200), ticker);
+    }
+
+    @Test
+    void validateShouldCallValidatorOnceWhileEntryIsFresh() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<String> validator = () -> {
+            calls.incrementAndGet();
+            return "user-1";
+        };
+
+        // Act
+        String first = cache.validate("token", ROLES, validator);
+        String second = cache.validate("token", ROLES, validator);
+
+        // Assert
+        assertEquals("user-1", first);
+        assertEquals("user-1", second);
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    void validateShouldKeySeparatelyByRoles() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<String> validator = () -> "user-" + calls.incrementAndGet();
+
+        // Act
+        cache.validate("token", ROLES, validator);
+        cache.validate("token", new String[]{"MEMBERS:WRITE"}, validator);
+
+        // Assert
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void validateShouldCallValidatorAgainAfterTtl() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<String> validator = () -> "user-" + calls.incrementAndGet();
+        cache.validate("token", ROLES, validator);
+
+        // Act
+        nanos.addAndGet(Duration.ofSeconds(61).toNanos());
+        String userId = cache.validate("token", ROLES, validator);
+
+        // Assert
+        assertEquals("user-2", userId);
+    }
+
+    @Test
+    void validateShouldCacheRejectionForNegativeTtl() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<String> validator = () -> {
+            calls.incrementAndGet();
+            throw new HttpClientErrorException(HttpStatus.UNAUTHORIZED);
+        };
+
+        // Act & Assert
+        assertThrows(HttpClientErrorException.class, () -> cache.validate("bad", ROLES, validator));
+        HttpClientErrorException cached = assertThrows(HttpClientErrorException.class,
+                () -> cache.validate("bad", ROLES, validator));
+        assertEquals(HttpStatus.UNAUTHORIZED, cached.getStatusCode());
+        assertEquals(1, calls.get());
+
+        nanos.addAndGet(Duration.ofSeconds(6).toNanos());
+        assertThrows(HttpClientErrorException.class, () -> cache.validate("bad", ROLES, validator));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void validateShouldNotCacheUnexpectedErrors() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<String> validator = () -> {
+            calls.incrementAndGet();
+            throw new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+        };
+
+        // Act & Assert
+        assertThrows(HttpClientErrorException.class, () -> cache.validate("token", ROLES, validator));
+        assertThrows(HttpClientErrorException.class, () -> cache.validate("token", ROLES, validator));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void reactiveValidateShouldSubscribeToValidatorOnceWhileEntryIsFresh() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        Mono<String> validator = Mono.fromSupplier(() -> "user-" + calls.incrementAndGet());
+
+        // Act & Assert
+        StepVerifier.create(cache.validate("token", ROLES, validator)).expectNext("user-1").verifyComplete();
+        StepVerifier.create(cache.validate("token", ROLES, validator)).expectNext("user-1").verifyComplete();
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void validationMissingCacheBeforeAnotherFlightCompletedShouldNotCallValidatorAgain() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        Mono<String> validator = Mono.fromSupplier(() -> "user-" + calls.incrementAndGet());
+        // The cache is read when the Mono is assembled, before the other validation starts
+        Mono<String> late = cache.validate("token", ROLES, validator);
+        StepVerifier.create(cache.validate("token", ROLES, validator)).expectNext("user-1").verifyComplete();
+
+        // Act & Assert
+        StepVerifier.create(late).expectNext("user-1").verifyComplete();
+        assertEquals(1, calls.get());
+        assertEquals(0, cache.inFlight());
+        assertEquals(0, cache.coalesced());
+    }
+
+    @Test
+    void reactiveValidateShouldCacheRejection() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        Mono<String> validator = Mono.defer(() -> {
+            calls.incrementAndGet();
+            return Mono.error(new HttpClientErrorException(HttpStatus.FORBIDDEN));
+        });
+
+        // Act & Assert
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(cache.validate("token", ROLES, validator))
+                    .expectErrorSatisfies(error -> assertEquals(HttpStatus.FORBIDDEN,
+                            ((HttpClientErrorException) error).getStatusCode()))
+                    .verify();
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void concurrentValidationsShouldShareOneCall() throws Exception {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<String> validator = () -> {
+            calls.incrementAndGet();
+            await(release);
+            return "user-1";
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            // Act
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> cache.validate("token", ROLES, validator)));
+            }
+            awaitCoalesced(3);
+            release.countDown();
+
+            // Assert
+            for (Future<String> result : results) {
+                assertEquals("user-1", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentValidationsShouldShareRejection() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<String> validator = () -> {
+            await(release);
+            throw new HttpClientErrorException(HttpStatus.FORBIDDEN);
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            // Act
+            Future<String> leader = executor.submit(() -> cache.validate("token", ROLES, validator));
+            awaitInFlight();
+            Future<String> waiter = executor.submit(() -> cache.validate("token", ROLES, () -> "user-2"));
+            awaitCoalesced(1);
+            release.countDown();
+
+            // Assert
+            for (Future<String> result : List.of(leader, waiter)) {
+                ExecutionException failure = assertThrows(ExecutionException.class,
+                        () -> result.get(5, TimeUnit.SECONDS));
+                assertEquals(HttpStatus.FORBIDDEN, ((HttpClientErrorException) failure.getCause()).getStatusCode());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void waiterShouldGiveUpAfterWaitTimeout() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            executor.submit(() -> cache.validate("token", ROLES, () -> {
+                await(release);
+                return "user-1";
+            }));
+            awaitInFlight();
+
+            // Act
+            ResponseStatusException thrown = assertThrows(ResponseStatusException.class,
+                    () -> cache.validate("token", ROLES, () -> "user-2"));
+
+            // Assert
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, thrown.getStatusCode());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void validationsShouldNotBeSharedWhenTableIsFull() throws Exception {
+        // Arrange
+        cache = new TokenValidationCache(2, Duration.ofSeconds(60), Duration.ofSeconds(5), 0,
+                Duration.ofMillis(200), ticker);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<String> first = executor.submit(() -> cache.validate("token", ROLES, () -> {
+                calls.incrementAndGet();
+                await(release);
+                return "user-1";
+            }));
+            while (calls.get() == 0) {
+                Thread.onSpinWait();
+            }
+
+            // Act
+            String second = cache.validate("token", ROLES, () -> "user-" + calls.incrementAndGet());
+            release.countDown();
+
+            // Assert
+            assertEquals("user-2", second);
+            assertEquals("user-1", first.get(5, TimeUnit.SECONDS));
+            assertEquals(0, cache.coalesced());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void reactiveConcurrentValidationsShouldShareOneSubscription() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        Sinks.One<String> response = Sinks.one();
+        Mono<String> validator = Mono.defer(() -> {
+            calls.incrementAndGet();
+            return response.asMono();
+        });
+
+        // Act & Assert
+        StepVerifier.create(Mono.zip(
+                        cache.validate("token", ROLES, validator),
+                        cache.validate("token", ROLES, validator)))
+                .then(() -> response.tryEmitValue("user-1"))
+                .assertNext(userIds -> {
+                    assertEquals("user-1", userIds.getT1());
+                    assertEquals("user-1", userIds.getT2());
+                })
+                .verifyComplete();
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.coalesced());
+    }
+
+    @Test
+    void reactiveWaiterShouldGiveUpAfterWaitTimeout() {
+        // Arrange
+        Mono<String> validator = Mono.never();
+        cache.validate("token", ROLES, validator).subscribe();
+
+        // Act & Assert
+        StepVerifier.create(cache.validate("token", ROLES, validator))
+                .expectErrorSatisfies(error -> assertEquals(HttpStatus.SERVICE_UNAVAILABLE,
+                        ((ResponseStatusException) error).getStatusCode()))
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void validateShouldEvictWhenMaximumSizeIsExceeded() {
+        // Act
+        for (int i = 0; i < 10; i++) {
+            cache.validate("token-" + i, ROLES, () -> "user");
+        }
+        cache.getCache().cleanUp();
+
+        // Assert
+        assertTrue(cache.getCache().estimatedSize() <= 2);
+        assertTrue(cache.stats().evictionCount() > 0);
+    }
+
+    @Test
+    void hashShouldNotExposeToken() {
+        // Act
+        String hash = TokenValidationCache.hash("secret-token");
+
+        // Assert
+        assertEquals(64, hash.length());
+        assertFalse(hash.contains("secret-token"));
+    }
+
+    @Test
+    void bindToShouldPublishHitAndMissCounts() {
+        // Arrange
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        // Act
+        cache.validate("token", ROLES, () -> "user");
+        cache.validate("token", ROLES, () -> "user");
+
+        // Assert
+        assertEquals(1, registry.get("cache.gets").tags("cache", "auth.tokens", "result", "hit").functionCounter().count());
+        assertEquals(1, registry.get("cache.gets").tags("cache", "auth.tokens", "result", "miss").functionCounter().count());
+        assertEquals(0, registry.get("auth.validation.coalesced").functionCounter().count());
+        assertEquals(0, registry.get("auth.validation.in-flight").gauge().value());
+    }
+
+    private void awaitCoalesced(long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cache.coalesced() < count && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(count, cache.coalesced());
+    }
+
+    private void awaitInFlight() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cache.inFlight() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, cache.inFlight());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
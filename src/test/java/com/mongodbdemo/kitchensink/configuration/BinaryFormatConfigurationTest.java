@@ -0,0 +1,312 @@
+package com.mongodbdemo.kitchensink.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.mongodbdemo.kitchensink.controller.MemberController;
+import com.mongodbdemo.kitchensink.dto.MemberPage;
+import com.mongodbdemo.kitchensink.dto.MemberUpdateDto;
+import com.mongodbdemo.kitchensink.model.Member;
+import com.mongodbdemo.kitchensink.repository.MemberRepository;
+import com.mongodbdemo.kitchensink.service.MemberService;
+import jakarta.validation.Validator;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.mongodbdemo.kitchensink.model.MemberFixtures.member;
+import static com.mongodbdemo.kitchensink.MemberConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+class BinaryFormatConfigurationTest {
+
+    private static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
+    private final BinaryFormatConfiguration configuration = new BinaryFormatConfiguration();
+    private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory()).findAndRegisterModules();
+    private final ObjectMapper smileMapper = new ObjectMapper(new SmileFactory()).findAndRegisterModules();
+
+    @Mock
+    private MemberRepository memberRepository;
+
+    @Mock
+    private MemberService memberService;
+
+    @Mock
+    private Validator validator;
+
+    @InjectMocks
+    private MemberController memberController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        // Same order as the Spring MVC defaults: JSON first
+        mockMvc = MockMvcBuilders.standaloneSetup(memberController)
+                .setMessageConverters(
+                        new MappingJackson2HttpMessageConverter(Jackson2ObjectMapperBuilder.json().build()),
+                        configuration.cborHttpMessageConverter(Jackson2ObjectMapperBuilder.json()),
+                        configuration.smileHttpMessageConverter(Jackson2ObjectMapperBuilder.json()))
+                .build();
+    }
+
+    @Test
+    void convertersShouldTakePrecedenceOverDefaultsAfterJsonConverter() {
+        // Arrange
+        MappingJackson2CborHttpMessageConverter cbor =
+                configuration.cborHttpMessageConverter(Jackson2ObjectMapperBuilder.json());
+        MappingJackson2SmileHttpMessageConverter smile =
+                configuration.smileHttpMessageConverter(Jackson2ObjectMapperBuilder.json());
+
+        // Act
+        List<HttpMessageConverter<?>> converters = new HttpMessageConverters(cbor, smile).getConverters();
+
+        // Assert
+        int json = converters.indexOf(converters.stream()
+                .filter(MappingJackson2HttpMessageConverter.class::isInstance).findFirst().orElseThrow());
+        assertTrue(json < converters.indexOf(cbor));
+        assertTrue(json < converters.indexOf(smile));
+        assertSame(cbor, converters.stream()
+                .filter(MappingJackson2CborHttpMessageConverter.class::isInstance).findFirst().orElseThrow());
+        assertSame(smile, converters.stream()
+                .filter(MappingJackson2SmileHttpMessageConverter.class::isInstance).findFirst().orElseThrow());
+    }
+
+    @Test
+    void lookupMemberByIdShouldDefaultToJson() throws Exception {
+        // Arrange
+        when(memberService.findMember(1L)).thenReturn(Optional.of(versioned(member(1L, "Ann"))));
+
+        // Act
+        MockHttpServletResponse response = mockMvc.perform(get(BASE_PATH + MEMBERS_PATH + "/1")
+                .accept(MediaType.ALL)).andReturn().getResponse();
+
+        // Assert
+        assertEquals(200, response.getStatus());
+        assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(response.getContentType())));
+        assertTrue(response.getContentAsString().contains("\"name\":\"Ann\""));
+        assertEquals("\"3\"", response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void lookupMemberByIdShouldWriteCborWhenAccepted() throws Exception {
+        // Arrange
+        when(memberService.findMember(1L)).thenReturn(Optional.of(versioned(member(1L, "Ann"))));
+
+        // Act
+        MockHttpServletResponse response = mockMvc.perform(get(BASE_PATH + MEMBERS_PATH + "/1")
+                .accept(MediaType.APPLICATION_CBOR)).andReturn().getResponse();
+
+        // Assert
+        assertEquals(MediaType.APPLICATION_CBOR_VALUE, response.getContentType());
+        assertEquals(HttpHeaders.ACCEPT, response.getHeader(HttpHeaders.VARY));
+        assertEquals("\"3-cbor\"", response.getHeader(HttpHeaders.ETAG));
+        assertEquals("Ann", cborMapper.readValue(response.getContentAsByteArray(), Member.class).getName());
+    }
+
+    @Test
+    void lookupMemberByIdShouldTagSmileSeparately() throws Exception {
+        // Arrange
+        when(memberService.findMember(1L)).thenReturn(Optional.of(versioned(member(1L, "Ann"))));
+
+        // Act
+        MockHttpServletResponse response = mockMvc.perform(get(BASE_PATH + MEMBERS_PATH + "/1")
+                .accept(APPLICATION_SMILE)).andReturn().getResponse();
+
+        // Assert
+        assertEquals(APPLICATION_SMILE_VALUE, response.getContentType());
+        assertEquals("\"3-smile\"", response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void lookupMemberByIdShouldTagPreferredFormat() throws Exception {
+        // Arrange
+        when(memberService.findMember(1L)).thenReturn(Optional.of(versioned(member(1L, "Ann"))));
+
+        // Act
+        MockHttpServletResponse response = mockMvc.perform(get(BASE_PATH + MEMBERS_PATH + "/1")
+                .header(HttpHeaders.ACCEPT, "application/cbor;q=0.5, */*;q=0.8")).andReturn().getResponse();
+
+        // Assert
+        assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(response.getContentType())));
+        assertEquals("\"3\"", response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void lookupMemberByIdShouldNotMatchEtagOfOtherFormat() throws Exception {
+        // Arrange
+        when(memberService.findMember(1L)).thenReturn(Optional.of(versioned(member(1L, "Ann"))));
+
+        // Act
+        MockHttpServletResponse response = mockMvc.perform(get(BASE_PATH + MEMBERS_PATH + "/1")
+                .accept(MediaType.APPLICATION_CBOR)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3\"")).andReturn().getResponse();
+
+        // Assert
+        assertEquals(200, response.getStatus());
+        assertEquals("Ann", cborMapper.readValue(response.getContentAsByteArray(), Member.class).getName());
+    }
+
+    @Test
+    void lookupMemberByIdShouldMatchEtagOfSameFormat() throws Exception {
+        // Arrange
+        when(memberService.findMember(1L)).thenReturn(Optional.of(versioned(member(1L, "Ann"))));
+
+        // Act
+        MockHttpServletResponse response = mockMvc.perform(get(BASE_PATH + MEMBERS_PATH + "/1")
+                .accept(MediaType.APPLICATION_CBOR)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3-cbor\"")).andReturn().getResponse();
+
+        // Assert
+        assertEquals(304, response.getStatus());
+    }
+
+    @Test
+    void listAllMembersShouldWriteSmileWhenAccepted() throws Exception {
+        // Arrange
+        when(memberRepository.findAllByOrderByNameAsc()).thenReturn(List.of(member(1L, "Ann"), member(2L, "Bob")));
+
+        // Act
+        MockHttpServletResponse response = mockMvc.perform(get(BASE_PATH + MEMBERS_PATH).param("unpaged", "true")
+                .accept(APPLICATION_SMILE)).andReturn().getResponse();
+
+        // Assert
+        assertEquals(APPLICATION_SMILE_VALUE, response.getContentType());
+        Member[] members = smileMapper.readValue(response.getContentAsByteArray(), Member[].class);
+        assertEquals(List.of("Ann", "Bob"), List.of(members[0].getName(), members[1].getName()));
+    }
+
+    @Test
+    void listMembersShouldWriteCborPageWithItsOwnEtag() throws Exception {
+        // Arrange
+        when(memberService.collectionVersion()).thenReturn(7L);
+        when(memberRepository.findPageAfter(null, null, 3)).thenReturn(List.of(member(1L, "Ann"), member(2L, "Bob")));
+
+        // Act
+        MockHttpServletResponse response = mockMvc.perform(get(BASE_PATH + MEMBERS_PATH).param("limit", "2")
+                .accept(MediaType.APPLICATION_CBOR)).andReturn().getResponse();
+
+        // Assert
+        assertEquals(MediaType.APPLICATION_CBOR_VALUE, response.getContentType());
+        assertEquals("\"7-cbor\"", response.getHeader(HttpHeaders.ETAG));
+        assertEquals(HttpHeaders.ACCEPT, response.getHeader(HttpHeaders.VARY));
+        MemberPage<?> page = cborMapper.readValue(response.getContentAsByteArray(), MemberPage.class);
+        assertEquals(2, page.members().size());
+        assertNull(page.next());
+    }
+
+    @Test
+    void listMembersShouldNotMatchEtagOfOtherFormat() throws Exception {
+        // Arrange
+        when(memberService.collectionVersion()).thenReturn(7L);
+        when(memberRepository.findPageAfter(null, null, 3)).thenReturn(List.of(member(1L, "Ann")));
+
+        // Act
+        MockHttpServletResponse json = mockMvc.perform(get(BASE_PATH + MEMBERS_PATH).param("limit", "2")
+                .accept(APPLICATION_SMILE)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"7\"")).andReturn().getResponse();
+        MockHttpServletResponse smile = mockMvc.perform(get(BASE_PATH + MEMBERS_PATH).param("limit", "2")
+                .accept(APPLICATION_SMILE)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"7-smile\"")).andReturn().getResponse();
+
+        // Assert
+        assertEquals(200, json.getStatus());
+        assertEquals(APPLICATION_SMILE_VALUE, json.getContentType());
+        assertEquals(304, smile.getStatus());
+    }
+
+    @Test
+    void listMemberFieldsShouldWriteSmilePage() throws Exception {
+        // Arrange
+        when(memberService.collectionVersion()).thenReturn(7L);
+        when(memberRepository.findPageAfter(eq(null), eq(null), eq(3), any()))
+                .thenReturn(List.of(new Document("_id", 1L).append("name", "Ann")));
+
+        // Act
+        MockHttpServletResponse response = mockMvc.perform(get(BASE_PATH + MEMBERS_PATH).param("limit", "2")
+                .param("fields", "id,name").accept(APPLICATION_SMILE)).andReturn().getResponse();
+
+        // Assert
+        assertEquals(APPLICATION_SMILE_VALUE, response.getContentType());
+        assertEquals("\"7-smile\"", response.getHeader(HttpHeaders.ETAG));
+        MemberPage<?> page = smileMapper.readValue(response.getContentAsByteArray(), MemberPage.class);
+        assertEquals(List.of(Map.of("id", 1, "name", "Ann")), page.members());
+    }
+
+    @Test
+    void createMemberShouldReadCborBody() throws Exception {
+        // Arrange
+        Member member = member(null, "Ann");
+
+        // Act
+        MockHttpServletResponse response = mockMvc.perform(post(BASE_PATH + MEMBERS_PATH)
+                .contentType(MediaType.APPLICATION_CBOR)
+                .accept(MediaType.APPLICATION_CBOR)
+                .content(cborMapper.writeValueAsBytes(member))).andReturn().getResponse();
+
+        // Assert
+        assertEquals(200, response.getStatus());
+        ArgumentCaptor<Member> registered = ArgumentCaptor.forClass(Member.class);
+        verify(memberService).register(registered.capture());
+        assertEquals(member, registered.getValue());
+    }
+
+    @Test
+    void updateMemberShouldReadSmileBody() throws Exception {
+        // Arrange
+        MemberUpdateDto update = new MemberUpdateDto();
+        update.setName("Bob");
+        when(memberService.updateMember(eq(1L), any(MemberUpdateDto.class))).thenReturn(member(1L, "Bob"));
+
+        // Act
+        MockHttpServletResponse response = mockMvc.perform(patch(BASE_PATH + MEMBERS_PATH + "/1")
+                .contentType(APPLICATION_SMILE)
+                .content(smileMapper.writeValueAsBytes(update))).andReturn().getResponse();
+
+        // Assert
+        assertEquals(200, response.getStatus());
+        verify(memberService).updateMember(1L, update);
+    }
+
+    @Test
+    void createMemberShouldRejectUnsupportedContentType() throws Exception {
+        // Act
+        MockHttpServletResponse response = mockMvc.perform(post(BASE_PATH + MEMBERS_PATH)
+                .contentType(MediaType.APPLICATION_XML)
+                .content("<member/>")).andReturn().getResponse();
+
+        // Assert
+        assertEquals(415, response.getStatus());
+        verifyNoInteractions(memberService);
+    }
+
+    private static Member versioned(Member member) {
+        member.setVersion(3);
+        return member;
+    }
+}
@@ -0,0 +1,102 @@
+package com.mongodbdemo.kitchensink.configuration;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpClientConfigurationTest {
+
+    private final HttpClientConfiguration configuration = new HttpClientConfiguration();
+
+    private HttpServer server;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+    private RestTemplate restTemplate;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/fast", exchange -> {
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.start();
+
+        connectionManager = configuration.httpClientConnectionManager(20, 5, 500, 200, 2000);
+        httpClient = configuration.httpClient(connectionManager, 500, 200, 30);
+        restTemplate = new MemberConfiguration().getRestTemplate(configuration.clientHttpRequestFactory(httpClient));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        httpClient.close();
+        server.stop(0);
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+
+    @Test
+    void httpClientConnectionManagerShouldApplyPoolLimits() {
+        // Assert
+        assertEquals(20, connectionManager.getMaxTotal());
+        assertEquals(5, connectionManager.getDefaultMaxPerRoute());
+    }
+
+    @Test
+    void restTemplateShouldReuseConnectionBetweenCalls() {
+        // Act
+        ResponseEntity<Void> first = restTemplate.getForEntity(url("/fast"), Void.class);
+        ResponseEntity<Void> second = restTemplate.getForEntity(url("/fast"), Void.class);
+
+        // Assert
+        assertEquals(HttpStatus.NO_CONTENT, first.getStatusCode());
+        assertEquals(HttpStatus.NO_CONTENT, second.getStatusCode());
+        assertEquals(1, connectionManager.getTotalStats().getAvailable());
+        assertEquals(0, connectionManager.getTotalStats().getLeased());
+    }
+
+    @Test
+    void restTemplateShouldFailWhenReadTimeoutElapses() {
+        // Act & Assert
+        assertThrows(ResourceAccessException.class, () -> restTemplate.getForEntity(url("/slow"), Void.class));
+        assertEquals(0, connectionManager.getTotalStats().getLeased());
+    }
+
+    @Test
+    void httpClientConnectionPoolMetricsShouldPublishPoolGauges() {
+        // Arrange
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        // Act
+        configuration.httpClientConnectionPoolMetrics(connectionManager).bindTo(registry);
+
+        // Assert
+        assertEquals(20, registry.get("httpcomponents.httpclient.pool.total.max")
+                .tag("httpclient", "outbound").gauge().value());
+        assertNotNull(registry.get("httpcomponents.httpclient.pool.total.pending").gauge());
+    }
+}
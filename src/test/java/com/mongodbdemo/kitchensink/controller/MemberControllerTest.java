@@ -1,22 +1,45 @@
 package com.mongodbdemo.kitchensink.controller;
 
+import com.mongodbdemo.kitchensink.MemberConstants;
+import com.mongodbdemo.kitchensink.dto.BulkDeleteRequest;
+import com.mongodbdemo.kitchensink.dto.BulkDeleteResult;
+import com.mongodbdemo.kitchensink.dto.BulkImportResult;
+import com.mongodbdemo.kitchensink.dto.MemberNameMatch;
+import com.mongodbdemo.kitchensink.dto.MemberPage;
+import com.mongodbdemo.kitchensink.dto.MemberSearchResult;
 import com.mongodbdemo.kitchensink.dto.MemberUpdateDto;
+import com.mongodbdemo.kitchensink.helper.PageCursor;
+import com.mongodbdemo.kitchensink.helper.SearchText;
 import com.mongodbdemo.kitchensink.model.Member;
 import com.mongodbdemo.kitchensink.repository.MemberRepository;
 import com.mongodbdemo.kitchensink.service.MemberService;
 import jakarta.validation.*;
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static com.mongodbdemo.kitchensink.model.MemberFixtures.member;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class MemberControllerTest {
@@ -52,27 +75,303 @@ class MemberControllerTest {
         assertEquals(members, response.getBody());
     }
 
+    @Test
+    void listMembersFirstPageWithMoreMembers() {
+        // Given
+        List<Member> members = List.of(member(1L, "Ann"), member(2L, "Bob"), member(3L, "Cid"));
+        when(memberRepository.findPageAfter(null, null, 3)).thenReturn(members);
+
+        // When
+        ResponseEntity<MemberPage<Member>> response = memberController.listMembers(2, null, webRequest());
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"0\"", response.getHeaders().getETag());
+        assertEquals(members.subList(0, 2), response.getBody().members());
+        assertEquals(new PageCursor("Bob", 2L), PageCursor.decode(response.getBody().next()));
+    }
+
+    @Test
+    void listMembersLastPage() {
+        // Given
+        List<Member> members = List.of(member(3L, "Cid"));
+        when(memberRepository.findPageAfter("Bob", 2L, 3)).thenReturn(members);
+
+        // When
+        ResponseEntity<MemberPage<Member>> response = memberController.listMembers(2, new PageCursor("Bob", 2L).encode(),
+                webRequest());
+
+        // Then
+        assertEquals(members, response.getBody().members());
+        assertNull(response.getBody().next());
+    }
+
+    @Test
+    void listMembersCapsLimit() {
+        // Given
+        when(memberRepository.findPageAfter(null, null, 501)).thenReturn(List.of());
+
+        // When
+        memberController.listMembers(10_000, null, webRequest());
+
+        // Then
+        verify(memberRepository, times(1)).findPageAfter(null, null, 501);
+    }
+
+    @Test
+    void listMembersInvalidLimit() {
+        // When
+        ResponseStatusException thrown = assertThrows(ResponseStatusException.class,
+                () -> memberController.listMembers(0, null, webRequest()));
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST, thrown.getStatusCode());
+    }
+
+    @Test
+    void listMembersInvalidToken() {
+        // When
+        ResponseStatusException thrown = assertThrows(ResponseStatusException.class,
+                () -> memberController.listMembers(10, "not a token", webRequest()));
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST, thrown.getStatusCode());
+    }
+
+    @Test
+    void listMembersNotModifiedWhenCollectionVersionMatches() {
+        // Given
+        when(memberService.collectionVersion()).thenReturn(7L);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/members");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"7\"");
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        // When
+        ResponseEntity<MemberPage<Member>> response = memberController.listMembers(2, null,
+                new ServletWebRequest(request, servletResponse));
+
+        // Then
+        assertNull(response);
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), servletResponse.getStatus());
+        assertEquals("\"7\"", servletResponse.getHeader(HttpHeaders.ETAG));
+        verify(memberRepository, never()).findPageAfter(any(), any(), anyInt());
+    }
+
+    @Test
+    void listMembersReturnsPageWhenCollectionVersionChanged() {
+        // Given
+        when(memberService.collectionVersion()).thenReturn(8L);
+        when(memberRepository.findPageAfter(null, null, 3)).thenReturn(List.of(member(1L, "Ann")));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/members");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"7\"");
+
+        // When
+        ResponseEntity<MemberPage<Member>> response = memberController.listMembers(2, null,
+                new ServletWebRequest(request, new MockHttpServletResponse()));
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"8\"", response.getHeaders().getETag());
+    }
+
+    @Test
+    void listMemberFieldsReturnsOnlySelectedFields() {
+        // Given
+        List<Document> members = List.of(
+                new Document("_id", 1L).append("name", "Ann"),
+                new Document("_id", 2L).append("name", "Bob"),
+                new Document("_id", 3L).append("name", "Cid"));
+        when(memberRepository.findPageAfter(null, null, 3, Set.of("name"))).thenReturn(members);
+
+        // When
+        ResponseEntity<MemberPage<Map<String, Object>>> response =
+                memberController.listMemberFields(2, null, "name", webRequest());
+
+        // Then
+        assertEquals(List.of(Map.of("name", "Ann"), Map.of("name", "Bob")), response.getBody().members());
+        assertEquals(new PageCursor("Bob", 2L), PageCursor.decode(response.getBody().next()));
+    }
+
+    @Test
+    void listMemberFieldsRejectsUnknownField() {
+        // When
+        ResponseStatusException thrown = assertThrows(ResponseStatusException.class,
+                () -> memberController.listMemberFields(2, null, "id,password", webRequest()));
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST, thrown.getStatusCode());
+        verifyNoInteractions(memberRepository);
+    }
+
+    @Test
+    void lookupMemberFieldsByIdReturnsOnlySelectedFields() {
+        // Given
+        when(memberRepository.findFieldsById(1L, Set.of("version", "_id", "name")))
+                .thenReturn(Optional.of(new Document("_id", 1L).append("name", "Ann").append("version", 4L)));
+
+        // When
+        ResponseEntity<Map<String, Object>> response =
+                memberController.lookupMemberFieldsById(1L, "id,name", webRequest());
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"4\"", response.getHeaders().getETag());
+        assertEquals(Map.of("id", 1L, "name", "Ann"), response.getBody());
+        verify(memberService, never()).findMember(any());
+    }
+
+    @Test
+    void lookupMemberFieldsByIdNotFound() {
+        // Given
+        when(memberRepository.findFieldsById(eq(1L), any())).thenReturn(Optional.empty());
+
+        // When
+        ResponseEntity<Map<String, Object>> response =
+                memberController.lookupMemberFieldsById(1L, "name", webRequest());
+
+        // Then
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    private static ServletWebRequest webRequest() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/members"), new MockHttpServletResponse());
+    }
+
+    @Test
+    void searchMembersReturnsMatchesFromService() {
+        // Given
+        List<MemberNameMatch> matches = List.of(new MemberNameMatch(1L, "Ann"));
+        when(memberService.searchNames("an", 10)).thenReturn(matches);
+
+        // When
+        ResponseEntity<List<MemberNameMatch>> response = memberController.searchMembers("an", 10);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(matches, response.getBody());
+        verifyNoInteractions(memberRepository);
+    }
+
+    @Test
+    void searchMembersCapsLimit() {
+        // When
+        memberController.searchMembers("an", 1000);
+
+        // Then
+        verify(memberService).searchNames("an", MemberConstants.MAX_SEARCH_LIMIT);
+    }
+
+    @Test
+    void searchMemberTextReturnsPageFromService() {
+        // Given
+        MemberSearchResult result = new MemberSearchResult(List.of(new Member()), 1, false);
+        when(memberService.searchMembers(SearchText.terms("example.com"), 1, 20)).thenReturn(result);
+
+        // When
+        ResponseEntity<MemberSearchResult> response = memberController.searchMemberText("example.com", 1, 20);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(result, response.getBody());
+    }
+
+    @Test
+    void searchMemberTextCapsSize() {
+        // When
+        memberController.searchMemberText("smith", 0, 1000);
+
+        // Then
+        verify(memberService).searchMembers(SearchText.terms("smith"), 0, MemberConstants.MAX_TEXT_SEARCH_SIZE);
+    }
+
+    @Test
+    void searchMemberTextRejectsShortQueryAndInvalidPaging() {
+        // When
+        ResponseStatusException shortQuery = assertThrows(ResponseStatusException.class,
+                () -> memberController.searchMemberText(" ab ", 0, 20));
+        ResponseStatusException negativePage = assertThrows(ResponseStatusException.class,
+                () -> memberController.searchMemberText("smith", -1, 20));
+        ResponseStatusException invalidSize = assertThrows(ResponseStatusException.class,
+                () -> memberController.searchMemberText("smith", 0, 0));
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST, shortQuery.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, negativePage.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, invalidSize.getStatusCode());
+        verifyNoInteractions(memberService);
+    }
+
+    @Test
+    void searchMembersRejectsBlankPrefixAndInvalidLimit() {
+        // When
+        ResponseStatusException blank = assertThrows(ResponseStatusException.class,
+                () -> memberController.searchMembers(" ", 10));
+        ResponseStatusException invalidLimit = assertThrows(ResponseStatusException.class,
+                () -> memberController.searchMembers("an", 0));
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST, blank.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, invalidLimit.getStatusCode());
+        verifyNoInteractions(memberService);
+    }
+
+    @Test
+    void exportMembersStreamsFromServiceWithExportTimeout() throws Exception {
+        // Given
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        memberController.exportTimeoutMillis = 1_800_000;
+
+        // When
+        WebAsyncTask<Void> task = memberController.exportMembers(response);
+        task.getCallable().call();
+
+        // Then
+        assertEquals(1_800_000L, task.getTimeout());
+        assertEquals("application/x-ndjson", response.getContentType());
+        verify(memberService, times(1)).exportMembers(response.getOutputStream());
+    }
+
     @Test
     void lookupMemberByIdFound() {
         // Given
         Member member = new Member();
-        when(memberRepository.findById(1L)).thenReturn(Optional.of(member));
+        when(memberService.findMember(1L)).thenReturn(Optional.of(member));
 
         // When
-        ResponseEntity<Member> response = memberController.lookupMemberById(1L);
+        ResponseEntity<Member> response = memberController.lookupMemberById(1L, webRequest());
 
         // Then
         assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"0\"", response.getHeaders().getETag());
         assertEquals(member, response.getBody());
     }
 
+    @Test
+    void lookupMemberByIdNotModifiedWhenVersionMatches() {
+        // Given
+        Member member = new Member();
+        member.setVersion(3);
+        when(memberService.findMember(1L)).thenReturn(Optional.of(member));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/members/1");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"3\"");
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        // When
+        ResponseEntity<Member> response = memberController.lookupMemberById(1L,
+                new ServletWebRequest(request, servletResponse));
+
+        // Then
+        assertNull(response);
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), servletResponse.getStatus());
+    }
+
     @Test
     void lookupMemberByIdNotFound() {
         // Given
-        when(memberRepository.findById(1L)).thenReturn(Optional.empty());
+        when(memberService.findMember(1L)).thenReturn(Optional.empty());
 
         // When
-        ResponseEntity<Member> response = memberController.lookupMemberById(1L);
+        ResponseEntity<Member> response = memberController.lookupMemberById(1L, webRequest());
 
         // Then
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
@@ -84,7 +383,6 @@ class MemberControllerTest {
         Member member = new Member();
         doNothing().when(memberService).register(any(Member.class));
         when(validator.validate(any(Member.class))).thenReturn(Collections.emptySet());
-        when(memberRepository.findByEmail(member.getEmail())).thenReturn(Optional.empty());
 
         // When
         ResponseEntity<Map<String, String>> response = memberController.createMember(member);
@@ -94,18 +392,18 @@ class MemberControllerTest {
     }
 
     @Test
-    void createMemberConflict() {
+    void createMemberValidatorFailureIsNotReportedAsConflict() {
         // Given
         Member member = new Member();
-        when(validator.validate(any(Member.class))).thenReturn(Collections.emptySet());
-        doThrow(new ValidationException("Email taken")).when(memberService).register(any(Member.class));
+        when(validator.validate(any(Member.class))).thenThrow(new ValidationException("Validator failed"));
 
         // When
         ResponseEntity<Map<String, String>> response = memberController.createMember(member);
 
         // Then
-        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
-        assertEquals("Email taken", response.getBody().get("email"));
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Validator failed", response.getBody().get("error"));
+        verifyNoInteractions(memberService);
     }
 
     @Test
@@ -150,13 +448,57 @@ class MemberControllerTest {
         // Given
         Member member = new Member();
         when(validator.validate(any(Member.class))).thenReturn(Collections.emptySet());
-        when(memberRepository.findByEmail(member.getEmail())).thenReturn(Optional.of(member));
+        doThrow(new DuplicateKeyException("E11000 duplicate key error collection: mongo_migration.members "
+                + "index: email dup key: { email: \"jane@example.com\" }"))
+                .when(memberService).register(any(Member.class));
 
         // When
         ResponseEntity<Map<String, String>> response = memberController.createMember(member);
 
         // Then
         assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals("Email taken", response.getBody().get("email"));
+    }
+
+    @Test
+    void createMemberOtherDuplicateKeyIsRethrown() {
+        // Given
+        Member member = new Member();
+        when(validator.validate(any(Member.class))).thenReturn(Collections.emptySet());
+        doThrow(new DuplicateKeyException("E11000 duplicate key error collection: mongo_migration.members "
+                + "index: _id_ dup key: { _id: 1 }"))
+                .when(memberService).register(any(Member.class));
+
+        // When & Then
+        assertThrows(DuplicateKeyException.class, () -> memberController.createMember(member));
+    }
+
+    @Test
+    void createMemberDuplicateOnSearchEmailIndexIsRethrown() {
+        // Given
+        Member member = new Member();
+        when(validator.validate(any(Member.class))).thenReturn(Collections.emptySet());
+        doThrow(new DuplicateKeyException("E11000 duplicate key error collection: mongo_migration.members "
+                + "index: search_email dup key: { search.email: \"ema\" }"))
+                .when(memberService).register(any(Member.class));
+
+        // When & Then
+        assertThrows(DuplicateKeyException.class, () -> memberController.createMember(member));
+    }
+
+    @Test
+    void importMembersDelegatesToService() throws IOException {
+        // Given
+        InputStream body = new ByteArrayInputStream("[]".getBytes());
+        BulkImportResult result = new BulkImportResult(0, 0, List.of());
+        when(memberService.importMembers(body)).thenReturn(result);
+
+        // When
+        ResponseEntity<BulkImportResult> response = memberController.importMembers(body);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(result, response.getBody());
     }
 
     @Test
@@ -187,32 +529,46 @@ class MemberControllerTest {
     }
 
     @Test
-    void validateMemberSuccess() {
+    void deleteAndReturnMemberSuccess() {
         // Given
         Member member = new Member();
-        when(validator.validate(member)).thenReturn(Collections.emptySet());
-        when(memberRepository.findByEmail(member.getEmail())).thenReturn(Optional.empty());
+        when(memberService.deleteAndReturnMember(1L)).thenReturn(member);
 
         // When
-        memberController.createMember(member);
+        ResponseEntity<Member> response = memberController.deleteAndReturnMember(1L);
 
         // Then
-        verify(validator, times(1)).validate(member);
-        verify(memberRepository, times(1)).findByEmail(member.getEmail());
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(member, response.getBody());
+    }
+
+    @Test
+    void deleteMembersDelegatesToService() {
+        // Given
+        BulkDeleteResult result = new BulkDeleteResult(2, 1);
+        when(memberService.deleteMembers(List.of(1L, 2L))).thenReturn(result);
+
+        // When
+        ResponseEntity<BulkDeleteResult> response = memberController.deleteMembers(new BulkDeleteRequest(List.of(1L, 2L)));
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(result, response.getBody());
     }
 
     @Test
-    void validateMemberEmailAlreadyExists() {
+    void validateMemberSuccess() {
         // Given
         Member member = new Member();
         when(validator.validate(member)).thenReturn(Collections.emptySet());
-        when(memberRepository.findByEmail(member.getEmail())).thenReturn(Optional.of(member));
 
         // When
-        ResponseEntity<Map<String, String>> response = memberController.createMember(member);
+        memberController.createMember(member);
 
         // Then
-        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        verify(validator, times(1)).validate(member);
+        verify(memberService, times(1)).register(member);
+        verifyNoInteractions(memberRepository);
     }
 
     @Test
@@ -0,0 +1,336 @@
+package com.mongodbdemo.kitchensink.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.mongodbdemo.kitchensink.configuration.ReactiveBinaryFormatConfiguration;
+import com.mongodbdemo.kitchensink.dto.BulkImportResult;
+import com.mongodbdemo.kitchensink.dto.BulkImportResult.ItemError;
+import com.mongodbdemo.kitchensink.dto.MemberSearchResult;
+import com.mongodbdemo.kitchensink.exceptionhandler.GlobalExceptionHandler;
+import com.mongodbdemo.kitchensink.helper.SearchText;
+import com.mongodbdemo.kitchensink.model.Member;
+import com.mongodbdemo.kitchensink.service.ReactiveMemberService;
+import jakarta.validation.Validation;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.web.reactive.context.AnnotationConfigReactiveWebApplicationContext;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.config.EnableWebFlux;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.mongodbdemo.kitchensink.model.MemberFixtures.member;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class ReactiveMemberControllerTest {
+
+    private static final String MEMBERS = "/kitchensink/rest/members";
+
+    private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory()).findAndRegisterModules();
+
+    @Mock
+    private ReactiveMemberService memberService;
+
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        AnnotationConfigReactiveWebApplicationContext context = new AnnotationConfigReactiveWebApplicationContext();
+        context.getBeanFactory().registerSingleton("memberService", memberService);
+        context.getBeanFactory().registerSingleton("validator", Validation.buildDefaultValidatorFactory().getValidator());
+        context.getBeanFactory().registerSingleton("jacksonObjectMapper", Jackson2ObjectMapperBuilder.json().build());
+        context.getBeanFactory().registerSingleton("jacksonObjectMapperBuilder", Jackson2ObjectMapperBuilder.json());
+        context.register(WebFluxConfig.class, ReactiveBinaryFormatConfiguration.class, ReactiveMemberController.class,
+                GlobalExceptionHandler.class);
+        context.refresh();
+        client = WebTestClient.bindToApplicationContext(context).build();
+    }
+
+    @EnableWebFlux
+    static class WebFluxConfig {
+    }
+
+    @Test
+    void listMembersReturnsPageWithCollectionVersionAsEtag() {
+        // Given
+        when(memberService.collectionVersion()).thenReturn(Mono.just(5L));
+        when(memberService.findPageAfter(null, null, 3))
+                .thenReturn(Flux.just(member(1L, "Ann"), member(2L, "Bob"), member(3L, "Cid")));
+
+        // When / Then
+        client.get().uri(MEMBERS + "?limit=2").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"5\"")
+                .expectBody()
+                .jsonPath("$.members.length()").isEqualTo(2)
+                .jsonPath("$.members[1].name").isEqualTo("Bob")
+                .jsonPath("$.next").isNotEmpty();
+    }
+
+    @Test
+    void listMembersNotModifiedSkipsQuery() {
+        // Given
+        when(memberService.collectionVersion()).thenReturn(Mono.just(5L));
+
+        // When / Then
+        client.get().uri(MEMBERS).header("If-None-Match", "\"5\"").exchange()
+                .expectStatus().isNotModified();
+        verify(memberService, never()).findPageAfter(any(), any(), anyInt());
+    }
+
+    @Test
+    void listMembersAsCborHasItsOwnEtag() throws IOException {
+        // Given
+        when(memberService.collectionVersion()).thenReturn(Mono.just(5L));
+        when(memberService.findPageAfter(null, null, 51)).thenReturn(Flux.just(member(1L, "Ann")));
+
+        // When
+        byte[] body = client.get().uri(MEMBERS).accept(MediaType.APPLICATION_CBOR).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectHeader().valueEquals("ETag", "\"5-cbor\"")
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .expectBody().returnResult().getResponseBody();
+
+        // Then
+        assertEquals("Ann", cborMapper.readTree(body).at("/members/0/name").asText());
+    }
+
+    @Test
+    void listMemberFieldsReturnsProjectedPage() {
+        // Given
+        when(memberService.collectionVersion()).thenReturn(Mono.just(5L));
+        when(memberService.findPageAfter(null, null, 51, Set.of("_id", "name")))
+                .thenReturn(Flux.just(new Document("_id", 1L).append("name", "Ann")));
+
+        // When / Then
+        client.get().uri(MEMBERS + "?fields=id,name").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"5\"")
+                .expectBody()
+                .jsonPath("$.members[0].id").isEqualTo(1)
+                .jsonPath("$.members[0].name").isEqualTo("Ann")
+                .jsonPath("$.members[0].email").doesNotExist();
+    }
+
+    @Test
+    void lookupMemberFieldsByIdTagsWithVersion() {
+        // Given
+        when(memberService.findFieldsById(1L, Set.of("_id", "name", "version")))
+                .thenReturn(Mono.just(new Document("_id", 1L).append("name", "Ann").append("version", 3L)));
+
+        // When / Then
+        client.get().uri(MEMBERS + "/1?fields=id,name").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"3\"")
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Ann")
+                .jsonPath("$.version").doesNotExist();
+    }
+
+    @Test
+    void listAllMembersAsCborCollectsMembers() throws IOException {
+        // Given
+        when(memberService.findAllMembers()).thenReturn(Flux.just(member(1L, "Ann"), member(2L, "Bob")));
+
+        // When
+        byte[] body = client.get().uri(MEMBERS + "?unpaged=true").accept(MediaType.APPLICATION_CBOR).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectBody().returnResult().getResponseBody();
+
+        // Then
+        JsonNode members = cborMapper.readTree(body);
+        assertEquals(2, members.size());
+        assertEquals("Bob", members.get(1).get("name").asText());
+    }
+
+    @Test
+    void listMembersInvalidLimit() {
+        // When / Then
+        client.get().uri(MEMBERS + "?limit=0").exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.error").isEqualTo("limit must be positive");
+    }
+
+    @Test
+    void searchMemberTextReturnsRankedPage() {
+        // Given
+        when(memberService.searchMembers(SearchText.terms("smith"), 0, 20))
+                .thenReturn(Mono.just(new MemberSearchResult(List.of(member(1L, "Smith")), 1, false)));
+
+        // When / Then
+        client.get().uri(MEMBERS + "/search/text?q=smith").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.members[0].name").isEqualTo("Smith")
+                .jsonPath("$.total").isEqualTo(1)
+                .jsonPath("$.truncated").isEqualTo(false);
+    }
+
+    @Test
+    void searchMemberTextOutOfTime() {
+        // Given
+        when(memberService.searchMembers(any(), anyInt(), anyInt())).thenReturn(Mono.error(
+                new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Search exceeded its time budget")));
+
+        // When / Then
+        client.get().uri(MEMBERS + "/search/text?q=smith").exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                .expectBody().jsonPath("$.error").isEqualTo("Search exceeded its time budget");
+    }
+
+    @Test
+    void lookupMemberByIdNotModifiedWhenVersionMatches() {
+        // Given
+        Member member = member(1L, "Ann");
+        member.setVersion(3);
+        when(memberService.findMember(1L)).thenReturn(Mono.just(member));
+
+        // When / Then
+        client.get().uri(MEMBERS + "/1").header("If-None-Match", "\"3\"").exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    void lookupMemberByIdAsCborDoesNotMatchJsonEtag() {
+        // Given
+        Member member = member(1L, "Ann");
+        member.setVersion(3);
+        when(memberService.findMember(1L)).thenReturn(Mono.just(member));
+
+        // When / Then
+        client.get().uri(MEMBERS + "/1").accept(MediaType.APPLICATION_CBOR).header("If-None-Match", "\"3\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"3-cbor\"");
+    }
+
+    @Test
+    void lookupMemberByIdNotFound() {
+        // Given
+        when(memberService.findMember(1L)).thenReturn(Mono.empty());
+
+        // When / Then
+        client.get().uri(MEMBERS + "/1").exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void createMemberEmailTaken() {
+        // Given
+        when(memberService.register(any(Member.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("E11000 duplicate key error index: email")));
+
+        // When / Then
+        client.post().uri(MEMBERS).contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"name\":\"Jane\",\"email\":\"jane@example.com\",\"phoneNumber\":\"1234567890\"}")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT)
+                .expectBody().jsonPath("$.email").isEqualTo("Email taken");
+    }
+
+    @Test
+    void createMemberUnexpectedErrorReturnsBadRequest() {
+        // Given
+        when(memberService.register(any(Member.class))).thenThrow(new IllegalStateException("Sequence unavailable"));
+
+        // When / Then
+        client.post().uri(MEMBERS).contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"name\":\"Jane\",\"email\":\"jane@example.com\",\"phoneNumber\":\"1234567890\"}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.error").isEqualTo("Sequence unavailable");
+    }
+
+    @Test
+    void createMemberAsCbor() throws IOException {
+        // Given
+        when(memberService.register(any(Member.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        byte[] body = cborMapper.writeValueAsBytes(
+                Map.of("name", "Jane", "email", "jane@example.com", "phoneNumber", "1234567890"));
+
+        // When / Then
+        client.post().uri(MEMBERS).contentType(MediaType.APPLICATION_CBOR).bodyValue(body).exchange()
+                .expectStatus().isOk();
+        verify(memberService).register(argThat(member -> member.getName().equals("Jane")));
+    }
+
+    @Test
+    void importMembersPassesItemsOfArray() {
+        // Given
+        when(memberService.importMembers(any())).thenAnswer(invocation -> invocation.<Flux<JsonNode>>getArgument(0)
+                .collectList()
+                .map(items -> new BulkImportResult(items.size(), items.size() - 1,
+                        List.of(new ItemError(1, Map.of("email", "Email taken"))))));
+
+        // When / Then
+        client.post().uri(MEMBERS + "/bulk").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[{\"name\":\"Ann\"},{\"name\":\"Bob\"}]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.received").isEqualTo(2)
+                .jsonPath("$.errors[0].index").isEqualTo(1);
+    }
+
+    @Test
+    void createMemberInvalid() {
+        // When / Then
+        client.post().uri(MEMBERS).contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"name\":\"Jane\",\"email\":\"not an email\",\"phoneNumber\":\"1234567890\"}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.email").exists();
+        verifyNoInteractions(memberService);
+    }
+
+    @Test
+    void updateMemberInvalidBodyReturnsFieldErrors() {
+        // When / Then
+        client.patch().uri(MEMBERS + "/1").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"email\":\"not an email\"}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.email").exists();
+    }
+
+    @Test
+    void deleteMemberNotFound() {
+        // Given
+        when(memberService.deleteMember(1L))
+                .thenReturn(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Member not found")));
+
+        // When / Then
+        client.delete().uri(MEMBERS + "/1").exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.error").isEqualTo("Member not found");
+    }
+
+    @Test
+    void deleteMemberSuccess() {
+        // Given
+        when(memberService.deleteMember(1L)).thenReturn(Mono.empty());
+
+        // When / Then
+        client.delete().uri(MEMBERS + "/1").exchange().expectStatus().isNoContent();
+    }
+}
@@ -0,0 +1,69 @@
+package com.mongodbdemo.kitchensink.helper;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemberFieldsTest {
+
+    @Test
+    void parseShouldKeepRequestOrderAndDropDuplicates() {
+        // Act
+        MemberFields fields = MemberFields.parse(" name, id ,name,");
+
+        // Assert
+        assertEquals(List.of("name", "id"), fields.names());
+    }
+
+    @Test
+    void parseUnknownFieldShouldThrowBadRequest() {
+        // Act & Assert
+        ResponseStatusException thrown = assertThrows(ResponseStatusException.class,
+                () -> MemberFields.parse("id,password"));
+        assertEquals(HttpStatus.BAD_REQUEST, thrown.getStatusCode());
+    }
+
+    @Test
+    void parseWithoutFieldsShouldThrowBadRequest() {
+        // Act & Assert
+        ResponseStatusException thrown = assertThrows(ResponseStatusException.class, () -> MemberFields.parse(" , "));
+        assertEquals(HttpStatus.BAD_REQUEST, thrown.getStatusCode());
+    }
+
+    @Test
+    void projectionShouldUseDocumentFieldNames() {
+        // Act
+        Set<String> projection = MemberFields.parse("id,email").projection("version");
+
+        // Assert
+        assertEquals(Set.of("version", "_id", "email"), projection);
+    }
+
+    @Test
+    void toJsonShouldWriteOnlySelectedFields() {
+        // Arrange
+        Instant lastModified = Instant.parse("2024-09-01T10:15:30Z");
+        Document document = new Document("_id", 1L)
+                .append("name", "Jane")
+                .append("version", 2L)
+                .append("lastModified", Date.from(lastModified));
+
+        // Act
+        Map<String, Object> json = MemberFields.parse("lastModified,id,phoneNumber").toJson(document);
+
+        // Assert
+        assertEquals(List.of("lastModified", "id", "phoneNumber"), List.copyOf(json.keySet()));
+        assertEquals(lastModified, json.get("lastModified"));
+        assertEquals(1L, json.get("id"));
+        assertNull(json.get("phoneNumber"));
+    }
+}
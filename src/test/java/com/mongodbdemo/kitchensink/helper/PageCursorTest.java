@@ -0,0 +1,55 @@
+package com.mongodbdemo.kitchensink.helper;
+
+import com.mongodbdemo.kitchensink.model.Member;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PageCursorTest {
+
+    @Test
+    void encodeAndDecodeShouldRoundTrip() {
+        // Arrange
+        PageCursor cursor = new PageCursor("Jane: Doe", 42L);
+
+        // Act
+        PageCursor decoded = PageCursor.decode(cursor.encode());
+
+        // Assert
+        assertEquals(cursor, decoded);
+    }
+
+    @Test
+    void afterShouldUseNameAndIdOfMember() {
+        // Arrange
+        Member member = new Member();
+        member.setId(7L);
+        member.setName("John");
+
+        // Act
+        PageCursor cursor = PageCursor.after(member);
+
+        // Assert
+        assertEquals(new PageCursor("John", 7L), cursor);
+    }
+
+    @Test
+    void afterShouldUseNameAndIdOfDocument() {
+        // Act
+        PageCursor cursor = PageCursor.after(new Document("_id", 7L).append("name", "John"));
+
+        // Assert
+        assertEquals(new PageCursor("John", 7L), cursor);
+    }
+
+    @Test
+    void decodeMalformedTokenShouldThrowBadRequest() {
+        // Act & Assert
+        ResponseStatusException thrown = assertThrows(ResponseStatusException.class,
+                () -> PageCursor.decode("bm8tc2VwYXJhdG9y"));
+        assertEquals(HttpStatus.BAD_REQUEST, thrown.getStatusCode());
+    }
+}
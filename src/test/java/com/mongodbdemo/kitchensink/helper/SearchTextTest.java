@@ -0,0 +1,95 @@
+package com.mongodbdemo.kitchensink.helper;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchTextTest {
+
+    @Test
+    void gramsShouldBeDistinctTrigramsOfNormalizedText() {
+        // Act
+        List<String> grams = SearchText.grams("name", " Ána  Anan");
+
+        // Assert
+        assertEquals(List.of("ana", "na ", "a a", " an", "nan"), grams);
+    }
+
+    @Test
+    void gramsOfPhoneNumberShouldOnlyUseDigits() {
+        // Act
+        List<String> grams = SearchText.grams("phoneNumber", "+1 (555) 01");
+
+        // Assert
+        assertEquals(List.of("155", "555", "550", "501"), grams);
+    }
+
+    @Test
+    void gramsOfShortOrMissingValueShouldBeEmpty() {
+        // Act & Assert
+        assertTrue(SearchText.grams("name", "Al").isEmpty());
+        assertTrue(SearchText.grams("email", null).isEmpty());
+    }
+
+    @Test
+    void documentShouldHoldGramsOfEverySearchableField() {
+        // Act
+        Document document = SearchText.document("Bob", "b@x.io", null);
+
+        // Assert
+        assertEquals(new Document("name", List.of("bob"))
+                .append("email", List.of("b@x", "@x.", "x.i", ".io"))
+                .append("phoneNumber", List.of()), document);
+    }
+
+    @Test
+    void termsShouldSearchPhoneNumbersOnlyForPhoneFragments() {
+        // Act
+        SearchText.Terms text = SearchText.terms("Smith");
+        SearchText.Terms phone = SearchText.terms("555-01");
+        SearchText.Terms mixed = SearchText.terms("user123");
+
+        // Assert
+        assertEquals(Map.of("name", List.of("smi", "mit", "ith"), "email", List.of("smi", "mit", "ith")),
+                text.grams());
+        assertEquals("55501", phone.digits());
+        assertEquals(List.of("555", "550", "501"), phone.grams().get("phoneNumber"));
+        assertNull(mixed.digits());
+    }
+
+    @Test
+    void termsShorterThanGramShouldNotBeSearchable() {
+        // Act & Assert
+        assertFalse(SearchText.terms(" ab ").isSearchable());
+        assertFalse(SearchText.terms("12").isSearchable());
+        assertTrue(SearchText.terms("abc").isSearchable());
+    }
+
+    @Test
+    void scoreShouldPreferExactThenPrefixThenWordStartThenInfix() {
+        // Arrange
+        SearchText.Terms terms = SearchText.terms("smith");
+
+        // Act & Assert
+        assertEquals(4, terms.score("Smith", "x@y.com", "0123456789"));
+        assertEquals(3, terms.score("Smithers", "x@y.com", "0123456789"));
+        assertEquals(2, terms.score("John Smith", "x@y.com", "0123456789"));
+        assertEquals(2, terms.score("Ann", "ann@smith.com", "0123456789"));
+        assertEquals(1, terms.score("Goldsmith", "x@y.com", "0123456789"));
+        assertEquals(0, terms.score("Thims", "x@y.com", "0123456789"));
+    }
+
+    @Test
+    void scoreShouldMatchPhoneDigits() {
+        // Arrange
+        SearchText.Terms terms = SearchText.terms("(555) 12");
+
+        // Act & Assert
+        assertEquals(1, terms.score("Ann", "ann@x.com", "0155512000"));
+        assertEquals(0, terms.score("Ann", "ann@x.com", "0155502000"));
+    }
+}
@@ -0,0 +1,44 @@
+package com.mongodbdemo.kitchensink.helper;
+
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserContextFilterTest {
+
+    private final UserContextFilter filter = new UserContextFilter();
+
+    @AfterEach
+    void tearDown() {
+        UserContext.clear();
+    }
+
+    @Test
+    void doFilterShouldClearUserIdAfterRequest() throws ServletException, IOException {
+        // Act
+        filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(),
+                (request, response) -> UserContext.setUserId("user-1"));
+
+        // Assert
+        assertNull(UserContext.getUserId());
+    }
+
+    @Test
+    void doFilterShouldClearUserIdWhenRequestFails() {
+        // Act
+        assertThrows(IllegalStateException.class, () -> filter.doFilter(new MockHttpServletRequest(),
+                new MockHttpServletResponse(), (request, response) -> {
+                    UserContext.setUserId("user-1");
+                    throw new IllegalStateException("failed");
+                }));
+
+        // Assert
+        assertNull(UserContext.getUserId());
+    }
+}
@@ -0,0 +1,52 @@
+package com.mongodbdemo.kitchensink.helper;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserContextTaskDecoratorTest {
+
+    private final UserContextTaskDecorator decorator = new UserContextTaskDecorator();
+
+    @AfterEach
+    void tearDown() {
+        UserContext.clear();
+    }
+
+    @Test
+    void decorateShouldRunTaskWithUserIdOfSubmittingThread() throws Exception {
+        // Arrange
+        AtomicReference<String> seen = new AtomicReference<>();
+        UserContext.setUserId("user-1");
+        Runnable task = decorator.decorate(() -> seen.set(UserContext.getUserId()));
+
+        // Act
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?> future = executor.submit(task);
+            future.get();
+        }
+
+        // Assert
+        assertEquals("user-1", seen.get());
+    }
+
+    @Test
+    void decorateShouldRestorePreviousUserIdOfRunningThread() {
+        // Arrange
+        UserContext.setUserId("user-1");
+        Runnable task = decorator.decorate(() -> assertEquals("user-1", UserContext.getUserId()));
+        UserContext.setUserId("user-2");
+
+        // Act
+        task.run();
+
+        // Assert
+        assertEquals("user-2", UserContext.getUserId());
+    }
+}
@@ -0,0 +1,26 @@
+package com.mongodbdemo.kitchensink.model;
+
+/**
+ * Members for tests that need a few distinct ones.
+ */
+public final class MemberFixtures {
+
+    private MemberFixtures() {
+    }
+
+    /**
+     * Builds a valid member whose email is derived from its name.
+     *
+     * @param id   the id, or {@code null} for a member that was not registered yet
+     * @param name the name
+     * @return the member
+     */
+    public static Member member(Long id, String name) {
+        Member member = new Member();
+        member.setId(id);
+        member.setName(name);
+        member.setEmail(name.toLowerCase().replace(' ', '.') + "@example.com");
+        member.setPhoneNumber("1234567890");
+        return member;
+    }
+}
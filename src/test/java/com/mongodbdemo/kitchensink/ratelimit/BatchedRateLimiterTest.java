@@ -0,0 +1,156 @@
+package com.mongodbdemo.kitchensink.ratelimit;
+
+import com.mongodbdemo.kitchensink.annotation.RateLimit;
+import com.mongodbdemo.kitchensink.dto.RateLimitBatch;
+import com.mongodbdemo.kitchensink.dto.RateLimitQuotas;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BatchedRateLimiterTest {
+
+    private static final String SERVICE_URL = "http://localhost:8080/rate-limit";
+    private static final String BATCH_URL = SERVICE_URL + "/batch";
+    private static final String USER_ID = "testUserId";
+    private static final Duration FLUSH_INTERVAL = Duration.ofSeconds(1);
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    private final AtomicLong nanos = new AtomicLong(1_000_000_000L);
+    private BatchedRateLimiter batchedRateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        batchedRateLimiter = new BatchedRateLimiter(restTemplate, SERVICE_URL, FLUSH_INTERVAL,
+                Duration.ofMinutes(10), 1000, nanos::get);
+    }
+
+    @RateLimit(permitsPerSecond = 1, burst = 2)
+    void limitedMethod() {
+    }
+
+    private RateLimit rateLimitAnnotation() throws NoSuchMethodException {
+        return getClass().getDeclaredMethod("limitedMethod").getAnnotation(RateLimit.class);
+    }
+
+    private void answer(String userId, long remaining, long retryAfterSeconds) {
+        when(restTemplate.postForObject(eq(BATCH_URL), any(RateLimitBatch.class), eq(RateLimitQuotas.class)))
+                .thenReturn(new RateLimitQuotas(Map.of(userId,
+                        new RateLimitQuotas.Quota(remaining, retryAfterSeconds))));
+    }
+
+    @Test
+    void tryAcquireWithoutQuotaShouldAllowUntilFirstFlush() throws NoSuchMethodException {
+        // Arrange
+        RateLimit rateLimit = rateLimitAnnotation();
+
+        // Act & Assert
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, batchedRateLimiter.tryAcquire(USER_ID, rateLimit));
+        }
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    void flushShouldPostConsumptionOfAllUsersInOneCall() throws NoSuchMethodException {
+        // Arrange
+        RateLimit rateLimit = rateLimitAnnotation();
+        answer(USER_ID, 10, 0);
+        batchedRateLimiter.tryAcquire(USER_ID, rateLimit);
+        batchedRateLimiter.tryAcquire(USER_ID, rateLimit);
+        batchedRateLimiter.tryAcquire("otherUserId", rateLimit);
+
+        // Act
+        batchedRateLimiter.flush();
+        batchedRateLimiter.flush();
+
+        // Assert
+        ArgumentCaptor<RateLimitBatch> batch = ArgumentCaptor.forClass(RateLimitBatch.class);
+        verify(restTemplate, times(1)).postForObject(eq(BATCH_URL), batch.capture(), eq(RateLimitQuotas.class));
+        assertEquals(Map.of(USER_ID, 2L, "otherUserId", 1L), batch.getValue().consumed());
+    }
+
+    @Test
+    void tryAcquireShouldRejectOnceQuotaIsUsedUp() throws NoSuchMethodException {
+        // Arrange
+        RateLimit rateLimit = rateLimitAnnotation();
+        answer(USER_ID, 2, 0);
+        batchedRateLimiter.tryAcquire(USER_ID, rateLimit);
+        batchedRateLimiter.flush();
+
+        // Act & Assert
+        assertEquals(0, batchedRateLimiter.tryAcquire(USER_ID, rateLimit));
+        assertEquals(0, batchedRateLimiter.tryAcquire(USER_ID, rateLimit));
+        assertEquals(FLUSH_INTERVAL.toNanos(), batchedRateLimiter.tryAcquire(USER_ID, rateLimit));
+    }
+
+    @Test
+    void flushShouldAskForNewQuotaOfUsedUpUser() throws NoSuchMethodException {
+        // Arrange
+        RateLimit rateLimit = rateLimitAnnotation();
+        answer(USER_ID, 0, 0);
+        batchedRateLimiter.tryAcquire(USER_ID, rateLimit);
+        batchedRateLimiter.flush();
+        answer(USER_ID, 5, 0);
+
+        // Act
+        batchedRateLimiter.flush();
+
+        // Assert
+        ArgumentCaptor<RateLimitBatch> batch = ArgumentCaptor.forClass(RateLimitBatch.class);
+        verify(restTemplate, times(2)).postForObject(eq(BATCH_URL), batch.capture(), eq(RateLimitQuotas.class));
+        assertEquals(Map.of(USER_ID, 0L), batch.getValue().consumed());
+        assertEquals(0, batchedRateLimiter.tryAcquire(USER_ID, rateLimit));
+    }
+
+    @Test
+    void flushRejectedByServiceShouldBlockUserUntilRetryAfter() throws NoSuchMethodException {
+        // Arrange
+        RateLimit rateLimit = rateLimitAnnotation();
+        answer(USER_ID, 0, 30);
+        batchedRateLimiter.tryAcquire(USER_ID, rateLimit);
+
+        // Act
+        batchedRateLimiter.flush();
+
+        // Assert
+        assertEquals(Duration.ofSeconds(30).toNanos(), batchedRateLimiter.tryAcquire(USER_ID, rateLimit));
+        nanos.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertEquals(0, batchedRateLimiter.tryAcquire(USER_ID, rateLimit));
+    }
+
+    @Test
+    void flushWithUnreachableServiceShouldKeepConsumptionForNextFlush() throws NoSuchMethodException {
+        // Arrange
+        RateLimit rateLimit = rateLimitAnnotation();
+        when(restTemplate.postForObject(eq(BATCH_URL), any(RateLimitBatch.class), eq(RateLimitQuotas.class)))
+                .thenThrow(new ResourceAccessException("Connection refused"))
+                .thenReturn(new RateLimitQuotas(Map.of()));
+        batchedRateLimiter.tryAcquire(USER_ID, rateLimit);
+        batchedRateLimiter.tryAcquire(USER_ID, rateLimit);
+
+        // Act
+        assertDoesNotThrow(() -> batchedRateLimiter.flush());
+        batchedRateLimiter.flush();
+
+        // Assert
+        ArgumentCaptor<RateLimitBatch> batch = ArgumentCaptor.forClass(RateLimitBatch.class);
+        verify(restTemplate, times(2)).postForObject(eq(BATCH_URL), batch.capture(), eq(RateLimitQuotas.class));
+        assertEquals(Map.of(USER_ID, 2L), batch.getValue().consumed());
+    }
+}
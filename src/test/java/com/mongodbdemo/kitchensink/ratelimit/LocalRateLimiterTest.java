@@ -0,0 +1,154 @@
+package com.mongodbdemo.kitchensink.ratelimit;
+
+import com.mongodbdemo.kitchensink.annotation.RateLimit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class LocalRateLimiterTest {
+
+    private static final String SERVICE_URL = "http://localhost:8080/rate-limit";
+    private static final String USER_ID = "testUserId";
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    private final AtomicLong nanos = new AtomicLong(1_000_000_000L);
+    private LocalRateLimiter localRateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        localRateLimiter = new LocalRateLimiter(restTemplate, SERVICE_URL, Duration.ofMinutes(10), 1000, nanos::get);
+    }
+
+    @RateLimit(permitsPerSecond = 1, burst = 2)
+    void limitedMethod() {
+    }
+
+    private RateLimit rateLimitAnnotation() throws NoSuchMethodException {
+        return getClass().getDeclaredMethod("limitedMethod").getAnnotation(RateLimit.class);
+    }
+
+    @Test
+    void tryAcquireShouldAllowBurstThenReject() throws NoSuchMethodException {
+        // Arrange
+        RateLimit rateLimit = rateLimitAnnotation();
+
+        // Act & Assert
+        assertEquals(0, localRateLimiter.tryAcquire(USER_ID, rateLimit));
+        assertEquals(0, localRateLimiter.tryAcquire(USER_ID, rateLimit));
+        long waitNanos = localRateLimiter.tryAcquire(USER_ID, rateLimit);
+        assertEquals(Duration.ofSeconds(1).toNanos(), waitNanos);
+    }
+
+    @Test
+    void tryAcquireShouldRefillOverTime() throws NoSuchMethodException {
+        // Arrange
+        RateLimit rateLimit = rateLimitAnnotation();
+        localRateLimiter.tryAcquire(USER_ID, rateLimit);
+        localRateLimiter.tryAcquire(USER_ID, rateLimit);
+
+        // Act
+        nanos.addAndGet(Duration.ofSeconds(1).toNanos());
+
+        // Assert
+        assertEquals(0, localRateLimiter.tryAcquire(USER_ID, rateLimit));
+        assertTrue(localRateLimiter.tryAcquire(USER_ID, rateLimit) > 0);
+    }
+
+    @Test
+    void tryAcquireShouldKeepBucketsPerUser() throws NoSuchMethodException {
+        // Arrange
+        RateLimit rateLimit = rateLimitAnnotation();
+        localRateLimiter.tryAcquire(USER_ID, rateLimit);
+        localRateLimiter.tryAcquire(USER_ID, rateLimit);
+
+        // Act & Assert
+        assertEquals(0, localRateLimiter.tryAcquire("otherUserId", rateLimit));
+    }
+
+    @Test
+    void reconcileShouldReportConsumedCountOncePerUser() throws NoSuchMethodException {
+        // Arrange
+        RateLimit rateLimit = rateLimitAnnotation();
+        localRateLimiter.tryAcquire(USER_ID, rateLimit);
+        localRateLimiter.tryAcquire(USER_ID, rateLimit);
+        localRateLimiter.tryAcquire(USER_ID, rateLimit);  // rejected, not reported
+
+        // Act
+        localRateLimiter.reconcile();
+        localRateLimiter.reconcile();
+
+        // Assert
+        verify(restTemplate, times(1)).exchange(eq(SERVICE_URL + "/" + USER_ID + "?consumed=2"),
+                eq(HttpMethod.PUT), any(HttpEntity.class), eq(Void.class));
+    }
+
+    @Test
+    void reconcileRejectedByServiceShouldBlockUserUntilRetryAfter() throws NoSuchMethodException {
+        // Arrange
+        RateLimit rateLimit = rateLimitAnnotation();
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("retry-after", "30");
+        doThrow(HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", headers, null, null))
+                .when(restTemplate).exchange(anyString(), eq(HttpMethod.PUT), any(HttpEntity.class), eq(Void.class));
+        localRateLimiter.tryAcquire(USER_ID, rateLimit);
+
+        // Act
+        localRateLimiter.reconcile();
+
+        // Assert
+        assertEquals(Duration.ofSeconds(30).toNanos(), localRateLimiter.tryAcquire(USER_ID, rateLimit));
+        nanos.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertEquals(0, localRateLimiter.tryAcquire(USER_ID, rateLimit));
+    }
+
+    @Test
+    void reconcileWithUnreachableServiceShouldNotThrow() throws NoSuchMethodException {
+        // Arrange
+        RateLimit rateLimit = rateLimitAnnotation();
+        doThrow(new ResourceAccessException("Connection refused"))
+                .when(restTemplate).exchange(anyString(), eq(HttpMethod.PUT), any(HttpEntity.class), eq(Void.class));
+        localRateLimiter.tryAcquire(USER_ID, rateLimit);
+
+        // Act & Assert
+        assertDoesNotThrow(() -> localRateLimiter.reconcile());
+        assertEquals(0, localRateLimiter.tryAcquire(USER_ID, rateLimit));
+    }
+
+    @Test
+    void reconcileWithUnreachableServiceShouldReportCountsInNextRun() throws NoSuchMethodException {
+        // Arrange
+        RateLimit rateLimit = rateLimitAnnotation();
+        doThrow(new ResourceAccessException("Connection refused")).doReturn(null)
+                .when(restTemplate).exchange(anyString(), eq(HttpMethod.PUT), any(HttpEntity.class), eq(Void.class));
+        localRateLimiter.tryAcquire(USER_ID, rateLimit);
+        localRateLimiter.reconcile();
+        localRateLimiter.tryAcquire(USER_ID, rateLimit);
+
+        // Act
+        localRateLimiter.reconcile();
+
+        // Assert
+        verify(restTemplate).exchange(eq(SERVICE_URL + "/" + USER_ID + "?consumed=2"),
+                eq(HttpMethod.PUT), any(HttpEntity.class), eq(Void.class));
+    }
+}
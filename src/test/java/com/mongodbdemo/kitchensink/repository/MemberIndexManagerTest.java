@@ -0,0 +1,177 @@
+package com.mongodbdemo.kitchensink.repository;
+
+import com.mongodbdemo.kitchensink.model.Member;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MemberIndexManagerTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private IndexOperations indexOps;
+
+    private MemberIndexManager indexManager;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mongoTemplate.indexOps(Member.class)).thenReturn(indexOps);
+        when(mongoTemplate.getCollectionName(Member.class)).thenReturn("members");
+        indexManager = new MemberIndexManager(mongoTemplate, Runnable::run, 1000);
+    }
+
+    @Test
+    void ensureIndexesShouldBuildOnlyMissingIndexes() {
+        // Arrange
+        when(indexOps.getIndexInfo()).thenReturn(List.of(
+                indexInfo("_id_", IndexField.create("_id", Sort.Direction.ASC)),
+                indexInfo("name_id", IndexField.create("name", Sort.Direction.ASC),
+                        IndexField.create("_id", Sort.Direction.ASC))));
+
+        // Act
+        boolean ready = indexManager.ensureIndexes();
+
+        // Assert
+        ArgumentCaptor<Index> built = ArgumentCaptor.forClass(Index.class);
+        verify(indexOps, times(5)).ensureIndex(built.capture());
+        assertEquals(List.of(new Document("email", 1), new Document("lastModified", -1),
+                        new Document("search.name", 1), new Document("search.email", 1),
+                        new Document("search.phoneNumber", 1)),
+                built.getAllValues().stream().map(Index::getIndexKeys).toList());
+        assertEquals(true, built.getAllValues().get(0).getIndexOptions().get("unique"));
+        assertTrue(ready);
+        assertTrue(indexManager.isEmailUnique());
+        assertEquals(MemberIndexManager.State.READY, indexManager.state());
+    }
+
+    @Test
+    void ensureIndexesShouldNotBuildWhenAllIndexesExist() {
+        // Arrange
+        when(indexOps.getIndexInfo()).thenReturn(List.of(
+                indexInfo("name_id", IndexField.create("name", Sort.Direction.ASC),
+                        IndexField.create("_id", Sort.Direction.ASC)),
+                new IndexInfo(List.of(IndexField.create("email", Sort.Direction.ASC)), "email", true, false, null),
+                indexInfo("lastModified", IndexField.create("lastModified", Sort.Direction.DESC)),
+                indexInfo("search_name", IndexField.create("search.name", Sort.Direction.ASC)),
+                indexInfo("search_email", IndexField.create("search.email", Sort.Direction.ASC)),
+                indexInfo("search_phoneNumber", IndexField.create("search.phoneNumber", Sort.Direction.ASC))));
+
+        // Act
+        boolean ready = indexManager.ensureIndexes();
+
+        // Assert
+        verify(indexOps, never()).ensureIndex(any());
+        assertTrue(ready);
+        assertTrue(indexManager.isEmailUnique());
+    }
+
+    @Test
+    void ensureIndexesShouldNotTakeNonUniqueEmailIndexForUniqueOne() {
+        // Arrange
+        when(indexOps.getIndexInfo()).thenReturn(List.of(
+                indexInfo("email", IndexField.create("email", Sort.Direction.ASC))));
+        when(indexOps.ensureIndex(any())).thenAnswer(invocation -> {
+            Object name = invocation.getArgument(0, Index.class).getIndexOptions().get("name");
+            if ("email".equals(name)) {
+                throw new UncategorizedMongoDbException(
+                        "Index with name: email already exists with different options", null);
+            }
+            return name;
+        });
+
+        // Act
+        boolean ready = indexManager.ensureIndexes();
+
+        // Assert
+        ArgumentCaptor<Index> built = ArgumentCaptor.forClass(Index.class);
+        verify(indexOps, times(2)).ensureIndex(built.capture());
+        assertEquals(List.of("name_id", "email"), built.getAllValues().stream()
+                .map(index -> index.getIndexOptions().get("name")).toList());
+        assertFalse(ready);
+        assertFalse(indexManager.isEmailUnique());
+        assertEquals(Status.DOWN, indexManager.health().getStatus());
+    }
+
+    @Test
+    void ensureIndexesShouldReportFailureWithoutThrowing() {
+        // Arrange
+        when(indexOps.getIndexInfo()).thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+        // Act
+        boolean ready = indexManager.ensureIndexes();
+
+        // Assert
+        assertFalse(ready);
+        assertEquals(MemberIndexManager.State.FAILED, indexManager.state());
+        assertEquals(Status.DOWN, indexManager.health().getStatus());
+        assertEquals(MemberIndexManager.State.FAILED, indexManager.health().getDetails().get("state"));
+    }
+
+    @Test
+    void blockingStagesShouldFindCollectionScanAndInMemorySort() {
+        // Arrange
+        Document explain = new Document("queryPlanner", new Document("winningPlan",
+                new Document("stage", "SORT").append("inputStage", new Document("stage", "COLLSCAN"))));
+
+        // Act
+        List<String> stages = MemberIndexManager.blockingStages(explain);
+
+        // Assert
+        assertEquals(List.of("SORT", "COLLSCAN"), stages);
+    }
+
+    @Test
+    void blockingStagesShouldAcceptIndexScan() {
+        // Arrange
+        Document explain = new Document("queryPlanner", new Document("winningPlan",
+                new Document("stage", "LIMIT").append("inputStage", new Document("stage", "FETCH")
+                        .append("inputStage", new Document("stage", "IXSCAN").append("indexName", "name_id")))));
+
+        // Act
+        List<String> stages = MemberIndexManager.blockingStages(explain);
+
+        // Assert
+        assertTrue(stages.isEmpty());
+    }
+
+    @Test
+    void blockingStagesShouldReadSlotBasedEnginePlans() {
+        // Arrange
+        Document explain = new Document("queryPlanner", new Document("winningPlan", new Document()
+                .append("queryPlan", new Document("stage", "OR").append("inputStages", List.of(
+                        new Document("stage", "IXSCAN"),
+                        new Document("stage", "COLLSCAN"))))
+                .append("slotBasedPlan", new Document("stages", "[1] scan s1 s2"))));
+
+        // Act
+        List<String> stages = MemberIndexManager.blockingStages(explain);
+
+        // Assert
+        assertEquals(List.of("COLLSCAN"), stages);
+    }
+
+    private static IndexInfo indexInfo(String name, IndexField... fields) {
+        return new IndexInfo(List.of(fields), name, false, false, null);
+    }
+}
@@ -0,0 +1,115 @@
+package com.mongodbdemo.kitchensink.repository;
+
+import com.mongodbdemo.kitchensink.helper.SearchText;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemberRepositoryCustomImplTest {
+
+    @Test
+    void pageQueryForFirstPageShouldOnlySortAndLimit() {
+        // Act
+        Query query = MemberRepositoryCustomImpl.pageQuery(null, null, 10);
+
+        // Assert
+        assertTrue(query.getQueryObject().isEmpty());
+        assertEquals(new Document("name", 1).append("_id", 1), query.getSortObject());
+        assertEquals(10, query.getLimit());
+    }
+
+    @Test
+    void pageQueryAfterCursorShouldSeekPastNameAndId() {
+        // Act
+        Query query = MemberRepositoryCustomImpl.pageQuery("Bob", 2L, 10);
+
+        // Assert
+        Document expected = new Document("$or", List.of(
+                new Document("name", new Document("$gt", "Bob")),
+                new Document("name", "Bob").append("_id", new Document("$gt", 2L))));
+        assertEquals(expected, query.getQueryObject());
+    }
+
+    @Test
+    void projectShouldIncludeOnlyGivenFields() {
+        // Arrange
+        Query query = MemberRepositoryCustomImpl.pageQuery(null, null, 10);
+
+        // Act
+        MemberRepositoryCustomImpl.project(query, List.of("_id", "name"));
+
+        // Assert
+        assertEquals(new Document("_id", 1).append("name", 1), query.getFieldsObject());
+    }
+
+    @Test
+    void byIdShouldMatchIdAndSkipTheGrams() {
+        // Act
+        Query query = MemberRepositoryCustomImpl.byId(1L);
+
+        // Assert
+        assertEquals(new Document("_id", 1L), query.getQueryObject());
+        assertEquals(new Document(SearchText.FIELD, 0), query.getFieldsObject());
+    }
+
+    @Test
+    void setUpdateShouldSetGivenFieldsAndIncrementVersion() {
+        // Arrange
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("name", "Jane");
+        fields.put("phoneNumber", "0987654321");
+
+        // Act
+        Update update = MemberRepositoryCustomImpl.setUpdate(fields);
+
+        // Assert
+        Document expected = new Document("$set", new Document("name", "Jane").append("phoneNumber", "0987654321")
+                        .append("search.name", List.of("jan", "ane"))
+                        .append("search.phoneNumber", List.of("098", "987", "876", "765", "654", "543", "432", "321")))
+                .append("$inc", new Document("version", 1))
+                .append("$currentDate", new Document("lastModified", true));
+        assertEquals(expected, update.getUpdateObject());
+    }
+
+    @Test
+    void setUpdateShouldNotSetGramsOfOtherFields() {
+        // Act
+        Update update = MemberRepositoryCustomImpl.setUpdate(Map.of("version", 3L));
+
+        // Assert
+        assertEquals(new Document("version", 3L), update.getUpdateObject().get("$set"));
+    }
+
+    @Test
+    void searchQueryShouldRequireAllGramsOfOneFieldAndSkipTheGrams() {
+        // Act
+        Query query = MemberRepositoryCustomImpl.searchQuery(SearchText.terms("555").grams(), 100,
+                Duration.ofMillis(200));
+
+        // Assert
+        Document expected = new Document("$or", List.of(
+                new Document("search.name", new Document("$all", List.of("555"))),
+                new Document("search.email", new Document("$all", List.of("555"))),
+                new Document("search.phoneNumber", new Document("$all", List.of("555")))));
+        assertEquals(expected, query.getQueryObject());
+        assertEquals(new Document("search", 0), query.getFieldsObject());
+        assertEquals(100, query.getLimit());
+        assertEquals(200L, query.getMeta().getMaxTimeMsec());
+    }
+
+    @Test
+    void setUpdateWithoutFieldsShouldBeRejected() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> MemberRepositoryCustomImpl.setUpdate(Map.of()));
+    }
+}
@@ -0,0 +1,113 @@
+package com.mongodbdemo.kitchensink.repository;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodbdemo.kitchensink.model.Member;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class MemberSearchBackfillTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private MemberSearchBackfill backfill;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mongoTemplate.getCollectionName(Member.class)).thenReturn("members");
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, "members")).thenReturn(bulkOperations);
+        backfill = new MemberSearchBackfill(mongoTemplate, Runnable::run, 2);
+    }
+
+    @Test
+    void backfillShouldUpdateMissingDocumentsInBatches() {
+        // Arrange
+        when(mongoTemplate.stream(any(Query.class), eq(Document.class), eq("members"))).thenReturn(Stream.of(
+                member(1L, "Ann"), member(2L, "Bob"), member(3L, "Eve")));
+        when(bulkOperations.execute())
+                .thenReturn(BulkWriteResult.acknowledged(0, 2, 0, 2, List.of(), List.of()))
+                .thenReturn(BulkWriteResult.acknowledged(0, 1, 0, 1, List.of(), List.of()));
+
+        // Act
+        long updated = backfill.backfill();
+
+        // Assert
+        assertEquals(3, updated);
+        verify(bulkOperations, times(3)).updateOne(any(Query.class), any(Update.class));
+        verify(bulkOperations, times(2)).execute();
+    }
+
+    @Test
+    void backfillShouldOnlyUpdateDocumentsThatDidNotChange() {
+        // Arrange
+        when(mongoTemplate.stream(any(Query.class), eq(Document.class), eq("members")))
+                .thenReturn(Stream.of(member(1L, "Ann")));
+        when(bulkOperations.execute()).thenReturn(BulkWriteResult.acknowledged(0, 0, 0, 0, List.of(), List.of()));
+
+        // Act
+        backfill.backfill();
+
+        // Assert
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations).updateOne(query.capture(), update.capture());
+        assertEquals(new Document("_id", 1L).append("name", "Ann").append("email", "ann@example.com")
+                .append("phoneNumber", "0123456789"), query.getValue().getQueryObject());
+        Document search = (Document) update.getValue().getUpdateObject().get("$set", Document.class).get("search");
+        assertEquals(List.of("ann"), search.get("name"));
+        assertEquals(8, search.getList("phoneNumber", String.class).size());
+    }
+
+    @Test
+    void missingQueryShouldFindDocumentsWithoutSomeGrams() {
+        // Act
+        Query query = MemberSearchBackfill.missingQuery(100);
+
+        // Assert
+        assertEquals(new Document("$or", List.of(
+                new Document("search.name", null),
+                new Document("search.email", null),
+                new Document("search.phoneNumber", null))), query.getQueryObject());
+        assertEquals(new Document("name", 1).append("email", 1).append("phoneNumber", 1), query.getFieldsObject());
+    }
+
+    @Test
+    void backfillShouldSurviveDatabaseFailure() {
+        // Arrange
+        when(mongoTemplate.stream(any(Query.class), eq(Document.class), eq("members")))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+        // Act
+        long updated = backfill.backfill();
+
+        // Assert
+        assertEquals(0, updated);
+        verify(bulkOperations, never()).execute();
+    }
+
+    private static Document member(Long id, String name) {
+        return new Document("_id", id).append("name", name).append("email", name.toLowerCase() + "@example.com")
+                .append("phoneNumber", "0123456789");
+    }
+}
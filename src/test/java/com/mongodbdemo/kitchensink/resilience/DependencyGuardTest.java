@@ -0,0 +1,139 @@
+package com.mongodbdemo.kitchensink.resilience;
+
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DependencyGuardTest {
+
+    private static final CircuitBreakerConfig CIRCUIT_BREAKER = CircuitBreakerConfig.custom()
+            .slidingWindowSize(4)
+            .minimumNumberOfCalls(4)
+            .failureRateThreshold(50)
+            .build();
+    private static final BulkheadConfig BULKHEAD = BulkheadConfig.custom()
+            .maxConcurrentCalls(1)
+            .build();
+
+    private SimpleMeterRegistry meterRegistry;
+    private DependencyGuard guard;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        guard = new DependencyGuard("auth", FailurePolicy.OPEN, CIRCUIT_BREAKER, BULKHEAD);
+        guard.bindTo(meterRegistry);
+    }
+
+    @Test
+    void callShouldReturnResultOfCall() {
+        // Act & Assert
+        assertEquals("user-1", guard.call(() -> "user-1"));
+    }
+
+    @Test
+    void failedCallsShouldOpenBreakerAndFailFast() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 4; i++) {
+            assertThrows(ResourceAccessException.class, () -> guard.call(() -> {
+                calls.incrementAndGet();
+                throw new ResourceAccessException("Read timed out");
+            }));
+        }
+
+        // Act & Assert
+        assertEquals(CircuitBreaker.State.OPEN, guard.state());
+        assertThrows(CallNotPermittedException.class, () -> guard.call(calls::incrementAndGet));
+        assertEquals(4, calls.get());
+        assertEquals(1, meterRegistry.get("resilience4j.circuitbreaker.state")
+                .tags("name", "auth", "state", "open").gauge().value());
+    }
+
+    @Test
+    void rejectionsOfDependencyShouldNotOpenBreaker() {
+        // Arrange
+        for (int i = 0; i < 4; i++) {
+            assertThrows(HttpClientErrorException.class, () -> guard.call(() -> {
+                throw new HttpClientErrorException(HttpStatus.UNAUTHORIZED);
+            }));
+        }
+
+        // Act & Assert
+        assertEquals(CircuitBreaker.State.CLOSED, guard.state());
+    }
+
+    @Test
+    void callBeyondBulkheadShouldFailAtOnce() {
+        // Act & Assert
+        assertThrows(BulkheadFullException.class, () -> guard.call(() -> guard.call(() -> "nested")));
+        assertEquals(CircuitBreaker.State.CLOSED, guard.state());
+        assertEquals(0, guard.circuitBreaker().getMetrics().getNumberOfFailedCalls());
+    }
+
+    @Test
+    void recoverShouldRethrowDecisionOfDependency() {
+        // Arrange
+        HttpClientErrorException rejection = new HttpClientErrorException(HttpStatus.FORBIDDEN);
+
+        // Act & Assert
+        assertSame(rejection, assertThrows(HttpClientErrorException.class, () -> guard.recover(rejection)));
+    }
+
+    @Test
+    void recoverWithOpenPolicyShouldLetRequestThrough() {
+        // Act
+        guard.recover(new HttpServerErrorException(HttpStatus.BAD_GATEWAY));
+        guard.recover(CallNotPermittedException.createCallNotPermittedException(guard.circuitBreaker()));
+
+        // Assert
+        assertEquals(1, meterRegistry.get("dependency.unavailable").tags("dependency", "auth", "reason", "error")
+                .functionCounter().count());
+        assertEquals(1, meterRegistry.get("dependency.unavailable").tags("reason", "circuit-open")
+                .functionCounter().count());
+    }
+
+    @Test
+    void recoverWithClosedPolicyShouldFailWithServiceUnavailable() {
+        // Arrange
+        guard = new DependencyGuard("auth", FailurePolicy.CLOSED, CIRCUIT_BREAKER, BULKHEAD);
+
+        // Act & Assert
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> guard.recover(new ResourceAccessException("Connection refused")));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatusCode());
+    }
+
+    @Test
+    void reactiveRecoverWithOpenPolicyShouldCompleteEmpty() {
+        // Act & Assert
+        StepVerifier.create(guard.recover(guard.call(Mono.<String>error(new ResourceAccessException("Read timed out")))))
+                .verifyComplete();
+        StepVerifier.create(guard.recover(Mono.<String>error(new HttpClientErrorException(HttpStatus.UNAUTHORIZED))))
+                .expectError(HttpClientErrorException.class)
+                .verify();
+    }
+
+    @Test
+    void failurePolicyShouldParseAnyCase() {
+        // Act & Assert
+        assertEquals(FailurePolicy.OPEN, FailurePolicy.of("open"));
+        assertEquals(FailurePolicy.CLOSED, FailurePolicy.of(" Closed "));
+    }
+}
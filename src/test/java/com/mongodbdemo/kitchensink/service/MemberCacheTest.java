@@ -0,0 +1,148 @@
+package com.mongodbdemo.kitchensink.service;
+
+import com.mongodbdemo.kitchensink.model.Member;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.mongodbdemo.kitchensink.model.MemberFixtures.member;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemberCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private MemberCache memberCache;
+
+    @BeforeEach
+    void setUp() {
+        memberCache = new MemberCache(10_000, Duration.ofSeconds(60), nanos::get);
+    }
+
+    @Test
+    void getShouldLoadOnceWhileEntryIsFresh() {
+        // Arrange
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        memberCache.get(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.of(member(id, "Jane Doe"));
+        });
+        Optional<Member> cached = memberCache.get(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.of(member(id, "Jane Doe"));
+        });
+
+        // Assert
+        assertEquals(1L, cached.orElseThrow().getId());
+        assertEquals(1, loads.get());
+        assertEquals(1, memberCache.stats().hitCount());
+    }
+
+    @Test
+    void reactiveGetShouldSubscribeToLoaderOnlyOnMiss() {
+        // Arrange
+        AtomicInteger loads = new AtomicInteger();
+        Mono<Member> loader = Mono.fromSupplier(() -> member((long) loads.incrementAndGet(), "Jane Doe"));
+
+        // Act
+        memberCache.get(1L, loader).block();
+        Member cached = memberCache.get(1L, loader).block();
+
+        // Assert
+        assertEquals(1L, cached.getId());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void reactiveGetShouldNotCacheMemberLoadedAcrossInvalidation() {
+        // Arrange
+        Mono<Member> loader = Mono.fromSupplier(() -> {
+            memberCache.invalidate(1L);
+            return member(1L, "Jane Doe");
+        });
+
+        // Act
+        Member loaded = memberCache.get(1L, loader).block();
+
+        // Assert
+        assertEquals(1L, loaded.getId());
+        assertNull(memberCache.getCache().getIfPresent(1L));
+    }
+
+    @Test
+    void getShouldLoadAgainAfterTtl() {
+        // Arrange
+        AtomicInteger loads = new AtomicInteger();
+        memberCache.get(1L, id -> Optional.of(member((long) loads.incrementAndGet(), "Jane Doe")));
+
+        // Act
+        nanos.addAndGet(Duration.ofSeconds(61).toNanos());
+        memberCache.get(1L, id -> Optional.of(member((long) loads.incrementAndGet(), "Jane Doe")));
+
+        // Assert
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void putShouldReplaceCachedMember() {
+        // Arrange
+        memberCache.get(1L, id -> Optional.of(member(id, "Jane Doe")));
+        Member updated = member(1L, "Jane Doe");
+        updated.setName("John Doe");
+
+        // Act
+        memberCache.put(updated);
+
+        // Assert
+        assertEquals("John Doe", memberCache.get(1L, id -> Optional.empty()).orElseThrow().getName());
+    }
+
+    @Test
+    void invalidateAllShouldRemoveMembers() {
+        // Arrange
+        memberCache.put(member(1L, "Jane Doe"));
+        memberCache.put(member(2L, "Jane Doe"));
+
+        // Act
+        memberCache.invalidateAll(List.of(1L, 2L));
+
+        // Assert
+        assertTrue(memberCache.get(1L, id -> Optional.empty()).isEmpty());
+        assertTrue(memberCache.get(2L, id -> Optional.empty()).isEmpty());
+    }
+
+    @Test
+    void putShouldEvictWhenMaximumWeightIsExceeded() {
+        // Act
+        for (long id = 0; id < 1000; id++) {
+            memberCache.put(member(id, "Jane Doe"));
+        }
+        memberCache.getCache().cleanUp();
+
+        // Assert
+        assertTrue(memberCache.getCache().estimatedSize() * MemberCache.weigh(member(0L, "Jane Doe")) <= 10_000);
+        assertTrue(memberCache.stats().evictionCount() > 0);
+    }
+
+    @Test
+    void bindToShouldPublishCacheMetrics() {
+        // Arrange
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        memberCache.bindTo(registry);
+
+        // Act
+        memberCache.get(1L, id -> Optional.of(member(id, "Jane Doe")));
+
+        // Assert
+        assertEquals(1, registry.get("cache.gets").tags("cache", "members", "result", "miss").functionCounter().count());
+        assertNotNull(registry.get("cache.evictions").tag("cache", "members").functionCounter());
+    }
+}
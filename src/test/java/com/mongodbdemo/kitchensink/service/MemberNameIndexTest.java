@@ -0,0 +1,291 @@
+package com.mongodbdemo.kitchensink.service;
+
+import com.mongodbdemo.kitchensink.dto.MemberNameMatch;
+import com.mongodbdemo.kitchensink.model.Member;
+import com.mongodbdemo.kitchensink.repository.MemberRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.mongodbdemo.kitchensink.model.MemberFixtures.member;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class MemberNameIndexTest {
+
+    @Mock
+    private MemberRepository memberRepository;
+
+    private MemberNameIndex index;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        index = new MemberNameIndex(memberRepository, Runnable::run, 100, 30000);
+    }
+
+    @Test
+    void searchShouldReturnPrefixMatchesOrderedByNameThenId() {
+        // Arrange
+        index.put(member(3L, "Anna"));
+        index.put(member(1L, "Annabel"));
+        index.put(member(2L, "Anna"));
+        index.put(member(4L, "Bob"));
+        index.put(member(5L, "Ann"));
+
+        // Act
+        List<MemberNameMatch> matches = index.search("anna", 10);
+
+        // Assert
+        assertEquals(List.of(
+                new MemberNameMatch(2L, "Anna"),
+                new MemberNameMatch(3L, "Anna"),
+                new MemberNameMatch(1L, "Annabel")), matches);
+    }
+
+    @Test
+    void searchShouldStopAtLimit() {
+        // Arrange
+        for (long id = 1; id <= 20; id++) {
+            index.put(member(id, "Member"));
+        }
+
+        // Act
+        List<MemberNameMatch> matches = index.search("mem", 5);
+
+        // Assert
+        assertEquals(5, matches.size());
+        assertEquals(1L, matches.get(0).id());
+    }
+
+    @Test
+    void searchShouldIgnoreCaseAccentsAndRepeatedWhitespace() {
+        // Arrange
+        index.put(member(1L, "José  Martínez"));
+
+        // Act
+        List<MemberNameMatch> matches = index.search("JOSE MAR", 10);
+
+        // Assert
+        assertEquals(List.of(new MemberNameMatch(1L, "José  Martínez")), matches);
+    }
+
+    @Test
+    void putShouldReplacePreviousName() {
+        // Arrange
+        index.put(member(1L, "John"));
+
+        // Act
+        index.put(member(1L, "Jim"));
+
+        // Assert
+        assertTrue(index.search("john", 10).isEmpty());
+        assertEquals(List.of(new MemberNameMatch(1L, "Jim")), index.search("ji", 10));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void putShouldIgnoreOlderVersion() {
+        // Arrange
+        Member renamed = member(1L, "Jim");
+        renamed.setVersion(3);
+        Member older = member(1L, "John");
+        older.setVersion(2);
+        index.put(renamed);
+
+        // Act
+        index.put(older);
+
+        // Assert
+        assertTrue(index.search("john", 10).isEmpty());
+        assertEquals(List.of(new MemberNameMatch(1L, "Jim")), index.search("ji", 10));
+    }
+
+    @Test
+    void putAfterRemoveShouldNotBringMemberBack() {
+        // Arrange
+        index.put(member(1L, "John"));
+        Member updated = member(1L, "Jim");
+        updated.setVersion(2);
+
+        // Act
+        index.remove(1L);
+        index.put(updated);
+
+        // Assert
+        assertTrue(index.search("j", 10).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void removeShouldDropMember() {
+        // Arrange
+        index.put(member(1L, "John"));
+        index.put(member(2L, "Joan"));
+
+        // Act
+        index.removeAll(List.of(1L, 3L));
+
+        // Assert
+        assertEquals(List.of(new MemberNameMatch(2L, "Joan")), index.search("jo", 10));
+    }
+
+    @Test
+    void removeOfUnknownMemberShouldNotLeaveTombstone() {
+        // Act
+        index.remove(1L);
+        index.put(member(1L, "John"));
+
+        // Assert
+        assertEquals(List.of(new MemberNameMatch(1L, "John")), index.search("j", 10));
+    }
+
+    @Test
+    void removeOfUnknownMemberWhileLoadingShouldLeaveTombstone() {
+        // Arrange
+        Stream<Document> names = Stream.of(new Document("_id", 1L).append("name", "Ann"))
+                .peek(document -> index.remove(1L));
+        when(memberRepository.streamNames(100)).thenReturn(names);
+
+        // Act
+        index.load();
+
+        // Assert
+        assertTrue(index.search("a", 10).isEmpty());
+    }
+
+    @Test
+    void loadShouldAddStreamedNames() {
+        // Arrange
+        when(memberRepository.streamNames(100)).thenReturn(Stream.of(
+                new Document("_id", 1L).append("name", "Ann"),
+                new Document("_id", 2L).append("name", "Bob")));
+
+        // Act
+        long loaded = index.load();
+
+        // Assert
+        assertEquals(2, loaded);
+        assertEquals(List.of(new MemberNameMatch(2L, "Bob")), index.search("b", 10));
+    }
+
+    @Test
+    void loadShouldKeepWritesMadeWhileLoading() {
+        // Arrange
+        Stream<Document> names = Stream.of(
+                        new Document("_id", 1L).append("name", "Ann"),
+                        new Document("_id", 2L).append("name", "Bob"))
+                .peek(document -> {
+                    // a rename and a delete that land after the scan read the documents
+                    index.put(member(1L, "Annie"));
+                    index.remove(2L);
+                });
+        when(memberRepository.streamNames(100)).thenReturn(names);
+
+        // Act
+        index.load();
+
+        // Assert
+        assertEquals(List.of(new MemberNameMatch(1L, "Annie")), index.search("a", 10));
+        assertTrue(index.search("b", 10).isEmpty());
+    }
+
+    @Test
+    void loadShouldDropMembersDeletedElsewhere() {
+        // Arrange
+        index.put(member(1L, "Ann"));
+        index.put(member(2L, "Bob"));
+        when(memberRepository.streamNames(100)).thenReturn(Stream.of(new Document("_id", 1L).append("name", "Ann")));
+
+        // Act
+        index.load();
+
+        // Assert
+        assertEquals(List.of(new MemberNameMatch(1L, "Ann")), index.search("", 10));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void refreshShouldApplyMembersModifiedElsewhere() {
+        // Arrange
+        when(memberRepository.streamNames(100)).thenReturn(Stream.of(new Document("_id", 1L).append("name", "Ann")));
+        index.load();
+        when(memberRepository.streamNamesModifiedSince(any(Instant.class), eq(100))).thenReturn(Stream.of(
+                new Document("_id", 1L).append("name", "Annie").append("version", 2L),
+                new Document("_id", 2L).append("name", "Bob").append("version", 1L)));
+
+        // Act
+        index.refresh();
+
+        // Assert
+        assertEquals(List.of(new MemberNameMatch(1L, "Annie"), new MemberNameMatch(2L, "Bob")),
+                index.search("", 10));
+    }
+
+    @Test
+    void refreshShouldReadOnExecutor() {
+        // Arrange
+        List<Runnable> tasks = new ArrayList<>();
+        MemberNameIndex deferred = new MemberNameIndex(memberRepository, tasks::add, 100, 30000);
+        when(memberRepository.streamNames(100)).thenReturn(Stream.of(new Document("_id", 1L).append("name", "Ann")));
+        deferred.load();
+        when(memberRepository.streamNamesModifiedSince(any(Instant.class), eq(100))).thenReturn(Stream.of(
+                new Document("_id", 2L).append("name", "Bob").append("version", 1L)));
+
+        // Act
+        deferred.refresh();
+
+        // Assert
+        verify(memberRepository, never()).streamNamesModifiedSince(any(), anyInt());
+        tasks.forEach(Runnable::run);
+        assertEquals(List.of(new MemberNameMatch(2L, "Bob")), deferred.search("b", 10));
+    }
+
+    @Test
+    void refreshShouldWaitForFirstLoad() {
+        // Act
+        index.refresh();
+
+        // Assert
+        verify(memberRepository, never()).streamNamesModifiedSince(any(), anyInt());
+    }
+
+    @Test
+    void loadShouldSurviveDatabaseFailure() {
+        // Arrange
+        when(memberRepository.streamNames(100)).thenThrow(new DataAccessResourceFailureException("refused"));
+        index.put(member(1L, "Ann"));
+
+        // Act
+        long loaded = index.load();
+
+        // Assert
+        assertEquals(0, loaded);
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void bindToShouldPublishSize() {
+        // Arrange
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        index.bindTo(registry);
+
+        // Act
+        index.put(member(1L, "Ann"));
+
+        // Assert
+        assertEquals(1, registry.get("members.name-index.size").gauge().value());
+    }
+}
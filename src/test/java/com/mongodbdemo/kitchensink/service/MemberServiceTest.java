@@ -1,22 +1,49 @@
 package com.mongodbdemo.kitchensink.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoExecutionTimeoutException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodbdemo.kitchensink.dto.BulkDeleteResult;
+import com.mongodbdemo.kitchensink.dto.BulkImportResult;
+import com.mongodbdemo.kitchensink.dto.MemberNameMatch;
+import com.mongodbdemo.kitchensink.dto.MemberSearchResult;
 import com.mongodbdemo.kitchensink.dto.MemberUpdateDto;
+import com.mongodbdemo.kitchensink.helper.SearchText;
 import com.mongodbdemo.kitchensink.model.Member;
+import com.mongodbdemo.kitchensink.repository.MemberIndexManager;
 import com.mongodbdemo.kitchensink.repository.MemberRepository;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.bson.BsonDocument;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-
+import static com.mongodbdemo.kitchensink.model.MemberFixtures.member;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class MemberServiceTest {
@@ -27,12 +54,28 @@ public class MemberServiceTest {
     @Mock
     private SequenceGeneratorService sequenceGeneratorService;
 
+    @Spy
+    private MemberCache memberCache = new MemberCache(1_000_000, 60);
+
+    @Spy
+    private MemberNameIndex memberNameIndex = new MemberNameIndex(null, Runnable::run, 100, 30000);
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Mock
+    private MemberIndexManager memberIndexManager;
+
     @InjectMocks
     private MemberService memberService;
 
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(memberIndexManager.isEmailUnique()).thenReturn(true);
     }
 
     @Test
@@ -47,57 +90,126 @@ public class MemberServiceTest {
         memberService.register(member);
 
         verify(sequenceGeneratorService, times(1)).generateSequence(Member.SEQUENCE_NAME);
-        verify(memberRepository, times(1)).save(member);
+        verify(memberRepository, times(1)).insert(member);
+        assertEquals(1, member.getVersion());
+        assertNotNull(member.getLastModified());
+        verify(sequenceGeneratorService, times(1)).generateSequenceRange(MemberService.COLLECTION_VERSION, 1);
     }
 
     @Test
-    public void testUpdateMemberSuccess() {
-        Long memberId = 1L;
-        Member existingMember = new Member();
+    public void testWritesSettingEmailAreRefusedUntilEmailIndexIsUnique() {
+        when(memberIndexManager.isEmailUnique()).thenReturn(false);
+        MemberUpdateDto emailUpdate = new MemberUpdateDto();
+        emailUpdate.setEmail("jane.doe@example.com");
+
+        ResponseStatusException register = assertThrows(ResponseStatusException.class,
+                () -> memberService.register(new Member()));
+        ResponseStatusException update = assertThrows(ResponseStatusException.class,
+                () -> memberService.updateMember(1L, emailUpdate));
+        ResponseStatusException importing = assertThrows(ResponseStatusException.class,
+                () -> memberService.importMembers(new ByteArrayInputStream("[]".getBytes())));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, register.getStatusCode());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, update.getStatusCode());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, importing.getStatusCode());
+        verifyNoInteractions(sequenceGeneratorService, memberRepository);
+    }
+
+    @Test
+    public void testUpdateMemberWithoutEmailIsAllowedBeforeEmailIndexIsUnique() {
+        when(memberIndexManager.isEmailUnique()).thenReturn(false);
+        Member updated = new Member();
+        updated.setId(1L);
+        MemberUpdateDto updateDto = new MemberUpdateDto();
+        updateDto.setPhoneNumber("0987654321");
+        when(memberRepository.setFields(1L, Map.of("phoneNumber", "0987654321"))).thenReturn(Optional.of(updated));
+
+        assertEquals(updated, memberService.updateMember(1L, updateDto));
+    }
+
+    @Test
+    public void testCollectionVersionReadsCounter() {
+        when(sequenceGeneratorService.currentValue(MemberService.COLLECTION_VERSION)).thenReturn(42L);
+
+        assertEquals(42L, memberService.collectionVersion());
+    }
 
+    @Test
+    public void testUpdateMemberBumpsCollectionVersion() {
         Member updatedMember = new Member();
+        updatedMember.setId(1L);
+        updatedMember.setName("Jane Doe");
+        MemberUpdateDto updateDto = new MemberUpdateDto();
+        updateDto.setName("Jane Doe");
+        when(memberRepository.setFields(1L, Map.of("name", "Jane Doe"))).thenReturn(Optional.of(updatedMember));
+
+        memberService.updateMember(1L, updateDto);
+
+        verify(sequenceGeneratorService, times(1)).generateSequenceRange(MemberService.COLLECTION_VERSION, 1);
+    }
+
+    @Test
+    public void testFailedWritesDoNotBumpCollectionVersion() {
+        Member existingMember = new Member();
+        existingMember.setId(1L);
+        when(memberRepository.removeById(1L)).thenReturn(0L);
+        when(memberRepository.findById(1L)).thenReturn(Optional.of(existingMember));
 
+        assertThrows(ResponseStatusException.class, () -> memberService.deleteMember(1L));
+        memberService.updateMember(1L, new MemberUpdateDto());
+        memberService.deleteMembers(List.of(2L));
+
+        verify(sequenceGeneratorService, never()).generateSequenceRange(eq(MemberService.COLLECTION_VERSION), anyInt());
+    }
+
+    @Test
+    public void testUpdateMemberSuccess() {
+        Long memberId = 1L;
+        Member updatedMember = new Member();
+        updatedMember.setId(memberId);
         updatedMember.setName("Jane Doe");
         updatedMember.setEmail("jane.doe@example.com");
         updatedMember.setPhoneNumber("1234567890");
 
-
-        existingMember.setId(memberId);
-        existingMember.setName("John Doe");
-        existingMember.setEmail("john.doe@example.com");
-        existingMember.setPhoneNumber("1234567890");
-
         MemberUpdateDto updateDto = new MemberUpdateDto();
         updateDto.setName("Jane Doe");
         updateDto.setEmail("jane.doe@example.com");
 
-        when(memberRepository.findById(memberId)).thenReturn(Optional.of(existingMember));
-        when(memberRepository.findByEmail("jane.doe@example.com")).thenReturn(Optional.empty());
-        when(memberRepository.save(any(Member.class))).thenReturn(updatedMember);
+        when(memberRepository.setFields(memberId, Map.of("name", "Jane Doe", "email", "jane.doe@example.com")))
+                .thenReturn(Optional.of(updatedMember));
         Member updatedMemberFromDb = memberService.updateMember(memberId, updateDto);
 
         assertEquals("Jane Doe", updatedMemberFromDb.getName());
         assertEquals("jane.doe@example.com", updatedMemberFromDb.getEmail());
-        verify(memberRepository, times(1)).save(existingMember);
+        verify(memberRepository, never()).findById(anyLong());
+        verify(memberRepository, never()).findByEmail(any());
+        verify(memberRepository, never()).save(any(Member.class));
     }
 
     @Test
-    public void testUpdateMemberEmailDuplicate() {
+    public void testUpdateMemberSetsOnlyNonNullFields() {
         Long memberId = 1L;
-        Member existingMember = new Member();
-        existingMember.setId(memberId);
-        existingMember.setName("John Doe");
-        existingMember.setEmail("john.doe@example.com");
+        MemberUpdateDto updateDto = new MemberUpdateDto();
+        updateDto.setPhoneNumber("0987654321");
+
+        Member updatedMember = new Member();
+        updatedMember.setId(memberId);
+        when(memberRepository.setFields(memberId, Map.of("phoneNumber", "0987654321")))
+                .thenReturn(Optional.of(updatedMember));
+
+        memberService.updateMember(memberId, updateDto);
+
+        verify(memberRepository, times(1)).setFields(memberId, Map.of("phoneNumber", "0987654321"));
+    }
 
+    @Test
+    public void testUpdateMemberEmailDuplicate() {
+        Long memberId = 1L;
         MemberUpdateDto updateDto = new MemberUpdateDto();
         updateDto.setEmail("duplicate@example.com");
 
-        Member duplicateMember = new Member();
-        duplicateMember.setId(2L);
-
-        when(memberRepository.findById(memberId)).thenReturn(Optional.of(existingMember));
-        when(memberRepository.findByEmail("duplicate@example.com"))
-                .thenReturn(Optional.of(duplicateMember));
+        when(memberRepository.setFields(memberId, Map.of("email", "duplicate@example.com")))
+                .thenThrow(new DuplicateKeyException("E11000 duplicate key error index: email"));
 
         ResponseStatusException thrown = assertThrows(ResponseStatusException.class, () -> {
             memberService.updateMember(memberId, updateDto);
@@ -111,8 +223,9 @@ public class MemberServiceTest {
     public void testUpdateMemberNotFound() {
         Long memberId = 1L;
         MemberUpdateDto updateDto = new MemberUpdateDto();
+        updateDto.setName("Jane Doe");
 
-        when(memberRepository.findById(memberId)).thenReturn(Optional.empty());
+        when(memberRepository.setFields(memberId, Map.of("name", "Jane Doe"))).thenReturn(Optional.empty());
 
         ResponseStatusException thrown = assertThrows(ResponseStatusException.class, () -> {
             memberService.updateMember(memberId, updateDto);
@@ -122,20 +235,34 @@ public class MemberServiceTest {
         assertEquals("Member not found", thrown.getReason());
     }
 
+    @Test
+    public void testUpdateMemberWithoutChangesReturnsMember() {
+        Long memberId = 1L;
+        Member existingMember = new Member();
+        existingMember.setId(memberId);
+
+        when(memberRepository.findById(memberId)).thenReturn(Optional.of(existingMember));
+
+        assertEquals(existingMember, memberService.updateMember(memberId, new MemberUpdateDto()));
+        verify(memberRepository, never()).setFields(anyLong(), any());
+    }
+
     @Test
     public void testDeleteMemberSuccess() {
         Long memberId = 1L;
-        when(memberRepository.findById(memberId)).thenReturn(Optional.of(new Member()));
+        when(memberRepository.removeById(memberId)).thenReturn(1L);
 
         memberService.deleteMember(memberId);
 
-        verify(memberRepository, times(1)).deleteById(memberId);
+        verify(memberRepository, times(1)).removeById(memberId);
+        verify(memberRepository, never()).findById(anyLong());
+        verify(sequenceGeneratorService, times(1)).generateSequenceRange(MemberService.COLLECTION_VERSION, 1);
     }
 
     @Test
     public void testDeleteMemberNotFound() {
         Long memberId = 1L;
-        when(memberRepository.findById(memberId)).thenReturn(Optional.empty());
+        when(memberRepository.removeById(memberId)).thenReturn(0L);
 
         ResponseStatusException thrown = assertThrows(ResponseStatusException.class, () -> {
             memberService.deleteMember(memberId);
@@ -144,4 +271,283 @@ public class MemberServiceTest {
         assertEquals(HttpStatus.NOT_FOUND, thrown.getStatusCode());
         assertEquals("Member not found", thrown.getReason());
     }
+
+    @Test
+    public void testDeleteAndReturnMemberSuccess() {
+        Long memberId = 1L;
+        Member member = new Member();
+        member.setId(memberId);
+        when(memberRepository.findAndRemoveById(memberId)).thenReturn(Optional.of(member));
+
+        assertEquals(member, memberService.deleteAndReturnMember(memberId));
+    }
+
+    @Test
+    public void testDeleteAndReturnMemberNotFound() {
+        when(memberRepository.findAndRemoveById(1L)).thenReturn(Optional.empty());
+
+        ResponseStatusException thrown = assertThrows(ResponseStatusException.class,
+                () -> memberService.deleteAndReturnMember(1L));
+
+        assertEquals(HttpStatus.NOT_FOUND, thrown.getStatusCode());
+    }
+
+    @Test
+    public void testDeleteMembersUsesOneDelete() {
+        List<Long> ids = List.of(1L, 2L, 3L);
+        when(memberRepository.removeByIdIn(ids)).thenReturn(2L);
+
+        BulkDeleteResult result = memberService.deleteMembers(ids);
+
+        assertEquals(3, result.requested());
+        assertEquals(2, result.deleted());
+        verify(memberRepository, times(1)).removeByIdIn(ids);
+    }
+
+    @Test
+    public void testFindMemberReadsDatabaseOnlyOnce() {
+        Member member = new Member();
+        member.setId(1L);
+        when(memberRepository.findById(1L)).thenReturn(Optional.of(member));
+
+        assertEquals(Optional.of(member), memberService.findMember(1L));
+        assertEquals(Optional.of(member), memberService.findMember(1L));
+
+        verify(memberRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    public void testFindMemberDoesNotCacheMissingMember() {
+        when(memberRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertTrue(memberService.findMember(1L).isEmpty());
+        assertTrue(memberService.findMember(1L).isEmpty());
+
+        verify(memberRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    public void testUpdateMemberInvalidatesCachedMember() {
+        Member cached = new Member();
+        cached.setId(1L);
+        cached.setName("John Doe");
+        Member updated = new Member();
+        updated.setId(1L);
+        updated.setName("Jane Doe");
+        MemberUpdateDto updateDto = new MemberUpdateDto();
+        updateDto.setName("Jane Doe");
+        when(memberRepository.findById(1L)).thenReturn(Optional.of(cached), Optional.of(updated));
+        when(memberRepository.setFields(1L, Map.of("name", "Jane Doe"))).thenReturn(Optional.of(updated));
+        memberService.findMember(1L);
+
+        memberService.updateMember(1L, updateDto);
+
+        assertEquals("Jane Doe", memberService.findMember(1L).orElseThrow().getName());
+        verify(memberRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    public void testRegisterMemberCachesCopyOfRequest() {
+        Member member = new Member();
+        member.setName("John Doe");
+        when(sequenceGeneratorService.generateSequence(Member.SEQUENCE_NAME)).thenReturn(1L);
+
+        memberService.register(member);
+        member.setName("Jane Doe");
+
+        assertEquals("John Doe", memberService.findMember(1L).orElseThrow().getName());
+        verify(memberRepository, never()).findById(1L);
+    }
+
+    @Test
+    public void testDeleteMemberInvalidatesCachedMember() {
+        Member cached = new Member();
+        cached.setId(1L);
+        when(memberRepository.findById(1L)).thenReturn(Optional.of(cached), Optional.empty());
+        when(memberRepository.removeById(1L)).thenReturn(1L);
+        memberService.findMember(1L);
+
+        memberService.deleteMember(1L);
+
+        assertTrue(memberService.findMember(1L).isEmpty());
+    }
+
+    @Test
+    public void testWritesKeepNameIndexCurrent() {
+        Member member = new Member();
+        member.setName("John Doe");
+        when(sequenceGeneratorService.generateSequence(Member.SEQUENCE_NAME)).thenReturn(1L);
+        memberService.register(member);
+        Member renamed = new Member();
+        renamed.setId(1L);
+        renamed.setName("Jim Doe");
+        renamed.setVersion(2);
+        when(memberRepository.setFields(1L, Map.of("name", "Jim Doe"))).thenReturn(Optional.of(renamed));
+        MemberUpdateDto update = new MemberUpdateDto();
+        update.setName("Jim Doe");
+
+        memberService.updateMember(1L, update);
+
+        assertEquals(List.of(new MemberNameMatch(1L, "Jim Doe")), memberService.searchNames("ji", 10));
+        assertTrue(memberService.searchNames("jo", 10).isEmpty());
+
+        when(memberRepository.removeById(1L)).thenReturn(1L);
+        memberService.deleteMember(1L);
+
+        assertTrue(memberService.searchNames("ji", 10).isEmpty());
+    }
+
+    @Test
+    public void testSearchMembersRanksMatchesAndPages() {
+        memberService.searchMaxCandidates = 10;
+        memberService.searchMaxTimeMillis = 200;
+        SearchText.Terms terms = SearchText.terms("smith");
+        Member annBell = member(5L, "Ann Bell");
+        annBell.setEmail("ann@smith.org");
+        when(memberRepository.findSearchCandidates(terms.grams(), 10, Duration.ofMillis(200))).thenReturn(List.of(
+                member(1L, "Goldsmith"),
+                member(2L, "Tim Hims"),
+                member(3L, "John Smith"),
+                member(4L, "Smith"),
+                annBell));
+
+        MemberSearchResult first = memberService.searchMembers(terms, 0, 2);
+        MemberSearchResult second = memberService.searchMembers(terms, 1, 2);
+
+        assertEquals(List.of(4L, 5L), first.members().stream().map(Member::getId).toList());
+        assertEquals(List.of(3L, 1L), second.members().stream().map(Member::getId).toList());
+        assertEquals(4, first.total());
+        assertFalse(first.truncated());
+        assertTrue(memberService.searchMembers(terms, 5, 2).members().isEmpty());
+    }
+
+    @Test
+    public void testSearchMembersReportsTruncatedCandidates() {
+        memberService.searchMaxCandidates = 1;
+        SearchText.Terms terms = SearchText.terms("smith");
+        when(memberRepository.findSearchCandidates(any(), eq(1), any()))
+                .thenReturn(List.of(member(4L, "Smith")));
+
+        MemberSearchResult result = memberService.searchMembers(terms, 0, 20);
+
+        assertTrue(result.truncated());
+    }
+
+    @Test
+    public void testSearchMembersOutOfTimeIsServiceUnavailable() {
+        when(memberRepository.findSearchCandidates(any(), anyInt(), any())).thenThrow(new UncategorizedMongoDbException(
+                "operation exceeded time limit", new MongoExecutionTimeoutException(50, "operation exceeded time limit")));
+
+        ResponseStatusException thrown = assertThrows(ResponseStatusException.class,
+                () -> memberService.searchMembers(SearchText.terms("smith"), 0, 20));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, thrown.getStatusCode());
+    }
+
+    @Test
+    public void testExportMembersWritesOneLinePerMember() throws IOException {
+        Member first = new Member();
+        first.setId(1L);
+        first.setName("John Doe");
+        Member second = new Member();
+        second.setId(2L);
+        second.setName("Jane Doe");
+        Stream<Member> members = Stream.of(first, second);
+        memberService.exportBatchSize = 1;
+        when(memberRepository.streamAll(1)).thenReturn(members);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        long count = memberService.exportMembers(outputStream);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, count);
+        assertEquals(2, lines.length);
+        assertEquals("John Doe", objectMapper.readValue(lines[0], Member.class).getName());
+        assertEquals("Jane Doe", objectMapper.readValue(lines[1], Member.class).getName());
+    }
+
+    private static InputStream json(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testImportMembersReportsErrorsPerItem() throws IOException {
+        memberService.importChunkSize = 100;
+        when(sequenceGeneratorService.generateSequenceRange(Member.SEQUENCE_NAME, 2)).thenReturn(10L);
+        when(memberRepository.insertUnordered(anyList())).thenReturn(List.of(new BulkWriteError(11000,
+                "E11000 duplicate key error collection: members index: email dup key", new BsonDocument(), 1)));
+
+        BulkImportResult result = memberService.importMembers(json("""
+                [
+                  {"name": "John Doe", "email": "john.doe@example.com", "phoneNumber": "1234567890"},
+                  {"name": "Jane Doe", "email": "not-an-email", "phoneNumber": "1234567890"},
+                  {"name": "Jim Doe", "email": "john.doe@example.com", "phoneNumber": "1234567890"},
+                  42
+                ]
+                """));
+
+        assertEquals(4, result.received());
+        assertEquals(1, result.inserted());
+        assertEquals(List.of(new MemberNameMatch(10L, "John Doe")), memberService.searchNames("j", 10));
+        assertEquals(List.of(
+                new BulkImportResult.ItemError(1, Map.of("email", "must be a well-formed email address")),
+                new BulkImportResult.ItemError(2, Map.of("email", "Email taken")),
+                new BulkImportResult.ItemError(3, Map.of("error", "Malformed member"))), result.errors());
+    }
+
+    @Test
+    public void testImportMembersReportsNullAndNonObjectItemsAsMalformed() throws IOException {
+        memberService.importChunkSize = 100;
+        when(sequenceGeneratorService.generateSequenceRange(Member.SEQUENCE_NAME, 1)).thenReturn(10L);
+        when(memberRepository.insertUnordered(anyList())).thenReturn(List.of());
+
+        BulkImportResult result = memberService.importMembers(json("""
+                [
+                  {"name": "John Doe", "email": "john.doe@example.com", "phoneNumber": "1234567890"},
+                  null,
+                  "Jane Doe",
+                  []
+                ]
+                """));
+
+        assertEquals(4, result.received());
+        assertEquals(1, result.inserted());
+        assertEquals(List.of(
+                new BulkImportResult.ItemError(1, Map.of("error", "Malformed member")),
+                new BulkImportResult.ItemError(2, Map.of("error", "Malformed member")),
+                new BulkImportResult.ItemError(3, Map.of("error", "Malformed member"))), result.errors());
+    }
+
+    @Test
+    public void testImportMembersReservesIdsOncePerChunk() throws IOException {
+        memberService.importChunkSize = 2;
+        when(sequenceGeneratorService.generateSequenceRange(eq(Member.SEQUENCE_NAME), anyInt())).thenReturn(1L, 3L);
+        when(memberRepository.insertUnordered(anyList())).thenReturn(List.of());
+
+        BulkImportResult result = memberService.importMembers(json("""
+                [
+                  {"name": "John Doe", "email": "john@example.com", "phoneNumber": "1234567890"},
+                  {"name": "Jane Doe", "email": "jane@example.com", "phoneNumber": "1234567890"},
+                  {"name": "Jim Doe", "email": "jim@example.com", "phoneNumber": "1234567890"}
+                ]
+                """));
+
+        assertEquals(3, result.inserted());
+        verify(sequenceGeneratorService, times(1)).generateSequenceRange(Member.SEQUENCE_NAME, 2);
+        verify(sequenceGeneratorService, times(1)).generateSequenceRange(Member.SEQUENCE_NAME, 1);
+        verify(memberRepository, times(2)).insertUnordered(anyList());
+    }
+
+    @Test
+    public void testImportMembersRejectsMalformedBody() {
+        memberService.importChunkSize = 100;
+
+        ResponseStatusException notArray = assertThrows(ResponseStatusException.class,
+                () -> memberService.importMembers(json("{\"name\": \"John Doe\"}")));
+        ResponseStatusException truncated = assertThrows(ResponseStatusException.class,
+                () -> memberService.importMembers(json("[{\"name\": ")));
+
+        assertEquals(HttpStatus.BAD_REQUEST, notArray.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, truncated.getStatusCode());
+    }
 }
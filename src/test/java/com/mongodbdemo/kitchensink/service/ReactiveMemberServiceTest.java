@@ -0,0 +1,179 @@
+package com.mongodbdemo.kitchensink.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodbdemo.kitchensink.dto.BulkImportResult;
+import com.mongodbdemo.kitchensink.dto.MemberNameMatch;
+import com.mongodbdemo.kitchensink.model.DatabaseSequence;
+import com.mongodbdemo.kitchensink.model.Member;
+import com.mongodbdemo.kitchensink.repository.MemberIndexManager;
+import com.mongodbdemo.kitchensink.repository.ReactiveMemberRepository;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.mongodbdemo.kitchensink.model.MemberFixtures.member;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ReactiveMemberServiceTest {
+
+    @Mock
+    private ReactiveMemberRepository memberRepository;
+
+    @Mock
+    private ReactiveMongoOperations mongoOperations;
+
+    @Mock
+    private SequenceGeneratorService sequenceGeneratorService;
+
+    @Spy
+    private MemberCache memberCache = new MemberCache(1_000_000, 60);
+
+    @Spy
+    private MemberNameIndex memberNameIndex = new MemberNameIndex(null, Runnable::run, 100, 30000);
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Mock
+    private MemberIndexManager memberIndexManager;
+
+    @InjectMocks
+    private ReactiveMemberService memberService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(memberIndexManager.isEmailUnique()).thenReturn(true);
+        when(mongoOperations.findAndModify(any(), any(), any(), eq(DatabaseSequence.class)))
+                .thenReturn(Mono.just(new DatabaseSequence()));
+    }
+
+    private Flux<JsonNode> items(String json) throws IOException {
+        return Flux.fromIterable(objectMapper.readTree(json));
+    }
+
+    @Test
+    void importMembersShouldReportErrorsPerItem() throws IOException {
+        // Arrange
+        memberService.importChunkSize = 100;
+        when(sequenceGeneratorService.generateSequenceRange(Member.SEQUENCE_NAME, 2)).thenReturn(10L);
+        when(memberRepository.insertUnordered(anyList())).thenReturn(Mono.just(List.of(new BulkWriteError(11000,
+                "E11000 duplicate key error collection: members index: email dup key", new BsonDocument(), 1))));
+
+        // Act
+        BulkImportResult result = memberService.importMembers(items("""
+                [
+                  {"name": "John Doe", "email": "john.doe@example.com", "phoneNumber": "1234567890"},
+                  {"name": "Jane Doe", "email": "not-an-email", "phoneNumber": "1234567890"},
+                  {"name": "Jim Doe", "email": "john.doe@example.com", "phoneNumber": "1234567890"},
+                  42
+                ]
+                """)).block();
+
+        // Assert
+        assertEquals(4, result.received());
+        assertEquals(1, result.inserted());
+        assertEquals(List.of(new MemberNameMatch(10L, "John Doe")), memberNameIndex.search("j", 10));
+        assertEquals(List.of(
+                new BulkImportResult.ItemError(1, Map.of("email", "must be a well-formed email address")),
+                new BulkImportResult.ItemError(2, Map.of("email", "Email taken")),
+                new BulkImportResult.ItemError(3, Map.of("error", "Malformed member"))), result.errors());
+        verify(mongoOperations, times(1)).findAndModify(any(), any(), any(), eq(DatabaseSequence.class));
+    }
+
+    @Test
+    void importMembersShouldReserveIdsOncePerChunk() throws IOException {
+        // Arrange
+        memberService.importChunkSize = 2;
+        when(sequenceGeneratorService.generateSequenceRange(eq(Member.SEQUENCE_NAME), anyInt())).thenReturn(1L, 3L);
+        when(memberRepository.insertUnordered(anyList())).thenReturn(Mono.just(List.of()));
+
+        // Act
+        BulkImportResult result = memberService.importMembers(items("""
+                [
+                  {"name": "John Doe", "email": "john@example.com", "phoneNumber": "1234567890"},
+                  {"name": "Jane Doe", "email": "jane@example.com", "phoneNumber": "1234567890"},
+                  {"name": "Jim Doe", "email": "jim@example.com", "phoneNumber": "1234567890"}
+                ]
+                """)).block();
+
+        // Assert
+        assertEquals(3, result.inserted());
+        verify(sequenceGeneratorService, times(1)).generateSequenceRange(Member.SEQUENCE_NAME, 2);
+        verify(sequenceGeneratorService, times(1)).generateSequenceRange(Member.SEQUENCE_NAME, 1);
+        verify(memberRepository, times(2)).insertUnordered(anyList());
+    }
+
+    @Test
+    void importMembersShouldRejectMalformedBody() {
+        // Arrange
+        memberService.importChunkSize = 100;
+
+        // Act & Assert
+        StepVerifier.create(memberService.importMembers(Flux.error(new DecodingException("Unexpected end"))))
+                .expectErrorMatches(e -> e instanceof ResponseStatusException status
+                        && status.getStatusCode() == HttpStatus.BAD_REQUEST)
+                .verify();
+    }
+
+    @Test
+    void findMemberShouldReadDatabaseOnceWhileCached() {
+        // Arrange
+        AtomicInteger reads = new AtomicInteger();
+        when(memberRepository.findById(1L)).thenReturn(Mono.fromSupplier(() -> {
+            reads.incrementAndGet();
+            return member(1L, "Jane Doe");
+        }));
+
+        // Act
+        memberService.findMember(1L).block();
+        Member cached = memberService.findMember(1L).block();
+
+        // Assert
+        assertEquals("Jane Doe", cached.getName());
+        assertEquals(1, reads.get());
+    }
+
+    @Test
+    void deleteMemberShouldInvalidateCachedMember() {
+        // Arrange
+        memberCache.put(member(1L, "Jane Doe"));
+        when(memberRepository.removeById(1L)).thenReturn(Mono.just(1L));
+
+        // Act
+        memberService.deleteMember(1L).block();
+
+        // Assert
+        verify(memberCache).invalidate(1L);
+        assertNull(memberCache.getCache().getIfPresent(1L));
+    }
+}
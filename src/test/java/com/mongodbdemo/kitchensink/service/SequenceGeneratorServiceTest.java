@@ -3,7 +3,6 @@ package com.mongodbdemo.kitchensink.service;
 import com.mongodbdemo.kitchensink.model.DatabaseSequence;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.data.mongodb.core.FindAndModifyOptions;
@@ -17,6 +16,8 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class SequenceGeneratorServiceTest {
@@ -24,12 +25,13 @@ public class SequenceGeneratorServiceTest {
     @Mock
     private MongoOperations mongoOperations;
 
-    @InjectMocks
     private SequenceGeneratorService sequenceGeneratorService;
 
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
+        // A block size of one reserves a single value per round trip
+        sequenceGeneratorService = new SequenceGeneratorService(mongoOperations, 1, 0, Runnable::run);
     }
 
     @Test
@@ -89,4 +91,97 @@ public class SequenceGeneratorServiceTest {
         // Assert
         assertEquals(1L, result);
     }
+
+    @Test
+    public void generateSequenceWithBlockSize_shouldServeBlockFromMemory() {
+        // Arrange
+        SequenceGeneratorService blockService = new SequenceGeneratorService(mongoOperations, 50, 0, Runnable::run);
+        DatabaseSequence mockSequence = new DatabaseSequence();
+        mockSequence.setSeq(50L);
+        when(mongoOperations.findAndModify(
+                any(Query.class),
+                any(Update.class),
+                any(FindAndModifyOptions.class),
+                eq(DatabaseSequence.class)
+        )).thenReturn(mockSequence);
+
+        // Act & Assert
+        for (long expected = 1; expected <= 50; expected++) {
+            assertEquals(expected, blockService.generateSequence("testSequence"));
+        }
+        verify(mongoOperations, times(1)).findAndModify(
+                any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(DatabaseSequence.class));
+    }
+
+    @Test
+    public void generateSequenceWhenBlockExhausted_shouldReserveNextBlock() {
+        // Arrange
+        SequenceGeneratorService blockService = new SequenceGeneratorService(mongoOperations, 2, 0, Runnable::run);
+        DatabaseSequence first = new DatabaseSequence();
+        first.setSeq(2L);
+        DatabaseSequence second = new DatabaseSequence();
+        second.setSeq(10L);  // Another instance reserved 3..8 in between
+        when(mongoOperations.findAndModify(
+                any(Query.class),
+                any(Update.class),
+                any(FindAndModifyOptions.class),
+                eq(DatabaseSequence.class)
+        )).thenReturn(first, second);
+
+        // Act & Assert
+        assertEquals(1L, blockService.generateSequence("testSequence"));
+        assertEquals(2L, blockService.generateSequence("testSequence"));
+        assertEquals(9L, blockService.generateSequence("testSequence"));
+        assertEquals(10L, blockService.generateSequence("testSequence"));
+    }
+
+    @Test
+    public void generateSequenceBelowPrefetchThreshold_shouldReserveNextBlockAhead() {
+        // Arrange
+        SequenceGeneratorService blockService = new SequenceGeneratorService(mongoOperations, 5, 2, Runnable::run);
+        DatabaseSequence first = new DatabaseSequence();
+        first.setSeq(5L);
+        DatabaseSequence second = new DatabaseSequence();
+        second.setSeq(10L);
+        when(mongoOperations.findAndModify(
+                any(Query.class),
+                any(Update.class),
+                any(FindAndModifyOptions.class),
+                eq(DatabaseSequence.class)
+        )).thenReturn(first, second);
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            blockService.generateSequence("testSequence");
+        }
+
+        // Assert
+        verify(mongoOperations, times(2)).findAndModify(
+                any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(DatabaseSequence.class));
+        assertEquals(4L, blockService.generateSequence("testSequence"));
+        assertEquals(5L, blockService.generateSequence("testSequence"));
+        assertEquals(6L, blockService.generateSequence("testSequence"));
+    }
+
+    @Test
+    public void generateSequenceRange_shouldReserveCountWithSingleUpdate() {
+        // Arrange
+        DatabaseSequence mockSequence = new DatabaseSequence();
+        mockSequence.setSeq(1000L);
+        when(mongoOperations.findAndModify(
+                any(Query.class),
+                any(Update.class),
+                any(FindAndModifyOptions.class),
+                eq(DatabaseSequence.class)
+        )).thenReturn(mockSequence);
+
+        // Act
+        long first = sequenceGeneratorService.generateSequenceRange("testSequence", 250);
+
+        // Assert
+        assertEquals(751L, first);
+        verify(mongoOperations, times(1)).findAndModify(
+                any(Query.class), eq(new Update().inc("seq", 250)), any(FindAndModifyOptions.class),
+                eq(DatabaseSequence.class));
+    }
 }